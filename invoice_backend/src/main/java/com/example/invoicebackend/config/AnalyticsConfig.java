@@ -0,0 +1,88 @@
+package com.example.invoicebackend.config;
+
+import com.example.invoicebackend.repository.AnalyticsRepository;
+import com.example.invoicebackend.service.analytics.AnalyticsEngine;
+import com.example.invoicebackend.service.analytics.ColumnarAnalyticsEngine;
+import com.example.invoicebackend.service.analytics.RollupAnalyticsEngine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Configures the analytics engine (app.analytics.engine), the bounded pool used for cross-partner
+ * analytics (app.analytics.parallelism) and the executor running dashboard sub-queries (app.analytics.dashboard.*).
+ */
+@Configuration
+public class AnalyticsConfig {
+
+    @Value("${app.analytics.engine:rollup}")
+    private String engine;
+
+    @Value("${app.analytics.memory.refresh-after:PT15M}")
+    private Duration memoryRefreshAfter;
+
+    @Value("${app.analytics.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.analytics.dashboard.threads:8}")
+    private int dashboardThreads;
+
+    @Value("${app.analytics.dashboard.queue-capacity:64}")
+    private int dashboardQueueCapacity;
+
+    // PUBLIC_INTERFACE
+    @Bean
+    public AnalyticsEngine analyticsEngine(AnalyticsRepository analyticsRepository) {
+        /** Provide analytics engine: rollup (grouped queries over daily rollups) or memory (columnar arrays). Defaults to rollup. */
+        String e = engine == null ? "rollup" : engine.trim().toLowerCase();
+        return switch (e) {
+            case "memory" -> new ColumnarAnalyticsEngine(analyticsRepository, memoryRefreshAfter);
+            default -> new RollupAnalyticsEngine(analyticsRepository);
+        };
+    }
+
+    // PUBLIC_INTERFACE
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool analyticsPool() {
+        /**
+         * Pool for per-partner-range analytics tasks. Each task holds a DB connection while it runs,
+         * so parallelism should stay below the connection pool size.
+         */
+        int p = Math.max(1, parallelism);
+        return new ForkJoinPool(p, pool -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("analytics-" + t.getPoolIndex());
+            return t;
+        }, null, false);
+    }
+
+    // PUBLIC_INTERFACE
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor analyticsDashboardExecutor() {
+        /**
+         * Executor for the sub-queries of one dashboard request. Kept apart from the analytics pool because the
+         * sub-queries block on their own cross-partner tasks there. When the queue is full the request thread runs
+         * the sub-query itself, which bounds the backlog without rejecting requests.
+         */
+        AtomicInteger n = new AtomicInteger();
+        int threads = Math.max(1, dashboardThreads);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, dashboardQueueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "analytics-dashboard-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -60,11 +60,14 @@ public class CorsConfig {
                 "Accept",
                 "Origin",
                 "X-Requested-With",
-                "X-Auth-Token"
+                "X-Auth-Token",
+                "If-Match",
+                "If-None-Match"
         ));
         config.setExposedHeaders(Arrays.asList(
                 "Authorization",
-                "Content-Disposition"
+                "Content-Disposition",
+                "ETag"
         ));
         config.setAllowCredentials(true);
         // Keep preflight response cache for a while
@@ -0,0 +1,32 @@
+package com.example.invoicebackend.config;
+
+import com.example.invoicebackend.repository.InvoiceSearchDocumentRepository;
+import com.example.invoicebackend.service.search.InMemoryInvertedIndex;
+import com.example.invoicebackend.service.search.InvoiceSearchIndex;
+import com.example.invoicebackend.service.search.PostgresFullTextIndex;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configures the InvoiceSearchIndex bean based on app.search.provider.
+ */
+@Configuration
+public class SearchConfig {
+
+    @Value("${app.search.provider:memory}")
+    private String provider;
+
+    // PUBLIC_INTERFACE
+    @Bean
+    public InvoiceSearchIndex invoiceSearchIndex(EntityManager entityManager,
+                                                 InvoiceSearchDocumentRepository documents) {
+        /** Provide full-text index: postgres (tsvector/GIN) or memory (embedded inverted index). Defaults to memory. */
+        String p = provider == null ? "memory" : provider.trim().toLowerCase();
+        return switch (p) {
+            case "postgres" -> new PostgresFullTextIndex(entityManager);
+            default -> new InMemoryInvertedIndex(documents);
+        };
+    }
+}
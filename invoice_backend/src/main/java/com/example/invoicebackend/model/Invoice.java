@@ -1,6 +1,7 @@
 package com.example.invoicebackend.model;
 
 import com.example.invoicebackend.model.enums.InvoiceStatus;
+import com.example.invoicebackend.util.MoneyAccumulator;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -62,7 +63,7 @@ public class Invoice {
     @Column(name = "total_amount", precision = 19, scale = 2, nullable = false)
     private BigDecimal totalAmount = BigDecimal.ZERO;
 
-    @Lob
+    @Column(columnDefinition = "TEXT")
     private String notes;
 
     @Column(name = "is_deleted", nullable = false)
@@ -74,6 +75,10 @@ public class Invoice {
     @Column(name = "updated_at", nullable = false)
     private Instant updatedAt = Instant.now();
 
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     @OneToMany(mappedBy = "invoice", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<InvoiceItem> items = new ArrayList<>();
 
@@ -81,18 +86,21 @@ public class Invoice {
 
     // Recalculate totals based on items, tax and discount fields
     public void recalcTotals() {
-        BigDecimal subtotal = items.stream()
-                .map(InvoiceItem::getLineTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        setSubtotalAmount(subtotal != null ? subtotal : BigDecimal.ZERO);
-        BigDecimal total = subtotalAmount
-                .add(taxAmount != null ? taxAmount : BigDecimal.ZERO)
-                .subtract(discountAmount != null ? discountAmount : BigDecimal.ZERO);
+        MoneyAccumulator subtotal = new MoneyAccumulator();
+        for (InvoiceItem item : items) {
+            subtotal.add(item.getLineTotal());
+        }
+        setSubtotalAmount(subtotal.toBigDecimal());
+        BigDecimal total = subtotal
+                .add(taxAmount)
+                .subtract(discountAmount)
+                .toBigDecimal();
         setTotalAmount(total);
     }
 
     // getters and setters
     public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
     public Partner getPartner() { return partner; }
     public void setPartner(Partner partner) { this.partner = partner; }
     public Customer getCustomer() { return customer; }
@@ -125,6 +133,7 @@ public class Invoice {
     public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
     public Instant getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+    public long getVersion() { return version; }
     public List<InvoiceItem> getItems() { return items; }
     public void setItems(List<InvoiceItem> items) { this.items = items; }
 }
@@ -0,0 +1,56 @@
+package com.example.invoicebackend.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Per-partner invoice number sequence and display format. Maps to invoice_number_sequences table.
+ */
+@Entity
+@Table(name = "invoice_number_sequences")
+public class InvoiceNumberSequence {
+
+    public static final String DEFAULT_FORMAT = "INV-{SEQ}";
+    public static final int DEFAULT_PAD_WIDTH = 6;
+
+    @Id
+    @Column(name = "partner_id")
+    private Long partnerId;
+
+    @Column(name = "next_value", nullable = false)
+    private long nextValue = 1;
+
+    @Column(name = "number_format", nullable = false, length = 100)
+    private String numberFormat = DEFAULT_FORMAT;
+
+    @Column(name = "pad_width", nullable = false)
+    private int padWidth = DEFAULT_PAD_WIDTH;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt = Instant.now();
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt = Instant.now();
+
+    public InvoiceNumberSequence() {}
+
+    public InvoiceNumberSequence(Long partnerId, long nextValue) {
+        this.partnerId = partnerId;
+        this.nextValue = nextValue;
+    }
+
+    // getters and setters
+    public Long getPartnerId() { return partnerId; }
+    public void setPartnerId(Long partnerId) { this.partnerId = partnerId; }
+    public long getNextValue() { return nextValue; }
+    public void setNextValue(long nextValue) { this.nextValue = nextValue; }
+    public String getNumberFormat() { return numberFormat; }
+    public void setNumberFormat(String numberFormat) { this.numberFormat = numberFormat; }
+    public int getPadWidth() { return padWidth; }
+    public void setPadWidth(int padWidth) { this.padWidth = padWidth; }
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,39 @@
+package com.example.invoicebackend.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Denormalized full-text search document for an invoice. Maps to invoice_search_documents table.
+ * On PostgreSQL the table also carries a generated tsvector column that is not mapped here.
+ */
+@Entity
+@Table(name = "invoice_search_documents")
+public class InvoiceSearchDocument {
+
+    @Id
+    @Column(name = "invoice_id")
+    private Long invoiceId;
+
+    @Column(name = "partner_id", nullable = false)
+    private Long partnerId;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String document;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt = Instant.now();
+
+    public InvoiceSearchDocument() {}
+
+    // getters and setters
+    public Long getInvoiceId() { return invoiceId; }
+    public void setInvoiceId(Long invoiceId) { this.invoiceId = invoiceId; }
+    public Long getPartnerId() { return partnerId; }
+    public void setPartnerId(Long partnerId) { this.partnerId = partnerId; }
+    public String getDocument() { return document; }
+    public void setDocument(String document) { this.document = document; }
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -24,8 +24,7 @@ public class Template {
     @Column(name = "template_type", nullable = false)
     private String templateType = "INVOICE";
 
-    @Lob
-    @Column(name = "content_json")
+    @Column(name = "content_json", columnDefinition = "TEXT")
     private String contentJson;
 
     @Column(name = "is_default", nullable = false)
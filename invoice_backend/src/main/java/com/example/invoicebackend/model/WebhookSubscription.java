@@ -29,6 +29,29 @@ public class WebhookSubscription {
     @Column(nullable = false)
     private Boolean active = true;
 
+    // Delivery limits for the target URL; null uses app.webhooks.circuit.* / app.webhooks.rate-limit.*
+    @Column(name = "circuit_failure_threshold")
+    private Integer circuitFailureThreshold;
+
+    @Column(name = "circuit_open_seconds")
+    private Integer circuitOpenSeconds;
+
+    @Column(name = "rate_limit_per_second")
+    private Double rateLimitPerSecond;
+
+    @Column(name = "rate_limit_burst")
+    private Integer rateLimitBurst;
+
+    // Batched delivery: off unless batchWindowMs > 0; null max events uses app.webhooks.batch.max-events
+    @Column(name = "batch_window_ms")
+    private Integer batchWindowMs;
+
+    @Column(name = "batch_max_events")
+    private Integer batchMaxEvents;
+
+    @Column(name = "batch_coalesce", nullable = false)
+    private Boolean batchCoalesce = false;
+
     @Column(name = "created_at", nullable = false)
     private Instant createdAt = Instant.now();
     @Column(name = "updated_at", nullable = false)
@@ -48,6 +71,21 @@ public class WebhookSubscription {
     public void setSecretToken(String secretToken) { this.secretToken = secretToken; }
     public Boolean getActive() { return active; }
     public void setActive(Boolean active) { this.active = active; }
+    public Integer getCircuitFailureThreshold() { return circuitFailureThreshold; }
+    public void setCircuitFailureThreshold(Integer circuitFailureThreshold) { this.circuitFailureThreshold = circuitFailureThreshold; }
+    public Integer getCircuitOpenSeconds() { return circuitOpenSeconds; }
+    public void setCircuitOpenSeconds(Integer circuitOpenSeconds) { this.circuitOpenSeconds = circuitOpenSeconds; }
+    public Double getRateLimitPerSecond() { return rateLimitPerSecond; }
+    public void setRateLimitPerSecond(Double rateLimitPerSecond) { this.rateLimitPerSecond = rateLimitPerSecond; }
+    public Integer getRateLimitBurst() { return rateLimitBurst; }
+    public void setRateLimitBurst(Integer rateLimitBurst) { this.rateLimitBurst = rateLimitBurst; }
+    public Integer getBatchWindowMs() { return batchWindowMs; }
+    public void setBatchWindowMs(Integer batchWindowMs) { this.batchWindowMs = batchWindowMs; }
+    public Integer getBatchMaxEvents() { return batchMaxEvents; }
+    public void setBatchMaxEvents(Integer batchMaxEvents) { this.batchMaxEvents = batchMaxEvents; }
+    public Boolean getBatchCoalesce() { return batchCoalesce; }
+    public void setBatchCoalesce(Boolean batchCoalesce) { this.batchCoalesce = batchCoalesce; }
+    public boolean isBatched() { return batchWindowMs != null && batchWindowMs > 0; }
     public Instant getCreatedAt() { return createdAt; }
     public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
     public Instant getUpdatedAt() { return updatedAt; }
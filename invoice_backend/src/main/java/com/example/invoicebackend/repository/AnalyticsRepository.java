@@ -0,0 +1,533 @@
+package com.example.invoicebackend.repository;
+
+import com.example.invoicebackend.model.enums.InvoiceStatus;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * SQL access for analytics: reads over the per-partner daily rollup tables, additive delta writes that keep
+ * them current, and the grouped scans over invoices/payments used to (re)build them.
+ * Rollup reads return one row per group, so their cost depends on the number of days, not of invoices.
+ */
+@Repository
+public class AnalyticsRepository {
+
+    private final JdbcTemplate jdbc;
+
+    public AnalyticsRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    // ---- Rollup reads ----
+
+    /**
+     * Invoice count and total amount per status over the filter's issue date range; statuses without invoices are omitted.
+     */
+    public List<StatusTotal> statusTotals(InvoiceFilter filter) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT r.status, SUM(r.invoice_count) AS cnt, SUM(r.total_amount) AS amount"
+                + " FROM invoice_daily_rollups r WHERE " + invoiceWhere(filter, params)
+                + " GROUP BY r.status HAVING SUM(r.invoice_count) > 0";
+        return jdbc.query(sql, (rs, n) -> new StatusTotal(
+                InvoiceStatus.valueOf(rs.getString("status")),
+                rs.getLong("cnt"),
+                rs.getBigDecimal("amount")), params.toArray());
+    }
+
+    /**
+     * Invoice count and total amount per issue date and status; groups without invoices are omitted.
+     */
+    public List<DayStatusTotal> invoicedByDayAndStatus(InvoiceFilter filter) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT r.issue_date AS d, r.status, SUM(r.invoice_count) AS cnt, SUM(r.total_amount) AS amount"
+                + " FROM invoice_daily_rollups r WHERE " + invoiceWhere(filter, params)
+                + " GROUP BY r.issue_date, r.status HAVING SUM(r.invoice_count) > 0";
+        return jdbc.query(sql, (rs, n) -> new DayStatusTotal(
+                rs.getDate("d").toLocalDate(), InvoiceStatus.valueOf(rs.getString("status")),
+                rs.getLong("cnt"), rs.getBigDecimal("amount")), params.toArray());
+    }
+
+    /**
+     * Number of customers per date of their first non-deleted invoice, for first dates within [from, to].
+     * Not a rollup read: groups the invoices on idx_invoices_partner_customer_issue.
+     */
+    public List<DayCount> newCustomersByDay(PartnerRange partners, LocalDate from, LocalDate to) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT f.first_date AS d, COUNT(*) AS cnt FROM (")
+                .append("SELECT r.customer_id, MIN(r.issue_date) AS first_date FROM invoices r WHERE ")
+                .append(partnerWhere(partners, params))
+                .append(" AND r.is_deleted = false GROUP BY r.partner_id, r.customer_id) f WHERE 1 = 1");
+        if (from != null) {
+            sql.append(" AND f.first_date >= ?");
+            params.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND f.first_date <= ?");
+            params.add(Date.valueOf(to));
+        }
+        sql.append(" GROUP BY f.first_date");
+        return jdbc.query(sql.toString(), (rs, n) -> new DayCount(rs.getDate("d").toLocalDate(), rs.getLong("cnt")),
+                params.toArray());
+    }
+
+    /**
+     * COMPLETED payment count and amount per payment date; days without payments are omitted.
+     */
+    public List<DayTotal> paidByDay(PartnerRange partners, LocalDate from, LocalDate to) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT r.payment_date AS d, SUM(r.payment_count) AS cnt, SUM(r.paid_amount) AS amount"
+                + " FROM payment_daily_rollups r WHERE " + dateWhere("r.payment_date", partners, from, to, params)
+                + " GROUP BY r.payment_date HAVING SUM(r.payment_count) > 0";
+        return jdbc.query(sql, (rs, n) -> new DayTotal(
+                rs.getDate("d").toLocalDate(), rs.getLong("cnt"), rs.getBigDecimal("amount")), params.toArray());
+    }
+
+    /**
+     * Settlement stats of PAID invoices issued within [issueFrom, issueTo] and paid within [paidFrom, paidTo].
+     */
+    public SettlementTotals settlementTotals(PartnerRange partners, LocalDate issueFrom, LocalDate issueTo,
+                                             LocalDate paidFrom, LocalDate paidTo) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT COALESCE(SUM(r.invoice_count), 0) AS cnt,"
+                + " COALESCE(SUM(r.on_time_count), 0) AS on_time, COALESCE(SUM(r.delay_days_sum), 0) AS delay"
+                + " FROM settlement_daily_rollups r WHERE ")
+                .append(dateWhere("r.issue_date", partners, issueFrom, issueTo, params));
+        if (paidFrom != null) {
+            sql.append(" AND r.paid_date >= ?");
+            params.add(Date.valueOf(paidFrom));
+        }
+        if (paidTo != null) {
+            sql.append(" AND r.paid_date <= ?");
+            params.add(Date.valueOf(paidTo));
+        }
+        return jdbc.queryForObject(sql.toString(), (rs, n) -> new SettlementTotals(
+                rs.getLong("cnt"), rs.getLong("on_time"), rs.getLong("delay")), params.toArray());
+    }
+
+    /**
+     * Settled invoice count per payment delay in days, max(0, paid_date - due_date), of PAID invoices issued within
+     * [issueFrom, issueTo] and paid within [paidFrom, paidTo].
+     */
+    public List<DelayCount> settlementDelays(PartnerRange partners, LocalDate issueFrom, LocalDate issueTo,
+                                             LocalDate paidFrom, LocalDate paidTo) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT r.delay_days, SUM(r.invoice_count) AS cnt"
+                + " FROM settlement_delay_rollups r WHERE ")
+                .append(dateWhere("r.issue_date", partners, issueFrom, issueTo, params));
+        if (paidFrom != null) {
+            sql.append(" AND r.paid_date >= ?");
+            params.add(Date.valueOf(paidFrom));
+        }
+        if (paidTo != null) {
+            sql.append(" AND r.paid_date <= ?");
+            params.add(Date.valueOf(paidTo));
+        }
+        sql.append(" GROUP BY r.delay_days HAVING SUM(r.invoice_count) > 0");
+        return jdbc.query(sql.toString(), (rs, n) -> new DelayCount(rs.getInt("delay_days"), rs.getLong("cnt")),
+                params.toArray());
+    }
+
+    /**
+     * Highest HyperLogLog rank per register over the customers of invoices issued within [from, to]; registers
+     * no customer touched are omitted.
+     */
+    public List<SketchRegister> customerSketch(PartnerRange partners, LocalDate from, LocalDate to) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT r.register_index, MAX(r.max_rank) AS max_rank FROM customer_sketch_rollups r WHERE "
+                + dateWhere("r.issue_date", partners, from, to, params) + " GROUP BY r.register_index";
+        return jdbc.query(sql, (rs, n) -> new SketchRegister(rs.getInt("register_index"), rs.getInt("max_rank")),
+                params.toArray());
+    }
+
+    public boolean backfillCompleted(String rollupSet) {
+        Integer any = jdbc.query("SELECT 1 FROM analytics_rollup_backfills WHERE rollup_set = ?",
+                rs -> rs.next() ? 1 : null, rollupSet);
+        return any != null;
+    }
+
+    public void markBackfillCompleted(String rollupSet) {
+        try {
+            jdbc.update("INSERT INTO analytics_rollup_backfills (rollup_set, completed_at) VALUES (?, ?)",
+                    rollupSet, Timestamp.from(Instant.now()));
+        } catch (DuplicateKeyException e) {
+            // Another instance finished the same backfill
+        }
+    }
+
+    // ---- Receivables aging ----
+
+    /**
+     * Open (SENT/OVERDUE) non-deleted invoices grouped by partner, customer and aging bucket in one scan.
+     * The bucket is the index of the first of the given descending due date lower bounds the due date reaches
+     * (0 also for no due date), or dueLowerBounds.size() when it is below all of them.
+     */
+    public List<AgingRow> agingTotals(PartnerRange partners, List<LocalDate> dueLowerBounds) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder bucket = new StringBuilder("CASE WHEN r.due_date IS NULL THEN 0");
+        for (int i = 0; i < dueLowerBounds.size(); i++) {
+            bucket.append(" WHEN r.due_date >= ? THEN ").append(i);
+            params.add(Date.valueOf(dueLowerBounds.get(i)));
+        }
+        bucket.append(" ELSE ").append(dueLowerBounds.size()).append(" END");
+        String sql = "SELECT a.partner_id, a.customer_id, c.name AS customer_name, a.bucket,"
+                + " COUNT(*) AS cnt, SUM(a.total_amount) AS amount FROM ("
+                + "SELECT r.partner_id, r.customer_id, r.total_amount, " + bucket + " AS bucket FROM invoices r"
+                + " WHERE " + partnerWhere(partners, params)
+                + " AND r.is_deleted = false AND r.status IN ('SENT', 'OVERDUE')) a"
+                + " JOIN customers c ON c.id = a.customer_id"
+                + " GROUP BY a.partner_id, a.customer_id, c.name, a.bucket"
+                + " ORDER BY a.partner_id, a.customer_id, a.bucket";
+        return jdbc.query(sql, (rs, n) -> new AgingRow(rs.getLong("partner_id"), rs.getLong("customer_id"),
+                rs.getString("customer_name"), rs.getInt("bucket"), rs.getLong("cnt"), rs.getBigDecimal("amount")),
+                params.toArray());
+    }
+
+    // ---- Rollup delta writes ----
+    // Rows are created at zero (ON CONFLICT DO NOTHING) and then incremented, so concurrent writers
+    // serialize on the row lock instead of failing on the primary key. Rows are written in primary key order,
+    // so two transactions touching the same rows lock them in the same order and cannot deadlock.
+
+    private static final Comparator<InvoiceRollupRow> INVOICE_ROLLUP_KEY = Comparator
+            .comparing(InvoiceRollupRow::partnerId).thenComparing(InvoiceRollupRow::issueDate)
+            .thenComparing(r -> r.status().name());
+    private static final Comparator<PaymentRollupRow> PAYMENT_ROLLUP_KEY = Comparator
+            .comparing(PaymentRollupRow::partnerId).thenComparing(PaymentRollupRow::paymentDate);
+    private static final Comparator<SettlementRollupRow> SETTLEMENT_ROLLUP_KEY = Comparator
+            .comparing(SettlementRollupRow::partnerId).thenComparing(SettlementRollupRow::issueDate)
+            .thenComparing(SettlementRollupRow::paidDate);
+    private static final Comparator<DelayRollupRow> DELAY_ROLLUP_KEY = Comparator
+            .comparing(DelayRollupRow::partnerId).thenComparing(DelayRollupRow::issueDate)
+            .thenComparing(DelayRollupRow::paidDate).thenComparingInt(DelayRollupRow::delayDays);
+    private static final Comparator<CustomerSketchRow> CUSTOMER_SKETCH_KEY = Comparator
+            .comparing(CustomerSketchRow::partnerId).thenComparing(CustomerSketchRow::issueDate)
+            .thenComparingInt(CustomerSketchRow::register);
+
+    private static <T> List<T> sorted(List<T> rows, Comparator<? super T> key) {
+        List<T> copy = new ArrayList<>(rows);
+        copy.sort(key);
+        return copy;
+    }
+
+    public void addInvoiceDeltas(List<InvoiceRollupRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        rows = sorted(rows, INVOICE_ROLLUP_KEY);
+        jdbc.batchUpdate("INSERT INTO invoice_daily_rollups (partner_id, issue_date, status, invoice_count, total_amount)"
+                + " VALUES (?, ?, ?, 0, 0) ON CONFLICT DO NOTHING", rows, rows.size(), (ps, r) -> {
+            ps.setLong(1, r.partnerId());
+            ps.setDate(2, Date.valueOf(r.issueDate()));
+            ps.setString(3, r.status().name());
+        });
+        jdbc.batchUpdate("UPDATE invoice_daily_rollups SET invoice_count = invoice_count + ?, total_amount = total_amount + ?"
+                + " WHERE partner_id = ? AND issue_date = ? AND status = ?", rows, rows.size(), (ps, r) -> {
+            ps.setLong(1, r.invoiceCount());
+            ps.setBigDecimal(2, r.totalAmount());
+            ps.setLong(3, r.partnerId());
+            ps.setDate(4, Date.valueOf(r.issueDate()));
+            ps.setString(5, r.status().name());
+        });
+    }
+
+    public void addPaymentDeltas(List<PaymentRollupRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        rows = sorted(rows, PAYMENT_ROLLUP_KEY);
+        jdbc.batchUpdate("INSERT INTO payment_daily_rollups (partner_id, payment_date, payment_count, paid_amount)"
+                + " VALUES (?, ?, 0, 0) ON CONFLICT DO NOTHING", rows, rows.size(), (ps, r) -> {
+            ps.setLong(1, r.partnerId());
+            ps.setDate(2, Date.valueOf(r.paymentDate()));
+        });
+        jdbc.batchUpdate("UPDATE payment_daily_rollups SET payment_count = payment_count + ?, paid_amount = paid_amount + ?"
+                + " WHERE partner_id = ? AND payment_date = ?", rows, rows.size(), (ps, r) -> {
+            ps.setLong(1, r.paymentCount());
+            ps.setBigDecimal(2, r.paidAmount());
+            ps.setLong(3, r.partnerId());
+            ps.setDate(4, Date.valueOf(r.paymentDate()));
+        });
+    }
+
+    public void addSettlementDeltas(List<SettlementRollupRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        rows = sorted(rows, SETTLEMENT_ROLLUP_KEY);
+        jdbc.batchUpdate("INSERT INTO settlement_daily_rollups (partner_id, issue_date, paid_date, invoice_count, on_time_count, delay_days_sum)"
+                + " VALUES (?, ?, ?, 0, 0, 0) ON CONFLICT DO NOTHING", rows, rows.size(), (ps, r) -> {
+            ps.setLong(1, r.partnerId());
+            ps.setDate(2, Date.valueOf(r.issueDate()));
+            ps.setDate(3, Date.valueOf(r.paidDate()));
+        });
+        jdbc.batchUpdate("UPDATE settlement_daily_rollups SET invoice_count = invoice_count + ?, on_time_count = on_time_count + ?,"
+                + " delay_days_sum = delay_days_sum + ? WHERE partner_id = ? AND issue_date = ? AND paid_date = ?",
+                rows, rows.size(), (ps, r) -> {
+            ps.setLong(1, r.invoiceCount());
+            ps.setLong(2, r.onTimeCount());
+            ps.setLong(3, r.delayDaysSum());
+            ps.setLong(4, r.partnerId());
+            ps.setDate(5, Date.valueOf(r.issueDate()));
+            ps.setDate(6, Date.valueOf(r.paidDate()));
+        });
+    }
+
+    public void addDelayDeltas(List<DelayRollupRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        rows = sorted(rows, DELAY_ROLLUP_KEY);
+        jdbc.batchUpdate("INSERT INTO settlement_delay_rollups (partner_id, issue_date, paid_date, delay_days, invoice_count)"
+                + " VALUES (?, ?, ?, ?, 0) ON CONFLICT DO NOTHING", rows, rows.size(), (ps, r) -> {
+            ps.setLong(1, r.partnerId());
+            ps.setDate(2, Date.valueOf(r.issueDate()));
+            ps.setDate(3, Date.valueOf(r.paidDate()));
+            ps.setInt(4, r.delayDays());
+        });
+        jdbc.batchUpdate("UPDATE settlement_delay_rollups SET invoice_count = invoice_count + ?"
+                + " WHERE partner_id = ? AND issue_date = ? AND paid_date = ? AND delay_days = ?",
+                rows, rows.size(), (ps, r) -> {
+            ps.setLong(1, r.invoiceCount());
+            ps.setLong(2, r.partnerId());
+            ps.setDate(3, Date.valueOf(r.issueDate()));
+            ps.setDate(4, Date.valueOf(r.paidDate()));
+            ps.setInt(5, r.delayDays());
+        });
+    }
+
+    /**
+     * Raise HyperLogLog registers of customer sketches. Registers only grow, so removed invoices stay counted
+     * until the partner's rollups are rebuilt.
+     */
+    public void raiseCustomerSketch(List<CustomerSketchRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        rows = sorted(rows, CUSTOMER_SKETCH_KEY);
+        jdbc.batchUpdate("INSERT INTO customer_sketch_rollups (partner_id, issue_date, register_index, max_rank)"
+                + " VALUES (?, ?, ?, 0) ON CONFLICT DO NOTHING", rows, rows.size(), (ps, r) -> {
+            ps.setLong(1, r.partnerId());
+            ps.setDate(2, Date.valueOf(r.issueDate()));
+            ps.setInt(3, r.register());
+        });
+        jdbc.batchUpdate("UPDATE customer_sketch_rollups SET max_rank = ?"
+                + " WHERE partner_id = ? AND issue_date = ? AND register_index = ? AND max_rank < ?",
+                rows, rows.size(), (ps, r) -> {
+            ps.setInt(1, r.rank());
+            ps.setLong(2, r.partnerId());
+            ps.setDate(3, Date.valueOf(r.issueDate()));
+            ps.setInt(4, r.register());
+            ps.setInt(5, r.rank());
+        });
+    }
+
+    // ---- Raw reads used to (re)build rollups ----
+
+    /**
+     * COMPLETED payments of one invoice as single-payment rollup rows (partner id is filled in by the caller).
+     */
+    public List<PaymentRollupRow> completedPayments(Long invoiceId, Long partnerId) {
+        return jdbc.query("SELECT payment_date, amount FROM payments WHERE invoice_id = ? AND status = 'COMPLETED'",
+                (rs, n) -> new PaymentRollupRow(partnerId, rs.getDate("payment_date").toLocalDate(), 1, rs.getBigDecimal("amount")),
+                invoiceId);
+    }
+
+    public List<Long> partnerIds() {
+        return jdbc.queryForList("SELECT id FROM partners ORDER BY id", Long.class);
+    }
+
+    /**
+     * Replace one partner's rollups with grouped scans of its current invoices and payments.
+     * Each table is deleted before it is re-aggregated: a concurrent delta write to an existing row blocks on
+     * the delete and is then included by the re-aggregation; one that creates a row in between makes the insert
+     * fail on the primary key, and the caller retries the partner.
+     * Customer sketches are only cleared: their registers are hashed in Java, so the caller refills them from
+     * streamCustomerIssueDays in the same transaction.
+     */
+    public void rebuildRollups(Long partnerId) {
+        jdbc.update("DELETE FROM invoice_daily_rollups WHERE partner_id = ?", partnerId);
+        jdbc.update("""
+                INSERT INTO invoice_daily_rollups (partner_id, issue_date, status, invoice_count, total_amount)
+                SELECT i.partner_id, i.issue_date, i.status, COUNT(*), SUM(i.total_amount)
+                FROM invoices i WHERE i.partner_id = ? AND i.is_deleted = false
+                GROUP BY i.partner_id, i.issue_date, i.status""", partnerId);
+        jdbc.update("DELETE FROM payment_daily_rollups WHERE partner_id = ?", partnerId);
+        jdbc.update("""
+                INSERT INTO payment_daily_rollups (partner_id, payment_date, payment_count, paid_amount)
+                SELECT i.partner_id, p.payment_date, COUNT(*), SUM(p.amount)
+                FROM payments p JOIN invoices i ON i.id = p.invoice_id
+                WHERE i.partner_id = ? AND i.is_deleted = false AND p.status = 'COMPLETED'
+                GROUP BY i.partner_id, p.payment_date""", partnerId);
+        jdbc.update("DELETE FROM settlement_daily_rollups WHERE partner_id = ?", partnerId);
+        jdbc.update("""
+                INSERT INTO settlement_daily_rollups (partner_id, issue_date, paid_date, invoice_count, on_time_count, delay_days_sum)
+                SELECT i.partner_id, i.issue_date, lp.paid_date, COUNT(*),
+                       SUM(CASE WHEN lp.paid_date <= i.due_date THEN 1 ELSE 0 END),
+                       SUM(CASE WHEN lp.paid_date > i.due_date THEN %s ELSE 0 END)
+                FROM invoices i
+                JOIN (SELECT p.invoice_id, MAX(p.payment_date) AS paid_date
+                      FROM payments p JOIN invoices pi ON pi.id = p.invoice_id
+                      WHERE pi.partner_id = ? AND p.status = 'COMPLETED' GROUP BY p.invoice_id) lp ON lp.invoice_id = i.id
+                WHERE i.partner_id = ? AND i.is_deleted = false AND i.status = 'PAID' AND i.due_date IS NOT NULL
+                GROUP BY i.partner_id, i.issue_date, lp.paid_date""".formatted(daysBetween("i.due_date", "lp.paid_date")),
+                partnerId, partnerId);
+        jdbc.update("DELETE FROM settlement_delay_rollups WHERE partner_id = ?", partnerId);
+        jdbc.update("""
+                INSERT INTO settlement_delay_rollups (partner_id, issue_date, paid_date, delay_days, invoice_count)
+                SELECT s.partner_id, s.issue_date, s.paid_date, s.delay_days, COUNT(*)
+                FROM (SELECT i.partner_id, i.issue_date, lp.paid_date,
+                             CASE WHEN lp.paid_date > i.due_date THEN %s ELSE 0 END AS delay_days
+                      FROM invoices i
+                      JOIN (SELECT p.invoice_id, MAX(p.payment_date) AS paid_date
+                            FROM payments p JOIN invoices pi ON pi.id = p.invoice_id
+                            WHERE pi.partner_id = ? AND p.status = 'COMPLETED' GROUP BY p.invoice_id) lp ON lp.invoice_id = i.id
+                      WHERE i.partner_id = ? AND i.is_deleted = false AND i.status = 'PAID' AND i.due_date IS NOT NULL) s
+                GROUP BY s.partner_id, s.issue_date, s.paid_date, s.delay_days""".formatted(daysBetween("i.due_date", "lp.paid_date")),
+                partnerId, partnerId);
+        jdbc.update("DELETE FROM customer_sketch_rollups WHERE partner_id = ?", partnerId);
+    }
+
+    /**
+     * Distinct (issue date, customer id) pairs of one partner's non-deleted invoices, for rebuilding its customer
+     * sketches.
+     */
+    public void streamCustomerIssueDays(Long partnerId, RowCallbackHandler handler) {
+        jdbc.query("SELECT DISTINCT issue_date, customer_id FROM invoices WHERE partner_id = ? AND is_deleted = false",
+                handler, partnerId);
+    }
+
+    public void insertCustomerSketch(List<CustomerSketchRow> rows) {
+        jdbc.batchUpdate("INSERT INTO customer_sketch_rollups (partner_id, issue_date, register_index, max_rank)"
+                + " VALUES (?, ?, ?, ?)", rows, 500, (ps, r) -> {
+            ps.setLong(1, r.partnerId());
+            ps.setDate(2, Date.valueOf(r.issueDate()));
+            ps.setInt(3, r.register());
+            ps.setInt(4, r.rank());
+        });
+    }
+
+    // ---- Raw reads used to load the columnar engine ----
+
+    /**
+     * Stream a partner's non-deleted invoices as (id, total_amount, issue_date, due_date, status, customer_id) rows.
+     */
+    public void streamInvoices(Long partnerId, RowCallbackHandler handler) {
+        jdbc.query("SELECT i.id, i.total_amount, i.issue_date, i.due_date, i.status, i.customer_id FROM invoices i"
+                + " WHERE i.partner_id = ? AND i.is_deleted = false", handler, partnerId);
+    }
+
+    /**
+     * Stream the COMPLETED payments of a partner's non-deleted invoices as (invoice_id, payment_date, amount) rows.
+     */
+    public void streamCompletedPayments(Long partnerId, RowCallbackHandler handler) {
+        jdbc.query("SELECT p.invoice_id, p.payment_date, p.amount FROM payments p JOIN invoices i ON i.id = p.invoice_id"
+                + " WHERE i.partner_id = ? AND i.is_deleted = false AND p.status = 'COMPLETED'", handler, partnerId);
+    }
+
+    private String daysBetween(String from, String to) {
+        String product = jdbc.execute((ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+        // PostgreSQL date subtraction yields an integer day count; H2 yields an interval
+        return "PostgreSQL".equalsIgnoreCase(product)
+                ? "(" + to + " - " + from + ")"
+                : "DATEDIFF(DAY, " + from + ", " + to + ")";
+    }
+
+    private static String invoiceWhere(InvoiceFilter f, List<Object> params) {
+        String where = dateWhere("r.issue_date", f.partners(), f.issueFrom(), f.issueTo(), params);
+        if (f.status() != null) {
+            params.add(f.status().name());
+            return where + " AND r.status = ?";
+        }
+        return where;
+    }
+
+    private static String dateWhere(String column, PartnerRange partners, LocalDate from, LocalDate to, List<Object> params) {
+        StringBuilder where = new StringBuilder(partnerWhere(partners, params));
+        if (from != null) {
+            where.append(" AND ").append(column).append(" >= ?");
+            params.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            where.append(" AND ").append(column).append(" <= ?");
+            params.add(Date.valueOf(to));
+        }
+        return where.toString();
+    }
+
+    private static String partnerWhere(PartnerRange partners, List<Object> params) {
+        StringBuilder where = new StringBuilder("1 = 1");
+        if (partners.fromId() != null && partners.fromId().equals(partners.toId())) {
+            where.append(" AND r.partner_id = ?");
+            params.add(partners.fromId());
+        } else {
+            if (partners.fromId() != null) {
+                where.append(" AND r.partner_id >= ?");
+                params.add(partners.fromId());
+            }
+            if (partners.toId() != null) {
+                where.append(" AND r.partner_id <= ?");
+                params.add(partners.toId());
+            }
+        }
+        return where.toString();
+    }
+
+    /** Invoices of a partner id range, optional status and issue date range. */
+    public record InvoiceFilter(PartnerRange partners, LocalDate issueFrom, LocalDate issueTo, InvoiceStatus status) {}
+
+    /**
+     * Inclusive partner id range; a null bound is open. Rollup keys lead with partner_id, so a range reads one
+     * contiguous slice of each table's primary key.
+     */
+    public record PartnerRange(Long fromId, Long toId) {
+        public static PartnerRange all() {
+            return new PartnerRange(null, null);
+        }
+
+        /** The single partner, or all partners when partnerId is null. */
+        public static PartnerRange of(Long partnerId) {
+            return new PartnerRange(partnerId, partnerId);
+        }
+    }
+
+    public record StatusTotal(InvoiceStatus status, long count, BigDecimal amount) {}
+
+    public record DayTotal(LocalDate date, long count, BigDecimal amount) {}
+
+    public record DayStatusTotal(LocalDate date, InvoiceStatus status, long count, BigDecimal amount) {}
+
+    public record DayCount(LocalDate date, long count) {}
+
+    public record AgingRow(Long partnerId, Long customerId, String customerName, int bucket, long count,
+                           BigDecimal amount) {}
+
+    public record SettlementTotals(long invoiceCount, long onTimeCount, long delayDaysSum) {}
+
+    public record InvoiceRollupRow(Long partnerId, LocalDate issueDate, InvoiceStatus status,
+                                   long invoiceCount, BigDecimal totalAmount) {}
+
+    public record PaymentRollupRow(Long partnerId, LocalDate paymentDate, long paymentCount, BigDecimal paidAmount) {}
+
+    public record DelayCount(int delayDays, long count) {}
+
+    public record SketchRegister(int register, int rank) {}
+
+    public record DelayRollupRow(Long partnerId, LocalDate issueDate, LocalDate paidDate, int delayDays,
+                                 long invoiceCount) {}
+
+    public record CustomerSketchRow(Long partnerId, LocalDate issueDate, int register, int rank) {}
+
+    public record SettlementRollupRow(Long partnerId, LocalDate issueDate, LocalDate paidDate,
+                                      long invoiceCount, long onTimeCount, long delayDaysSum) {}
+}
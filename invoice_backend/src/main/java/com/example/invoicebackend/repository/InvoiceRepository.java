@@ -4,14 +4,31 @@ import com.example.invoicebackend.model.Invoice;
 import com.example.invoicebackend.model.Partner;
 import com.example.invoicebackend.model.enums.InvoiceStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
+public interface InvoiceRepository extends JpaRepository<Invoice, Long>, JpaSpecificationExecutor<Invoice>, InvoiceViewRepository {
     List<Invoice> findByPartnerAndDeletedFalse(Partner partner);
     Optional<Invoice> findByPartnerAndInvoiceNumber(Partner partner, String invoiceNumber);
+    boolean existsByPartnerAndInvoiceNumber(Partner partner, String invoiceNumber);
+    long countByPartner(Partner partner);
+
+    @Query("select i.version from Invoice i where i.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * (partnerId, invoiceNumber) pairs already taken among the given numbers, in one IN query.
+     * The result may include pairs from other partners of the list; callers match both columns.
+     */
+    @Query("select i.partner.id, i.invoiceNumber from Invoice i where i.partner.id in :partnerIds and i.invoiceNumber in :numbers")
+    List<Object[]> findTakenNumbers(@Param("partnerIds") Collection<Long> partnerIds, @Param("numbers") Collection<String> numbers);
+
     List<Invoice> findByPartnerAndStatusAndDeletedFalse(Partner partner, InvoiceStatus status);
     List<Invoice> findByPartnerAndDueDateBeforeAndDeletedFalse(Partner partner, LocalDate dueDate);
 }
@@ -0,0 +1,7 @@
+package com.example.invoicebackend.repository;
+
+import com.example.invoicebackend.model.InvoiceSearchDocument;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface InvoiceSearchDocumentRepository extends JpaRepository<InvoiceSearchDocument, Long> {
+}
@@ -0,0 +1,118 @@
+package com.example.invoicebackend.repository;
+
+import com.example.invoicebackend.model.Invoice;
+import com.example.invoicebackend.model.enums.InvoiceStatus;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * Composable JPA Specifications for invoice list queries.
+ * Each factory returns null when its filter is absent so callers can chain with Specification.where/and.
+ */
+public final class InvoiceSpecifications {
+
+    private InvoiceSpecifications() {}
+
+    // PUBLIC_INTERFACE
+    public static Specification<Invoice> ofPartner(Long partnerId) {
+        /** Restrict to a partner's non-deleted invoices (matches the partner_id, is_deleted index prefix). */
+        return (root, query, cb) -> cb.and(
+                cb.equal(root.get("partner").get("id"), partnerId),
+                cb.isFalse(root.get("deleted")));
+    }
+
+    // PUBLIC_INTERFACE
+    public static Specification<Invoice> hasStatus(InvoiceStatus status) {
+        /** Filter by status if provided. */
+        return status == null ? null : (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    // PUBLIC_INTERFACE
+    public static Specification<Invoice> statusIn(Collection<InvoiceStatus> statuses) {
+        /** Filter by any of the given statuses if a non-empty set is provided. */
+        return statuses == null || statuses.isEmpty() ? null : (root, query, cb) -> root.get("status").in(statuses);
+    }
+
+    // PUBLIC_INTERFACE
+    public static Specification<Invoice> ofCustomer(Long customerId) {
+        /** Filter by customer id if provided. */
+        return customerId == null ? null : (root, query, cb) -> cb.equal(root.get("customer").get("id"), customerId);
+    }
+
+    // PUBLIC_INTERFACE
+    public static Specification<Invoice> issuedFrom(LocalDate from) {
+        /** Issue date lower bound (inclusive) if provided. */
+        return from == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("issueDate"), from);
+    }
+
+    // PUBLIC_INTERFACE
+    public static Specification<Invoice> issuedTo(LocalDate to) {
+        /** Issue date upper bound (inclusive) if provided. */
+        return to == null ? null : (root, query, cb) -> cb.lessThanOrEqualTo(root.get("issueDate"), to);
+    }
+
+    // PUBLIC_INTERFACE
+    public static Specification<Invoice> dueBefore(LocalDate date) {
+        /** Due date strictly before the given date if provided. */
+        return date == null ? null : (root, query, cb) -> cb.lessThan(root.get("dueDate"), date);
+    }
+
+    // PUBLIC_INTERFACE
+    public static Specification<Invoice> dueFromOrNone(LocalDate from) {
+        /** Due date on or after the given date, or no due date at all, if provided. */
+        return from == null ? null : (root, query, cb) -> cb.or(
+                cb.isNull(root.get("dueDate")),
+                cb.greaterThanOrEqualTo(root.get("dueDate"), from));
+    }
+
+    // PUBLIC_INTERFACE
+    public static Specification<Invoice> dueFrom(LocalDate from) {
+        /** Due date lower bound (inclusive) if provided. */
+        return from == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("dueDate"), from);
+    }
+
+    // PUBLIC_INTERFACE
+    public static Specification<Invoice> dueTo(LocalDate to) {
+        /** Due date upper bound (inclusive) if provided. */
+        return to == null ? null : (root, query, cb) -> cb.lessThanOrEqualTo(root.get("dueDate"), to);
+    }
+
+    // PUBLIC_INTERFACE
+    public static Specification<Invoice> hasCurrency(String currency) {
+        /** Filter by currency code if provided. */
+        return currency == null || currency.isBlank() ? null : (root, query, cb) -> cb.equal(root.get("currency"), currency.trim());
+    }
+
+    // PUBLIC_INTERFACE
+    public static Specification<Invoice> totalAtLeast(BigDecimal min) {
+        /** Total amount lower bound (inclusive) if provided. */
+        return min == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("totalAmount"), min);
+    }
+
+    // PUBLIC_INTERFACE
+    public static Specification<Invoice> totalAtMost(BigDecimal max) {
+        /** Total amount upper bound (inclusive) if provided. */
+        return max == null ? null : (root, query, cb) -> cb.lessThanOrEqualTo(root.get("totalAmount"), max);
+    }
+
+    // PUBLIC_INTERFACE
+    public static Specification<Invoice> seekAfter(LocalDate issueDate, Long id) {
+        /**
+         * Keyset predicate for (issue_date DESC, id DESC) ordering: rows strictly after the given position.
+         * Expanded to an OR so it stays portable across H2 and Postgres. The redundant issue_date bound ANDed
+         * with it is what lets the (partner_id, is_deleted, issue_date, id) index scan start at the cursor
+         * instead of filtering its way down from the newest row.
+         */
+        if (issueDate == null || id == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.and(
+                cb.lessThanOrEqualTo(root.get("issueDate"), issueDate),
+                cb.or(
+                        cb.lessThan(root.get("issueDate"), issueDate),
+                        cb.and(cb.equal(root.get("issueDate"), issueDate), cb.lessThan(root.get("id"), id))));
+    }
+}
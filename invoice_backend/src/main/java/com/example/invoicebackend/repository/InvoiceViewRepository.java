@@ -0,0 +1,27 @@
+package com.example.invoicebackend.repository;
+
+import com.example.invoicebackend.model.Invoice;
+import com.example.invoicebackend.repository.projection.InvoiceView;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository fragment returning InvoiceView projections for Specification-based queries.
+ */
+public interface InvoiceViewRepository {
+
+    Optional<InvoiceView> findViewById(Long id);
+
+    Page<InvoiceView> findViews(Specification<Invoice> spec, Pageable pageable);
+
+    List<InvoiceView> findViews(Specification<Invoice> spec, Sort sort);
+
+    List<InvoiceView> findViews(Specification<Invoice> spec, Sort sort, int limit);
+
+    List<InvoiceView> findViews(Specification<Invoice> spec, Sort sort, int offset, int limit);
+}
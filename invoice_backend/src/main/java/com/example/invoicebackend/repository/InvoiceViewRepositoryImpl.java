@@ -0,0 +1,107 @@
+package com.example.invoicebackend.repository;
+
+import com.example.invoicebackend.model.Invoice;
+import com.example.invoicebackend.repository.projection.InvoiceView;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CompoundSelection;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Criteria-based implementation of InvoiceViewRepository using constructor-expression projections.
+ */
+class InvoiceViewRepositoryImpl implements InvoiceViewRepository {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public Optional<InvoiceView> findViewById(Long id) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<InvoiceView> cq = cb.createQuery(InvoiceView.class);
+        Root<Invoice> root = cq.from(Invoice.class);
+        cq.select(projection(cb, root)).where(cb.equal(root.get("id"), id));
+        return em.createQuery(cq).getResultStream().findFirst();
+    }
+
+    @Override
+    public Page<InvoiceView> findViews(Specification<Invoice> spec, Pageable pageable) {
+        TypedQuery<InvoiceView> query = viewQuery(spec, pageable.getSort());
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        // Count only runs when the page window alone cannot determine the total
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable, () -> count(spec));
+    }
+
+    @Override
+    public List<InvoiceView> findViews(Specification<Invoice> spec, Sort sort) {
+        return viewQuery(spec, sort).getResultList();
+    }
+
+    @Override
+    public List<InvoiceView> findViews(Specification<Invoice> spec, Sort sort, int limit) {
+        return viewQuery(spec, sort).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public List<InvoiceView> findViews(Specification<Invoice> spec, Sort sort, int offset, int limit) {
+        return viewQuery(spec, sort).setFirstResult(offset).setMaxResults(limit).getResultList();
+    }
+
+    private TypedQuery<InvoiceView> viewQuery(Specification<Invoice> spec, Sort sort) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<InvoiceView> cq = cb.createQuery(InvoiceView.class);
+        Root<Invoice> root = cq.from(Invoice.class);
+        cq.select(projection(cb, root));
+        Predicate predicate = spec != null ? spec.toPredicate(root, cq, cb) : null;
+        if (predicate != null) {
+            cq.where(predicate);
+        }
+        if (sort != null && sort.isSorted()) {
+            cq.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+        return em.createQuery(cq);
+    }
+
+    private long count(Specification<Invoice> spec) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+        Root<Invoice> root = cq.from(Invoice.class);
+        cq.select(cb.count(root));
+        Predicate predicate = spec != null ? spec.toPredicate(root, cq, cb) : null;
+        if (predicate != null) {
+            cq.where(predicate);
+        }
+        return em.createQuery(cq).getSingleResult();
+    }
+
+    private static CompoundSelection<InvoiceView> projection(CriteriaBuilder cb, Root<Invoice> root) {
+        return cb.construct(InvoiceView.class,
+                root.get("id"),
+                root.get("invoiceNumber"),
+                root.get("currency"),
+                root.get("issueDate"),
+                root.get("dueDate"),
+                root.get("status"),
+                root.get("subtotalAmount"),
+                root.get("taxAmount"),
+                root.get("discountAmount"),
+                root.get("totalAmount"),
+                root.get("version"));
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.invoicebackend.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * SQL access to stored webhook deliveries: PENDING rows wait for their next attempt, DEAD rows exhausted their
+ * attempts and stay until replayed, BATCHED rows are events collected for a batched subscription.
+ */
+@Repository
+public class WebhookDeliveryRepository {
+
+    public static final String PENDING = "PENDING";
+    public static final String DEAD = "DEAD";
+    public static final String BATCHED = "BATCHED";
+
+    private static final String COLUMNS = "id, subscription_id, partner_id, invoice_id, event_type, payload, status,"
+            + " attempt_count, next_attempt_at, last_status, last_error, deferred_since, claimed_by, created_at,"
+            + " updated_at";
+
+    private static final RowMapper<Delivery> ROW = WebhookDeliveryRepository::delivery;
+
+    private final JdbcTemplate jdbc;
+
+    public WebhookDeliveryRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public void insert(List<NewDelivery> deliveries) {
+        if (deliveries.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbc.batchUpdate("INSERT INTO webhook_deliveries (subscription_id, partner_id, invoice_id, event_type, payload,"
+                + " status, attempt_count, next_attempt_at, last_status, last_error, deferred_since, created_at,"
+                + " updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                deliveries, deliveries.size(), (ps, d) -> {
+            ps.setLong(1, d.subscriptionId());
+            ps.setLong(2, d.partnerId());
+            ps.setObject(3, d.invoiceId(), Types.BIGINT);
+            ps.setString(4, d.eventType());
+            ps.setString(5, d.payload());
+            ps.setString(6, d.status());
+            ps.setInt(7, d.attemptCount());
+            ps.setTimestamp(8, Timestamp.from(d.nextAttemptAt()));
+            ps.setObject(9, d.lastStatus(), Types.INTEGER);
+            ps.setString(10, d.lastError());
+            ps.setTimestamp(11, d.deferredSince() != null ? Timestamp.from(d.deferredSince()) : null);
+            ps.setTimestamp(12, now);
+            ps.setTimestamp(13, now);
+        });
+    }
+
+    /**
+     * Claim up to limit PENDING deliveries due at now, oldest first, by moving their next attempt to leaseUntil.
+     * A retrier that stops mid-batch leaves its rows to become due again at leaseUntil. Concurrent retriers never
+     * claim the same row: the due condition is re-checked on the locked row.
+     */
+    public List<Delivery> claimDue(Instant now, Instant leaseUntil, int limit) {
+        String token = UUID.randomUUID().toString();
+        Timestamp due = Timestamp.from(now);
+        int claimed = jdbc.update("UPDATE webhook_deliveries SET claimed_by = ?, next_attempt_at = ?"
+                + " WHERE status = 'PENDING' AND next_attempt_at <= ? AND id IN (SELECT id FROM webhook_deliveries"
+                + " WHERE status = 'PENDING' AND next_attempt_at <= ? ORDER BY next_attempt_at"
+                + " FETCH FIRST %d ROWS ONLY)".formatted(limit),
+                token, Timestamp.from(leaseUntil), due, due);
+        if (claimed == 0) {
+            return List.of();
+        }
+        return jdbc.query("SELECT " + COLUMNS + " FROM webhook_deliveries WHERE claimed_by = ? ORDER BY id",
+                ROW, token);
+    }
+
+    /**
+     * Unclaimed BATCHED events per subscription: how many, and when the oldest was collected.
+     */
+    public List<BatchedGroup> batchedGroups(Instant now) {
+        return jdbc.query("SELECT subscription_id, COUNT(*) AS events, MIN(created_at) AS oldest"
+                + " FROM webhook_deliveries WHERE status = 'BATCHED' AND next_attempt_at <= ? GROUP BY subscription_id",
+                (rs, n) -> new BatchedGroup(rs.getLong("subscription_id"), rs.getLong("events"),
+                        rs.getTimestamp("oldest").toInstant()), Timestamp.from(now));
+    }
+
+    /**
+     * Claim up to limit of the oldest unclaimed BATCHED events of a subscription, in id order, the same way as
+     * claimDue: a flusher that stops mid-batch leaves them to be claimed again at leaseUntil.
+     */
+    public List<Delivery> claimBatched(Long subscriptionId, Instant now, Instant leaseUntil, int limit) {
+        String token = UUID.randomUUID().toString();
+        Timestamp due = Timestamp.from(now);
+        int claimed = jdbc.update("UPDATE webhook_deliveries SET claimed_by = ?, next_attempt_at = ?"
+                + " WHERE status = 'BATCHED' AND next_attempt_at <= ? AND id IN (SELECT id FROM webhook_deliveries"
+                + " WHERE status = 'BATCHED' AND subscription_id = ? AND next_attempt_at <= ? ORDER BY id"
+                + " FETCH FIRST %d ROWS ONLY)".formatted(limit),
+                token, Timestamp.from(leaseUntil), due, subscriptionId, due);
+        if (claimed == 0) {
+            return List.of();
+        }
+        return jdbc.query("SELECT " + COLUMNS + " FROM webhook_deliveries WHERE claimed_by = ? ORDER BY id",
+                ROW, token);
+    }
+
+    /**
+     * Move the lease of the deliveries still claimed under token to leaseUntil, so they are not taken over while
+     * their delivery is in progress. Returns the number of deliveries still held.
+     */
+    public int renewClaim(String token, Instant leaseUntil) {
+        return jdbc.update("UPDATE webhook_deliveries SET next_attempt_at = ? WHERE claimed_by = ?",
+                Timestamp.from(leaseUntil), token);
+    }
+
+    /**
+     * Record a failed attempt of claimed deliveries: their new attempt count, status and next attempt time. Rows
+     * no longer held under the claim of the update were taken over by another poller after the lease expired and
+     * are left to it.
+     */
+    public void recordAttempts(List<AttemptUpdate> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbc.batchUpdate("UPDATE webhook_deliveries SET status = ?, attempt_count = ?, next_attempt_at = ?,"
+                + " last_status = ?, last_error = ?, deferred_since = ?, claimed_by = NULL, updated_at = ?"
+                + " WHERE id = ? AND claimed_by = ?",
+                updates, updates.size(), (ps, u) -> {
+            ps.setString(1, u.status());
+            ps.setInt(2, u.attemptCount());
+            ps.setTimestamp(3, Timestamp.from(u.nextAttemptAt()));
+            ps.setObject(4, u.lastStatus(), Types.INTEGER);
+            ps.setString(5, u.lastError());
+            ps.setTimestamp(6, u.deferredSince() != null ? Timestamp.from(u.deferredSince()) : null);
+            ps.setTimestamp(7, now);
+            ps.setLong(8, u.id());
+            ps.setString(9, u.claimedBy());
+        });
+    }
+
+    /**
+     * Delete delivered deliveries that are still held under the claim they were read with.
+     */
+    public void delete(List<Delivery> claimed) {
+        if (claimed.isEmpty()) {
+            return;
+        }
+        jdbc.batchUpdate("DELETE FROM webhook_deliveries WHERE id = ? AND claimed_by = ?", claimed, claimed.size(),
+                (ps, d) -> {
+            ps.setLong(1, d.id());
+            ps.setString(2, d.claimedBy());
+        });
+    }
+
+    /**
+     * DEAD deliveries, newest first, optionally of one partner.
+     */
+    public List<Delivery> findDead(Long partnerId, int offset, int limit) {
+        String sql = "SELECT " + COLUMNS + " FROM webhook_deliveries WHERE status = 'DEAD'"
+                + (partnerId != null ? " AND partner_id = ?" : "")
+                + " ORDER BY id DESC OFFSET %d ROWS FETCH NEXT %d ROWS ONLY".formatted(offset, limit);
+        return partnerId != null ? jdbc.query(sql, ROW, partnerId) : jdbc.query(sql, ROW);
+    }
+
+    public long countDead(Long partnerId) {
+        Long count = partnerId != null
+                ? jdbc.queryForObject("SELECT COUNT(*) FROM webhook_deliveries WHERE status = 'DEAD' AND partner_id = ?",
+                        Long.class, partnerId)
+                : jdbc.queryForObject("SELECT COUNT(*) FROM webhook_deliveries WHERE status = 'DEAD'", Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Make a DEAD delivery PENDING again with a fresh attempt and deferral budget, due now. Returns false when
+     * there is no DEAD delivery with that id.
+     */
+    public boolean replay(Long id) {
+        Timestamp now = Timestamp.from(Instant.now());
+        return jdbc.update("UPDATE webhook_deliveries SET status = 'PENDING', attempt_count = 0, next_attempt_at = ?,"
+                + " deferred_since = NULL, claimed_by = NULL, updated_at = ? WHERE id = ? AND status = 'DEAD'",
+                now, now, id) == 1;
+    }
+
+    private static Delivery delivery(ResultSet rs, int n) throws SQLException {
+        return new Delivery(rs.getLong("id"), rs.getLong("subscription_id"), rs.getLong("partner_id"),
+                rs.getObject("invoice_id", Long.class), rs.getString("event_type"), rs.getString("payload"), rs.getString("status"),
+                rs.getInt("attempt_count"), rs.getTimestamp("next_attempt_at").toInstant(),
+                rs.getObject("last_status", Integer.class), rs.getString("last_error"),
+                instant(rs.getTimestamp("deferred_since")), rs.getString("claimed_by"),
+                rs.getTimestamp("created_at").toInstant(), rs.getTimestamp("updated_at").toInstant());
+    }
+
+    private static Instant instant(Timestamp ts) {
+        return ts != null ? ts.toInstant() : null;
+    }
+
+    public record NewDelivery(Long subscriptionId, Long partnerId, Long invoiceId, String eventType, String payload,
+                              String status, int attemptCount, Instant nextAttemptAt, Integer lastStatus,
+                              String lastError, Instant deferredSince) {}
+
+    public record AttemptUpdate(Long id, String claimedBy, String status, int attemptCount, Instant nextAttemptAt,
+                                Integer lastStatus, String lastError, Instant deferredSince) {}
+
+    public record Delivery(Long id, Long subscriptionId, Long partnerId, Long invoiceId, String eventType,
+                           String payload, String status, int attemptCount, Instant nextAttemptAt,
+                           Integer lastStatus, String lastError, Instant deferredSince, String claimedBy,
+                           Instant createdAt, Instant updatedAt) {}
+
+    public record BatchedGroup(Long subscriptionId, long events, Instant oldestAt) {}
+}
@@ -0,0 +1,84 @@
+package com.example.invoicebackend.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * SQL access to the webhook outbox: events are inserted in the transaction of the invoice write that caused
+ * them and later claimed, delivered and deleted by the relay.
+ */
+@Repository
+public class WebhookOutboxRepository {
+
+    private final JdbcTemplate jdbc;
+
+    public WebhookOutboxRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public void insert(List<NewOutboxEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbc.batchUpdate("INSERT INTO webhook_outbox (partner_id, invoice_id, event_type, payload, created_at)"
+                + " VALUES (?, ?, ?, ?, ?)", events, events.size(), (ps, e) -> {
+            ps.setLong(1, e.partnerId());
+            ps.setLong(2, e.invoiceId());
+            ps.setString(3, e.eventType());
+            ps.setString(4, e.payload());
+            ps.setTimestamp(5, now);
+        });
+    }
+
+    /**
+     * Claim up to limit of the oldest events that are unclaimed or whose claim is older than staleBefore (a relay
+     * that stopped mid-delivery) under the caller's unique token, and return them in id order. Concurrent relays
+     * never claim the same event: the claim condition is re-checked on the locked row.
+     */
+    public List<OutboxEvent> claim(String token, Instant staleBefore, int limit) {
+        Timestamp stale = Timestamp.from(staleBefore);
+        int claimed = jdbc.update("UPDATE webhook_outbox SET claimed_by = ?, claimed_at = ?"
+                + " WHERE (claimed_at IS NULL OR claimed_at < ?) AND id IN (SELECT id FROM webhook_outbox"
+                + " WHERE claimed_at IS NULL OR claimed_at < ? ORDER BY id FETCH FIRST %d ROWS ONLY)".formatted(limit),
+                token, Timestamp.from(Instant.now()), stale, stale);
+        if (claimed == 0) {
+            return List.of();
+        }
+        return jdbc.query("SELECT id, partner_id, invoice_id, event_type, payload, created_at FROM webhook_outbox"
+                + " WHERE claimed_by = ? ORDER BY id", (rs, n) -> new OutboxEvent(rs.getLong("id"),
+                rs.getLong("partner_id"), rs.getLong("invoice_id"), rs.getString("event_type"),
+                rs.getString("payload"), rs.getTimestamp("created_at").toInstant()), token);
+    }
+
+    /**
+     * Refresh the claim time of the events still claimed under token, so they are not taken over while their
+     * delivery is in progress. Returns the number of events still held.
+     */
+    public int renewClaim(String token) {
+        return jdbc.update("UPDATE webhook_outbox SET claimed_at = ? WHERE claimed_by = ?",
+                Timestamp.from(Instant.now()), token);
+    }
+
+    /**
+     * Delete delivered events that are still claimed under token; events taken over by another relay are left to it.
+     */
+    public void delete(List<Long> ids, String token) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbc.batchUpdate("DELETE FROM webhook_outbox WHERE id = ? AND claimed_by = ?", ids, ids.size(), (ps, id) -> {
+            ps.setLong(1, id);
+            ps.setString(2, token);
+        });
+    }
+
+    public record NewOutboxEvent(Long partnerId, Long invoiceId, String eventType, String payload) {}
+
+    public record OutboxEvent(Long id, Long partnerId, Long invoiceId, String eventType, String payload,
+                              Instant createdAt) {}
+}
@@ -0,0 +1,24 @@
+package com.example.invoicebackend.repository.projection;
+
+import com.example.invoicebackend.model.enums.InvoiceStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Read-only projection of the invoice columns exposed by InvoiceResponse.
+ * Built directly from SQL via a constructor expression, so no managed entity, proxy or
+ * dirty-checking snapshot is created on read paths.
+ */
+public record InvoiceView(Long id,
+                          String invoiceNumber,
+                          String currency,
+                          LocalDate issueDate,
+                          LocalDate dueDate,
+                          InvoiceStatus status,
+                          BigDecimal subtotalAmount,
+                          BigDecimal taxAmount,
+                          BigDecimal discountAmount,
+                          BigDecimal totalAmount,
+                          long version) {
+}
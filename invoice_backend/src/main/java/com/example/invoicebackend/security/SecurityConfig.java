@@ -74,6 +74,8 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.GET, "/api/demo/public").permitAll()
                 // Incoming webhooks should be reachable without JWT; protect via signature verification at controller level
                 .requestMatchers(HttpMethod.POST, "/api/webhooks/**").permitAll()
+                // Webhook target URLs and their circuit state are partner configuration, not for every user
+                .requestMatchers("/actuator/webhookcircuits", "/actuator/webhookcircuits/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
             .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
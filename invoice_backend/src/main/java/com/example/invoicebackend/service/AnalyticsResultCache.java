@@ -0,0 +1,99 @@
+package com.example.invoicebackend.service;
+
+import com.example.invoicebackend.model.enums.InvoiceStatus;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of AnalyticsService results keyed by (partnerId, from, to, status, metric).
+ * Concurrent misses for the same key share one computation, which runs on the first caller's thread.
+ * Writes invalidate by generation: every key carries the current generation of its partner (or of all partners for
+ * cross-partner results), and a committed invoice/payment change bumps the generations of its partner and of all
+ * partners, so older entries are never read again and age out. A computation that raced a write is stored under
+ * the old generation and is therefore never served.
+ * Entries also expire after a TTL, which bounds staleness across instances since invalidation is local.
+ * Statistics are published as cache.* metrics with tag cache=analytics. Cached results are shared; callers must
+ * not modify them.
+ */
+@Component
+public class AnalyticsResultCache {
+
+    private final AsyncCache<Key, Object> cache;
+    private final ConcurrentHashMap<Long, AtomicLong> partnerGenerations = new ConcurrentHashMap<>();
+    private final AtomicLong allPartnersGeneration = new AtomicLong();
+
+    public AnalyticsResultCache(MeterRegistry meterRegistry,
+                                @Value("${app.analytics.cache.max-size:1000}") long maxSize,
+                                @Value("${app.analytics.cache.ttl:PT1M}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "analytics");
+    }
+
+    // PUBLIC_INTERFACE
+    @SuppressWarnings("unchecked")
+    public <T> T get(Long partnerId, LocalDate from, LocalDate to, InvoiceStatus status, String metric,
+                     Supplier<T> loader) {
+        /**
+         * Cached result, or compute it once: the first caller runs the loader, concurrent callers for the same key
+         * wait for its result. A failed computation is not cached and its exception is rethrown to every waiter.
+         */
+        Key key = new Key(partnerId, from, to, status, metric, generation(partnerId));
+        CompletableFuture<Object> created = new CompletableFuture<>();
+        CompletableFuture<Object> result = cache.get(key, (k, executor) -> created);
+        if (result == created) {
+            try {
+                created.complete(loader.get());
+            } catch (RuntimeException | Error e) {
+                created.completeExceptionally(e);
+            }
+        }
+        try {
+            return (T) result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error err) {
+                throw err;
+            }
+            throw e;
+        }
+    }
+
+    // PUBLIC_INTERFACE
+    public void invalidatePartners(Collection<Long> partnerIds) {
+        /** Stop serving results of the given partners and all cross-partner results; call after the write commits. */
+        for (Long partnerId : partnerIds) {
+            partnerGenerations.computeIfAbsent(partnerId, id -> new AtomicLong()).incrementAndGet();
+        }
+        allPartnersGeneration.incrementAndGet();
+    }
+
+    private long generation(Long partnerId) {
+        if (partnerId == null) {
+            return allPartnersGeneration.get();
+        }
+        AtomicLong g = partnerGenerations.get(partnerId);
+        return g == null ? 0 : g.get();
+    }
+
+    private record Key(Long partnerId, LocalDate from, LocalDate to, InvoiceStatus status, String metric,
+                       long generation) {}
+}
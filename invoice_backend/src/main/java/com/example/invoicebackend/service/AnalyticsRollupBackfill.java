@@ -0,0 +1,53 @@
+package com.example.invoicebackend.service;
+
+import com.example.invoicebackend.repository.AnalyticsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backfills the analytics rollups from existing invoices and payments on startup until a backfill of the current
+ * rollup set has completed, which is recorded in analytics_rollup_backfills. Writes arriving meanwhile are safe:
+ * each partner's rebuild recomputes its rows from the raw tables. A failed backfill is logged and does not stop
+ * the application; it is retried on the next startup, or can be run with POST /api/analytics/rollups/rebuild.
+ */
+@Component
+public class AnalyticsRollupBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsRollupBackfill.class);
+
+    /** Rollup tables filled by a backfill: daily rollups (V8) and customer sketches (V10). Change when adding one. */
+    static final String ROLLUP_SET = "daily+sketch-v10";
+
+    private final AnalyticsRollupService rollups;
+    private final AnalyticsRepository analytics;
+
+    @Value("${app.analytics.rollups.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    public AnalyticsRollupBackfill(AnalyticsRollupService rollups, AnalyticsRepository analytics) {
+        this.rollups = rollups;
+        this.analytics = analytics;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfNeeded() {
+        if (!backfillOnStartup || analytics.backfillCompleted(ROLLUP_SET)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int partners;
+        try {
+            partners = rollups.rebuildAll();
+        } catch (RuntimeException e) {
+            log.error("Analytics rollup backfill failed; analytics may be incomplete until it is rerun on the next "
+                    + "startup or with POST /api/analytics/rollups/rebuild", e);
+            return;
+        }
+        analytics.markBackfillCompleted(ROLLUP_SET);
+        log.info("Backfilled analytics rollups for {} partners in {} ms", partners, System.currentTimeMillis() - start);
+    }
+}
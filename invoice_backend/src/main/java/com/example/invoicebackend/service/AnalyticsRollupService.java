@@ -0,0 +1,252 @@
+package com.example.invoicebackend.service;
+
+import com.example.invoicebackend.model.Invoice;
+import com.example.invoicebackend.model.enums.InvoiceStatus;
+import com.example.invoicebackend.repository.AnalyticsRepository;
+import com.example.invoicebackend.repository.AnalyticsRepository.CustomerSketchRow;
+import com.example.invoicebackend.repository.AnalyticsRepository.DelayRollupRow;
+import com.example.invoicebackend.repository.AnalyticsRepository.InvoiceRollupRow;
+import com.example.invoicebackend.repository.AnalyticsRepository.PaymentRollupRow;
+import com.example.invoicebackend.repository.AnalyticsRepository.SettlementRollupRow;
+import com.example.invoicebackend.repository.PartnerRepository;
+import com.example.invoicebackend.service.analytics.AnalyticsEngine;
+import com.example.invoicebackend.service.analytics.HyperLogLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Keeps the per-partner daily analytics rollups in step with invoice writes.
+ * Writers capture a snapshot of an invoice's contribution before changing it; after the change the difference
+ * between the old and new contribution is added to the rollup rows in the same transaction.
+ * Also rebuilds rollups from raw invoices/payments (backfill and repair).
+ * The new state of changed invoices is passed to the AnalyticsEngine once the transaction commits, and cached
+ * analytics results of their partners are invalidated.
+ */
+@Service
+public class AnalyticsRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsRollupService.class);
+
+    private final AnalyticsRepository analytics;
+    private final PartnerRepository partners;
+    private final AnalyticsEngine engine;
+    private final AnalyticsResultCache resultCache;
+    private final TransactionTemplate tx;
+
+    public AnalyticsRollupService(AnalyticsRepository analytics,
+                                  PartnerRepository partners,
+                                  AnalyticsEngine engine,
+                                  AnalyticsResultCache resultCache,
+                                  PlatformTransactionManager transactionManager) {
+        this.analytics = analytics;
+        this.partners = partners;
+        this.engine = engine;
+        this.resultCache = resultCache;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    // PUBLIC_INTERFACE
+    public Snapshot capture(Invoice invoice) {
+        /** Snapshot of the rollup contribution of an invoice as currently stored, including its completed payments. */
+        List<PaymentRollupRow> payments = invoice.getId() == null ? List.of()
+                : analytics.completedPayments(invoice.getId(), invoice.getPartner().getId());
+        return snapshot(invoice, payments);
+    }
+
+    // PUBLIC_INTERFACE
+    public void invoiceCreated(Invoice invoice) {
+        /** Add a new invoice (no payments yet). */
+        invoicesCreated(List.of(invoice));
+    }
+
+    // PUBLIC_INTERFACE
+    public void invoicesCreated(List<Invoice> invoices) {
+        /** Add new invoices with one batched delta per rollup table. */
+        Deltas d = new Deltas();
+        List<Snapshot> created = new ArrayList<>(invoices.size());
+        for (Invoice inv : invoices) {
+            Snapshot s = snapshot(inv, List.of());
+            d.add(s, 1);
+            created.add(s);
+        }
+        d.flush(analytics);
+        notifyEngine(created);
+    }
+
+    // PUBLIC_INTERFACE
+    public void invoiceChanged(Snapshot before, Invoice after) {
+        /** Apply the change of an invoice's fields, status or deletion since the snapshot; payments are unchanged. */
+        Deltas d = new Deltas();
+        Snapshot now = snapshot(after, before.payments());
+        d.add(before, -1);
+        d.add(now, 1);
+        d.flush(analytics);
+        notifyEngine(List.of(now));
+    }
+
+    // PUBLIC_INTERFACE
+    public void paymentsChanged(Snapshot before, Invoice invoice) {
+        /** Apply a change to the payments of an invoice since the snapshot (re-reads its completed payments). */
+        Deltas d = new Deltas();
+        Snapshot now = capture(invoice);
+        d.add(before, -1);
+        d.add(now, 1);
+        d.flush(analytics);
+        notifyEngine(List.of(now));
+    }
+
+    // PUBLIC_INTERFACE
+    public int rebuildAll() {
+        /** Rebuild rollups of every partner, one transaction per partner. Returns the number of partners rebuilt. */
+        List<Long> partnerIds = analytics.partnerIds();
+        for (Long partnerId : partnerIds) {
+            rebuild(partnerId);
+        }
+        return partnerIds.size();
+    }
+
+    // PUBLIC_INTERFACE
+    public void rebuild(Long partnerId) {
+        /** Rebuild one partner's rollups from its invoices and payments. */
+        if (!partners.existsById(partnerId)) {
+            throw new IllegalArgumentException("Partner not found");
+        }
+        try {
+            tx.executeWithoutResult(status -> rebuildPartner(partnerId));
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent write created a rollup row mid-rebuild; the next pass sees it as existing
+            log.info("Rollup rebuild of partner {} raced a concurrent write, retrying", partnerId);
+            tx.executeWithoutResult(status -> rebuildPartner(partnerId));
+        }
+        resultCache.invalidatePartners(List.of(partnerId));
+    }
+
+    private void rebuildPartner(Long partnerId) {
+        analytics.rebuildRollups(partnerId);
+        Map<List<Object>, CustomerSketchRow> registers = new HashMap<>();
+        analytics.streamCustomerIssueDays(partnerId, rs -> {
+            LocalDate issueDate = rs.getDate(1).toLocalDate();
+            long customerId = rs.getLong(2);
+            mergeRegister(registers, new CustomerSketchRow(partnerId, issueDate,
+                    HyperLogLog.registerOf(customerId), HyperLogLog.rankOf(customerId)));
+        });
+        analytics.insertCustomerSketch(new ArrayList<>(registers.values()));
+    }
+
+    private static void mergeRegister(Map<List<Object>, CustomerSketchRow> registers, CustomerSketchRow row) {
+        registers.merge(List.of(row.partnerId(), row.issueDate(), row.register()), row,
+                (a, b) -> a.rank() >= b.rank() ? a : b);
+    }
+
+    private void notifyEngine(List<Snapshot> changed) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(changed);
+                }
+            });
+        } else {
+            publish(changed);
+        }
+    }
+
+    private void publish(List<Snapshot> changed) {
+        // Engine first, so results computed under the new cache generation see the change
+        engine.invoicesChanged(changed);
+        Set<Long> partnerIds = new HashSet<>();
+        for (Snapshot s : changed) {
+            partnerIds.add(s.partnerId());
+        }
+        resultCache.invalidatePartners(partnerIds);
+    }
+
+    private static Snapshot snapshot(Invoice inv, List<PaymentRollupRow> payments) {
+        return new Snapshot(inv.getId(), inv.getPartner().getId(),
+                inv.getCustomer() != null ? inv.getCustomer().getId() : null,
+                inv.getIssueDate(), inv.getDueDate(), inv.getStatus(), inv.getTotalAmount(), inv.isDeleted(), payments);
+    }
+
+    /**
+     * Rollup contribution of one invoice at a point in time.
+     */
+    public record Snapshot(Long invoiceId, Long partnerId, Long customerId,
+                           LocalDate issueDate, LocalDate dueDate, InvoiceStatus status, BigDecimal totalAmount, boolean deleted, List<PaymentRollupRow> payments) {
+    }
+
+    /**
+     * Signed deltas per rollup row, merged so each row is written once; rows whose delta cancels out are skipped.
+     */
+    private static final class Deltas {
+        private final Map<List<Object>, InvoiceRollupRow> invoices = new LinkedHashMap<>();
+        private final Map<List<Object>, PaymentRollupRow> payments = new LinkedHashMap<>();
+        private final Map<List<Object>, SettlementRollupRow> settlements = new LinkedHashMap<>();
+        private final Map<List<Object>, DelayRollupRow> delays = new LinkedHashMap<>();
+        private final Map<List<Object>, CustomerSketchRow> customers = new LinkedHashMap<>();
+
+        void add(Snapshot s, int sign) {
+            if (s.deleted()) {
+                return;
+            }
+            BigDecimal total = s.totalAmount() != null ? s.totalAmount() : BigDecimal.ZERO;
+            invoices.merge(List.of(s.partnerId(), s.issueDate(), s.status()),
+                    new InvoiceRollupRow(s.partnerId(), s.issueDate(), s.status(), sign, signed(total, sign)),
+                    (a, b) -> new InvoiceRollupRow(a.partnerId(), a.issueDate(), a.status(),
+                            a.invoiceCount() + b.invoiceCount(), a.totalAmount().add(b.totalAmount())));
+            LocalDate paidDate = null;
+            for (PaymentRollupRow p : s.payments()) {
+                payments.merge(List.of(s.partnerId(), p.paymentDate()),
+                        new PaymentRollupRow(s.partnerId(), p.paymentDate(), sign, signed(p.paidAmount(), sign)),
+                        (a, b) -> new PaymentRollupRow(a.partnerId(), a.paymentDate(),
+                                a.paymentCount() + b.paymentCount(), a.paidAmount().add(b.paidAmount())));
+                if (paidDate == null || p.paymentDate().isAfter(paidDate)) {
+                    paidDate = p.paymentDate();
+                }
+            }
+            if (s.status() == InvoiceStatus.PAID && s.dueDate() != null && paidDate != null) {
+                long delay = paidDate.toEpochDay() - s.dueDate().toEpochDay();
+                settlements.merge(List.of(s.partnerId(), s.issueDate(), paidDate),
+                        new SettlementRollupRow(s.partnerId(), s.issueDate(), paidDate,
+                                sign, delay <= 0 ? sign : 0, Math.max(0, delay) * sign),
+                        (a, b) -> new SettlementRollupRow(a.partnerId(), a.issueDate(), a.paidDate(),
+                                a.invoiceCount() + b.invoiceCount(), a.onTimeCount() + b.onTimeCount(),
+                                a.delayDaysSum() + b.delayDaysSum()));
+                int delayDays = (int) Math.max(0, delay);
+                delays.merge(List.of(s.partnerId(), s.issueDate(), paidDate, delayDays),
+                        new DelayRollupRow(s.partnerId(), s.issueDate(), paidDate, delayDays, sign),
+                        (a, b) -> new DelayRollupRow(a.partnerId(), a.issueDate(), a.paidDate(), a.delayDays(),
+                                a.invoiceCount() + b.invoiceCount()));
+            }
+            // Sketch registers cannot be lowered: only the new state of an invoice is added
+            if (sign > 0 && s.customerId() != null) {
+                mergeRegister(customers, new CustomerSketchRow(s.partnerId(), s.issueDate(),
+                        HyperLogLog.registerOf(s.customerId()), HyperLogLog.rankOf(s.customerId())));
+            }
+        }
+
+        void flush(AnalyticsRepository analytics) {
+            analytics.addInvoiceDeltas(invoices.values().stream()
+                    .filter(r -> r.invoiceCount() != 0 || r.totalAmount().signum() != 0).toList());
+            analytics.addPaymentDeltas(payments.values().stream()
+                    .filter(r -> r.paymentCount() != 0 || r.paidAmount().signum() != 0).toList());
+            analytics.addSettlementDeltas(settlements.values().stream()
+                    .filter(r -> r.invoiceCount() != 0 || r.onTimeCount() != 0 || r.delayDaysSum() != 0).toList());
+            analytics.addDelayDeltas(delays.values().stream().filter(r -> r.invoiceCount() != 0).toList());
+            analytics.raiseCustomerSketch(new ArrayList<>(customers.values()));
+        }
+
+        private static BigDecimal signed(BigDecimal amount, int sign) {
+            return sign < 0 ? amount.negate() : amount;
+        }
+    }
+}
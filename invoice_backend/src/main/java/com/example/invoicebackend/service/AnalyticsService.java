@@ -1,45 +1,99 @@
 package com.example.invoicebackend.service;
 
 import com.example.invoicebackend.model.Invoice;
-import com.example.invoicebackend.model.Partner;
-import com.example.invoicebackend.model.Payment;
 import com.example.invoicebackend.model.enums.InvoiceStatus;
-import com.example.invoicebackend.model.enums.PaymentStatus;
+import com.example.invoicebackend.repository.AnalyticsRepository;
+import com.example.invoicebackend.repository.AnalyticsRepository.AgingRow;
+import com.example.invoicebackend.repository.AnalyticsRepository.InvoiceFilter;
+import com.example.invoicebackend.repository.AnalyticsRepository.DayCount;
+import com.example.invoicebackend.repository.AnalyticsRepository.DayStatusTotal;
+import com.example.invoicebackend.repository.AnalyticsRepository.DayTotal;
+import com.example.invoicebackend.repository.AnalyticsRepository.PartnerRange;
+import com.example.invoicebackend.repository.AnalyticsRepository.SettlementTotals;
+import com.example.invoicebackend.repository.AnalyticsRepository.StatusTotal;
 import com.example.invoicebackend.repository.InvoiceRepository;
+import com.example.invoicebackend.repository.InvoiceSpecifications;
 import com.example.invoicebackend.repository.PartnerRepository;
-import com.example.invoicebackend.repository.PaymentRepository;
+import com.example.invoicebackend.repository.projection.InvoiceView;
+import com.example.invoicebackend.service.analytics.AgingBucket;
+import com.example.invoicebackend.service.analytics.AnalyticsEngine;
+import com.example.invoicebackend.service.analytics.DelayHistogram;
+import com.example.invoicebackend.service.analytics.HyperLogLog;
+import com.example.invoicebackend.service.analytics.TimeBucket;
+import com.example.invoicebackend.service.analytics.TimeseriesMetric;
+import com.example.invoicebackend.util.MoneyAccumulator;
+import com.example.invoicebackend.web.dto.AnalyticsDtos.AgingBucketTotal;
+import com.example.invoicebackend.web.dto.AnalyticsDtos.AgingResponse;
+import com.example.invoicebackend.web.dto.AnalyticsDtos.CustomerAging;
+import com.example.invoicebackend.web.dto.AnalyticsDtos.DashboardResponse;
+import com.example.invoicebackend.web.dto.AnalyticsDtos.MultiTimeseriesResponse;
+import com.example.invoicebackend.web.dto.AnalyticsDtos.PartnerAging;
 import com.example.invoicebackend.web.dto.AnalyticsDtos.SummaryResponse;
 import com.example.invoicebackend.web.dto.AnalyticsDtos.TimeseriesPoint;
 import com.example.invoicebackend.web.dto.AnalyticsDtos.TimeseriesResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.YearMonth;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * Service to compute analytics KPIs and time-series aggregations.
+ * Without a partnerId the partners are split into id ranges that are aggregated in parallel on the
+ * analytics pool, each task with its own DB reads, and the partial results are merged.
+ * Summary, timeseries and aging results are cached in AnalyticsResultCache until a write to their partner.
  */
 @Service
 public class AnalyticsService {
 
-    private final InvoiceRepository invoiceRepository;
-    private final PaymentRepository paymentRepository;
+    /** Upper bound on the points of one gap-filled series. */
+    private static final int MAX_POINTS = 10_000;
+
+    /** Statuses of open receivables; must match the status list of AnalyticsRepository.agingTotals. */
+    private static final Set<InvoiceStatus> OPEN_STATUSES = EnumSet.of(InvoiceStatus.SENT, InvoiceStatus.OVERDUE);
+
     private final PartnerRepository partnerRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final AnalyticsRepository analyticsRepository;
+    private final AnalyticsEngine engine;
+    private final ForkJoinPool analyticsPool;
+    private final ThreadPoolExecutor dashboardExecutor;
+    private final AnalyticsResultCache resultCache;
+    private final int partitionsPerThread;
 
-    public AnalyticsService(InvoiceRepository invoiceRepository,
-                            PaymentRepository paymentRepository,
-                            PartnerRepository partnerRepository) {
-        this.invoiceRepository = invoiceRepository;
-        this.paymentRepository = paymentRepository;
+    public AnalyticsService(PartnerRepository partnerRepository,
+                            InvoiceRepository invoiceRepository,
+                            AnalyticsRepository analyticsRepository,
+                            AnalyticsEngine engine,
+                            ForkJoinPool analyticsPool,
+                            ThreadPoolExecutor analyticsDashboardExecutor,
+                            AnalyticsResultCache resultCache,
+                            @Value("${app.analytics.partitions-per-thread:4}") int partitionsPerThread) {
         this.partnerRepository = partnerRepository;
+        this.invoiceRepository = invoiceRepository;
+        this.analyticsRepository = analyticsRepository;
+        this.engine = engine;
+        this.analyticsPool = analyticsPool;
+        this.dashboardExecutor = analyticsDashboardExecutor;
+        this.resultCache = resultCache;
+        this.partitionsPerThread = Math.max(1, partitionsPerThread);
     }
 
     // PUBLIC_INTERFACE
-    @Transactional(readOnly = true)
     public SummaryResponse getSummary(Long partnerId,
                                       LocalDate from,
                                       LocalDate to,
@@ -47,73 +101,65 @@ public class AnalyticsService {
         /**
          * Compute KPIs for invoices within the optional date range and status filter.
          * Date filter applies to issueDate; for payments-based stats, uses paymentDate.
+         * Payment delay percentiles come from mergeable delay histograms and the distinct customer count from a
+         * HyperLogLog sketch of the invoiced customers (not filtered by status, so omitted when one is given).
+         * Answered by the configured AnalyticsEngine (daily rollups by default) per partner range.
          */
-        List<Invoice> source = listInvoices(partnerId);
-        source = applyInvoiceFilters(source, from, to, status);
-
-        // Total outstanding: sum totalAmount for invoices that are not PAID or CANCELED
-        BigDecimal totalOutstanding = source.stream()
-                .filter(i -> i.getStatus() != InvoiceStatus.PAID && i.getStatus() != InvoiceStatus.CANCELED)
-                .map(Invoice::getTotalAmount)
-                .filter(Objects::nonNull)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        requirePartner(partnerId);
+        return resultCache.get(partnerId, from, to, status, "summary",
+                () -> computeSummary(partnerId, from, to, status));
+    }
 
-        // Status counts
-        Map<InvoiceStatus, Long> statusCounts = Arrays.stream(InvoiceStatus.values())
-                .collect(Collectors.toMap(s -> s, s -> 0L, (a,b)->a, () -> new EnumMap<>(InvoiceStatus.class)));
-        source.forEach(inv -> statusCounts.compute(inv.getStatus(), (k, v) -> v == null ? 1L : v + 1));
-
-        // Average payment delay and on-time rate among PAID invoices
-        // Join to payment repository to find completed payments per invoice
-        List<Invoice> paidInvoices = source.stream()
-                .filter(i -> i.getStatus() == InvoiceStatus.PAID)
-                .collect(Collectors.toList());
-
-        long onTimeCount = 0;
-        long paidCountConsidered = 0;
-        long totalDelayDays = 0;
-
-        for (Invoice inv : paidInvoices) {
-            List<Payment> payments = paymentRepository.findByInvoiceAndStatus(inv, PaymentStatus.COMPLETED);
-            if (payments.isEmpty()) continue;
-
-            // Use last payment date (assume full payment at latest date)
-            LocalDate paidDate = payments.stream()
-                    .map(Payment::getPaymentDate)
-                    .filter(Objects::nonNull)
-                    .max(LocalDate::compareTo)
-                    .orElse(null);
-
-            if (paidDate == null) continue;
-
-            // If date range specified, consider payments that fall within range to compute KPIs
-            if (from != null && paidDate.isBefore(from)) continue;
-            if (to != null && paidDate.isAfter(to)) continue;
-
-            LocalDate due = inv.getDueDate();
-            if (due == null) continue;
-
-            int delay = (int) (paidDate.toEpochDay() - due.toEpochDay());
-            totalDelayDays += Math.max(0, delay);
-            if (paidDate.isBefore(due) || paidDate.isEqual(due)) {
-                onTimeCount++;
-            }
-            paidCountConsidered++;
-        }
+    private SummaryResponse computeSummary(Long partnerId, LocalDate from, LocalDate to, InvoiceStatus status) {
+        SummaryPartial total = aggregate(partnerId, range -> summaryPartial(range, from, to, status),
+                SummaryPartial::merge);
 
-        Double avgDelay = paidCountConsidered == 0 ? 0.0 : (double) totalDelayDays / paidCountConsidered;
-        Double onTimeRate = paidCountConsidered == 0 ? 0.0 : (double) onTimeCount / paidCountConsidered;
+        long paidCountConsidered = total.settledCount;
+        Double avgDelay = paidCountConsidered == 0 ? 0.0 : (double) total.delayDaysSum / paidCountConsidered;
+        Double onTimeRate = paidCountConsidered == 0 ? 0.0 : (double) total.onTimeCount / paidCountConsidered;
 
         SummaryResponse resp = new SummaryResponse();
-        resp.totalOutstanding = totalOutstanding;
+        resp.totalOutstanding = total.outstanding.toBigDecimal();
         resp.avgPaymentDelayDays = avgDelay;
         resp.onTimePaymentRate = onTimeRate;
-        resp.statusCounts = statusCounts;
+        resp.statusCounts = total.statusCounts;
+        resp.statusAmounts = new EnumMap<>(InvoiceStatus.class);
+        total.statusAmounts.forEach((s, a) -> resp.statusAmounts.put(s, a.toBigDecimal()));
+        resp.paymentDelayP50Days = total.delays.percentile(0.50);
+        resp.paymentDelayP90Days = total.delays.percentile(0.90);
+        resp.paymentDelayP99Days = total.delays.percentile(0.99);
+        resp.distinctCustomers = total.customers == null ? null : total.customers.estimate();
         return resp;
     }
 
+    private SummaryPartial summaryPartial(PartnerRange partners, LocalDate from, LocalDate to, InvoiceStatus status) {
+        SummaryPartial partial = new SummaryPartial();
+
+        // Status counts and total outstanding (totalAmount of invoices that are not PAID or CANCELED)
+        for (StatusTotal t : engine.statusTotals(new InvoiceFilter(partners, from, to, status))) {
+            partial.statusCounts.put(t.status(), t.count());
+            partial.statusAmounts.get(t.status()).add(t.amount());
+            if (t.status() != InvoiceStatus.PAID && t.status() != InvoiceStatus.CANCELED) {
+                partial.outstanding.add(t.amount());
+            }
+        }
+
+        // Average payment delay and on-time rate among PAID invoices, using the latest COMPLETED payment date
+        // (assume full payment at latest date). If a date range is given, the payment date must fall within it too.
+        if (status == null || status == InvoiceStatus.PAID) {
+            SettlementTotals st = engine.settlementTotals(partners, from, to, from, to);
+            partial.settledCount = st.invoiceCount();
+            partial.onTimeCount = st.onTimeCount();
+            partial.delayDaysSum = st.delayDaysSum();
+            partial.delays = engine.settlementDelays(partners, from, to, from, to);
+        }
+        if (status == null) {
+            partial.customers = engine.invoicedCustomers(partners, from, to);
+        }
+        return partial;
+    }
+
     // PUBLIC_INTERFACE
-    @Transactional(readOnly = true)
     public TimeseriesResponse getTimeseries(Long partnerId,
                                             LocalDate from,
                                             LocalDate to,
@@ -125,124 +171,467 @@ public class AnalyticsService {
          * - "paid": sum payment amount by paymentDate month (completed only)
          * - default: "invoiced"
          */
-        String m = metric == null ? "invoiced" : metric.toLowerCase(Locale.ROOT);
-        if (!m.equals("paid") && !m.equals("invoiced")) {
-            m = "invoiced";
+        return getTimeseries(partnerId, from, to, status, metric, TimeBucket.MONTH);
+    }
+
+    // PUBLIC_INTERFACE
+    public TimeseriesResponse getTimeseries(Long partnerId,
+                                            LocalDate from,
+                                            LocalDate to,
+                                            InvoiceStatus status,
+                                            String metric,
+                                            TimeBucket granularity) {
+        /**
+         * Timeseries of one metric (any TimeseriesMetric; unknown or missing metrics fall back to "invoiced")
+         * bucketed by the given granularity.
+         */
+        TimeseriesMetric m;
+        try {
+            m = TimeseriesMetric.parse(metric);
+        } catch (IllegalArgumentException e) {
+            m = TimeseriesMetric.INVOICED;
+        }
+        return getTimeseries(partnerId, from, to, status, List.of(m), granularity).series.get(0);
+    }
+
+    // PUBLIC_INTERFACE
+    public MultiTimeseriesResponse getTimeseries(Long partnerId,
+                                                 LocalDate from,
+                                                 LocalDate to,
+                                                 InvoiceStatus status,
+                                                 List<TimeseriesMetric> metrics,
+                                                 TimeBucket granularity) {
+        /**
+         * Compute several metrics in one pass per data source: one grouped read of invoices by day and status
+         * serves invoiced, outstanding and overdue_count; paid and new_customers add one read each when requested.
+         * The status filter applies to the invoice-based metrics. When both from and to are given, buckets without
+         * data are filled with zero.
+         */
+        requirePartner(partnerId);
+        Set<TimeseriesMetric> wanted = metrics.isEmpty()
+                ? Set.of(TimeseriesMetric.INVOICED) : new LinkedHashSet<>(metrics);
+        String key = "timeseries:" + granularity.key() + ":"
+                + wanted.stream().map(TimeseriesMetric::key).collect(Collectors.joining(","));
+        return resultCache.get(partnerId, from, to, status, key,
+                () -> computeTimeseries(partnerId, from, to, status, wanted, granularity));
+    }
+
+    private MultiTimeseriesResponse computeTimeseries(Long partnerId,
+                                                      LocalDate from,
+                                                      LocalDate to,
+                                                      InvoiceStatus status,
+                                                      Set<TimeseriesMetric> wanted,
+                                                      TimeBucket granularity) {
+        SeriesPartial total = aggregate(partnerId,
+                range -> seriesPartial(range, from, to, status, wanted, granularity), SeriesPartial::merge);
+
+        MultiTimeseriesResponse r = new MultiTimeseriesResponse();
+        r.granularity = granularity.key();
+        r.series = new ArrayList<>();
+        for (TimeseriesMetric m : wanted) {
+            List<TimeseriesPoint> points = points(m, total.buckets(m));
+            // Ensure filled periods between from and to with zero values
+            if (from != null && to != null && !from.isAfter(to)) {
+                points = fillMissingPeriods(points, from, to, granularity, m.isCount());
+            }
+            TimeseriesResponse series = new TimeseriesResponse();
+            series.metric = m.key();
+            series.points = points.stream()
+                    .sorted(Comparator.comparing(p -> p.period))
+                    .toList();
+            r.series.add(series);
         }
+        return r;
+    }
 
-        List<TimeseriesPoint> points;
-        if (m.equals("paid")) {
-            points = buildPaidSeries(partnerId, from, to);
-        } else {
-            points = buildInvoicedSeries(partnerId, from, to, status);
+    private SeriesPartial seriesPartial(PartnerRange partners,
+                                        LocalDate from,
+                                        LocalDate to,
+                                        InvoiceStatus status,
+                                        Set<TimeseriesMetric> wanted,
+                                        TimeBucket granularity) {
+        SeriesPartial partial = new SeriesPartial();
+        boolean invoiced = wanted.contains(TimeseriesMetric.INVOICED);
+        boolean outstanding = wanted.contains(TimeseriesMetric.OUTSTANDING);
+        boolean overdue = wanted.contains(TimeseriesMetric.OVERDUE_COUNT);
+        if (invoiced || outstanding || overdue) {
+            for (DayStatusTotal t : engine.invoicedByDayAndStatus(new InvoiceFilter(partners, from, to, status))) {
+                LocalDate period = granularity.start(t.date());
+                if (invoiced) {
+                    partial.add(TimeseriesMetric.INVOICED, period, t.count(), t.amount());
+                }
+                if (outstanding && t.status() != InvoiceStatus.PAID && t.status() != InvoiceStatus.CANCELED) {
+                    partial.add(TimeseriesMetric.OUTSTANDING, period, t.count(), t.amount());
+                }
+                if (overdue && t.status() == InvoiceStatus.OVERDUE) {
+                    partial.add(TimeseriesMetric.OVERDUE_COUNT, period, t.count(), null);
+                }
+            }
+        }
+        if (wanted.contains(TimeseriesMetric.PAID)) {
+            // COMPLETED payments of non-deleted invoices, by payment date
+            for (DayTotal t : engine.paidByDay(partners, from, to)) {
+                partial.add(TimeseriesMetric.PAID, granularity.start(t.date()), t.count(), t.amount());
+            }
+        }
+        if (wanted.contains(TimeseriesMetric.NEW_CUSTOMERS)) {
+            for (DayCount t : engine.newCustomersByDay(partners, from, to)) {
+                partial.add(TimeseriesMetric.NEW_CUSTOMERS, granularity.start(t.date()), t.count(), null);
+            }
         }
+        return partial;
+    }
 
-        // Ensure filled months between from and to with zero values
-        if (from != null && to != null && !from.isAfter(to)) {
-            points = fillMissingMonths(points, from, to);
+    // PUBLIC_INTERFACE
+    public DashboardResponse getDashboard(Long partnerId,
+                                          LocalDate from,
+                                          LocalDate to,
+                                          InvoiceStatus status,
+                                          TimeBucket granularity) {
+        /**
+         * Summary (with the status breakdown) and the invoiced and paid timeseries in one call. The two parts run
+         * concurrently on the dashboard executor, so the response takes as long as the slower one; both series
+         * come from one multi-metric pass. Each part is served from the result cache when possible.
+         */
+        requirePartner(partnerId);
+        CompletableFuture<SummaryResponse> summary = CompletableFuture.supplyAsync(
+                () -> getSummary(partnerId, from, to, status), dashboardExecutor);
+        CompletableFuture<MultiTimeseriesResponse> series = CompletableFuture.supplyAsync(
+                () -> getTimeseries(partnerId, from, to, status,
+                        List.of(TimeseriesMetric.INVOICED, TimeseriesMetric.PAID), granularity), dashboardExecutor);
+        try {
+            DashboardResponse r = new DashboardResponse();
+            r.summary = summary.join();
+            MultiTimeseriesResponse s = series.join();
+            r.invoiced = s.series.get(0);
+            r.paid = s.series.get(1);
+            return r;
+        } catch (CompletionException e) {
+            summary.cancel(false);
+            series.cancel(false);
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
         }
+    }
+
+    // PUBLIC_INTERFACE
+    public AgingResponse getAging(Long partnerId, LocalDate asOf) {
+        /**
+         * Receivables aging of open (SENT/OVERDUE) invoices by days past due as of the given date (default today):
+         * current (not yet due or no due date), 1-30, 31-60, 61-90 and 90+. Totals per partner and per customer
+         * come from one grouped query per partner range.
+         */
+        requirePartner(partnerId);
+        LocalDate date = asOf != null ? asOf : LocalDate.now();
+        return resultCache.get(partnerId, date, date, null, "aging", () -> computeAging(partnerId, date));
+    }
 
-        TimeseriesResponse r = new TimeseriesResponse();
-        r.metric = m;
-        r.points = points.stream()
-                .sorted(Comparator.comparing(p -> p.period))
+    private AgingResponse computeAging(Long partnerId, LocalDate date) {
+        // Due date lower bound of every bucket but the last, in bucket order
+        List<LocalDate> bounds = Arrays.stream(AgingBucket.values())
+                .map(b -> b.dueFrom(date))
+                .filter(Objects::nonNull)
                 .toList();
+        AgingPartial total = aggregate(partnerId,
+                range -> agingPartial(analyticsRepository.agingTotals(range, bounds)), AgingPartial::merge);
+
+        AgingResponse r = new AgingResponse();
+        r.asOf = date;
+        r.buckets = total.overall.toDtos();
+        r.partners = new ArrayList<>();
+        total.partners.forEach((pid, p) -> {
+            PartnerAging pa = new PartnerAging();
+            pa.partnerId = pid;
+            pa.totalAmount = p.totals.totalAmount();
+            pa.buckets = p.totals.toDtos();
+            pa.customers = new ArrayList<>();
+            p.customers.forEach((cid, c) -> {
+                CustomerAging ca = new CustomerAging();
+                ca.customerId = cid;
+                ca.customerName = c.name;
+                ca.totalAmount = c.totals.totalAmount();
+                ca.buckets = c.totals.toDtos();
+                pa.customers.add(ca);
+            });
+            r.partners.add(pa);
+        });
         return r;
     }
 
-    private List<Invoice> listInvoices(Long partnerId) {
-        if (partnerId == null) {
-            // All partners
-            return invoiceRepository.findAll().stream()
-                    .filter(i -> !i.isDeleted())
-                    .toList();
-        } else {
-            Partner p = partnerRepository.findById(partnerId)
-                    .orElseThrow(() -> new IllegalArgumentException("Partner not found"));
-            return invoiceRepository.findByPartnerAndDeletedFalse(p);
+    private static AgingPartial agingPartial(List<AgingRow> rows) {
+        AgingPartial partial = new AgingPartial();
+        for (AgingRow row : rows) {
+            PartnerAgingTotals p = partial.partners.computeIfAbsent(row.partnerId(), id -> new PartnerAgingTotals());
+            CustomerAgingTotals c = p.customers.computeIfAbsent(row.customerId(),
+                    id -> new CustomerAgingTotals(row.customerName()));
+            c.totals.add(row.bucket(), row.count(), row.amount());
+            p.totals.add(row.bucket(), row.count(), row.amount());
+            partial.overall.add(row.bucket(), row.count(), row.amount());
         }
+        return partial;
     }
 
-    private List<Invoice> applyInvoiceFilters(List<Invoice> invoices,
-                                              LocalDate from,
-                                              LocalDate to,
-                                              InvoiceStatus status) {
-        return invoices.stream()
-                .filter(i -> status == null || status == i.getStatus())
-                .filter(i -> from == null || (i.getIssueDate() != null && !i.getIssueDate().isBefore(from)))
-                .filter(i -> to == null || (i.getIssueDate() != null && !i.getIssueDate().isAfter(to)))
-                .toList();
+    // PUBLIC_INTERFACE
+    @Transactional(readOnly = true)
+    public Page<InvoiceView> getAgingInvoices(Long partnerId,
+                                              Long customerId,
+                                              AgingBucket bucket,
+                                              LocalDate asOf,
+                                              int page,
+                                              int size) {
+        /**
+         * Page through a partner's open invoices in one aging bucket (optionally of one customer), oldest due date
+         * first. Uses the same bucket boundaries as getAging for the same asOf date.
+         */
+        if (!partnerRepository.existsById(partnerId)) {
+            throw new IllegalArgumentException("Partner not found");
+        }
+        LocalDate date = asOf != null ? asOf : LocalDate.now();
+        LocalDate dueFrom = bucket.dueFrom(date);
+        Specification<Invoice> spec = Specification.where(InvoiceSpecifications.ofPartner(partnerId))
+                .and(InvoiceSpecifications.statusIn(OPEN_STATUSES))
+                .and(InvoiceSpecifications.ofCustomer(customerId))
+                // Invoices without a due date are current
+                .and(bucket == AgingBucket.CURRENT
+                        ? InvoiceSpecifications.dueFromOrNone(dueFrom)
+                        : InvoiceSpecifications.dueFrom(dueFrom))
+                .and(InvoiceSpecifications.dueTo(bucket.dueTo(date)));
+        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Order.asc("dueDate"), Sort.Order.asc("id")));
+        return invoiceRepository.findViews(spec, pageable);
     }
 
-    private List<TimeseriesPoint> buildInvoicedSeries(Long partnerId,
-                                                      LocalDate from,
-                                                      LocalDate to,
-                                                      InvoiceStatus status) {
-        List<Invoice> all = listInvoices(partnerId);
-        all = applyInvoiceFilters(all, from, to, status);
-        Map<YearMonth, BigDecimal> agg = new HashMap<>();
-        for (Invoice inv : all) {
-            LocalDate d = inv.getIssueDate();
-            if (d == null) continue;
-            YearMonth ym = YearMonth.from(d);
-            BigDecimal amt = inv.getTotalAmount() == null ? BigDecimal.ZERO : inv.getTotalAmount();
-            agg.merge(ym, amt, BigDecimal::add);
-        }
-        return agg.entrySet().stream().map(e -> {
-            TimeseriesPoint p = new TimeseriesPoint();
-            p.period = e.getKey().atDay(1);
-            p.amount = e.getValue();
-            return p;
-        }).toList();
+    private void requirePartner(Long partnerId) {
+        if (partnerId != null && !partnerRepository.existsById(partnerId)) {
+            throw new IllegalArgumentException("Partner not found");
+        }
     }
 
-    private List<TimeseriesPoint> buildPaidSeries(Long partnerId,
-                                                  LocalDate from,
-                                                  LocalDate to) {
-        // For paid series we need to iterate invoices and their COMPLETED payments
-        List<Invoice> base = listInvoices(partnerId);
-        Map<YearMonth, BigDecimal> agg = new HashMap<>();
-        for (Invoice inv : base) {
-            List<Payment> payments = paymentRepository.findByInvoiceAndStatus(inv, PaymentStatus.COMPLETED);
-            for (Payment pay : payments) {
-                LocalDate d = pay.getPaymentDate();
-                if (d == null) continue;
-                if (from != null && d.isBefore(from)) continue;
-                if (to != null && d.isAfter(to)) continue;
-                YearMonth ym = YearMonth.from(d);
-                BigDecimal amt = pay.getAmount() == null ? BigDecimal.ZERO : pay.getAmount();
-                agg.merge(ym, amt, BigDecimal::add);
+    /**
+     * Run a partial aggregation for one partner, or for all partners split into id ranges on the analytics pool,
+     * and merge the partials. The calling thread holds no connection while the tasks run.
+     */
+    private <P> P aggregate(Long partnerId, Function<PartnerRange, P> task, BinaryOperator<P> merge) {
+        if (partnerId != null) {
+            return task.apply(PartnerRange.of(partnerId));
+        }
+        List<PartnerRange> ranges = partition(analyticsRepository.partnerIds(),
+                analyticsPool.getParallelism() * partitionsPerThread);
+        if (ranges.size() == 1) {
+            return task.apply(ranges.get(0));
+        }
+        List<CompletableFuture<P>> futures = ranges.stream()
+                .map(range -> CompletableFuture.supplyAsync(() -> task.apply(range), analyticsPool))
+                .toList();
+        try {
+            return futures.stream().map(CompletableFuture::join).reduce(merge).orElseThrow();
+        } catch (CompletionException e) {
+            futures.forEach(f -> f.cancel(false));
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
             }
+            throw e;
         }
-        return agg.entrySet().stream().map(e -> {
+    }
+
+    /**
+     * Split sorted partner ids into at most {@code parts} contiguous ranges of similar partner count.
+     * The outer ranges are open so partners created after the id listing are still covered.
+     */
+    static List<PartnerRange> partition(List<Long> sortedIds, int parts) {
+        int n = Math.min(Math.max(1, parts), Math.max(1, sortedIds.size()));
+        if (n == 1) {
+            return List.of(PartnerRange.all());
+        }
+        List<PartnerRange> ranges = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int start = (int) ((long) sortedIds.size() * i / n);
+            int end = (int) ((long) sortedIds.size() * (i + 1) / n);
+            Long fromId = i == 0 ? null : sortedIds.get(start);
+            Long toId = i == n - 1 ? null : sortedIds.get(end) - 1;
+            ranges.add(new PartnerRange(fromId, toId));
+        }
+        return ranges;
+    }
+
+    private static List<TimeseriesPoint> points(TimeseriesMetric metric, Map<LocalDate, Bucket> buckets) {
+        return buckets.entrySet().stream().map(e -> {
             TimeseriesPoint p = new TimeseriesPoint();
-            p.period = e.getKey().atDay(1);
-            p.amount = e.getValue();
+            p.period = e.getKey();
+            p.count = e.getValue().count;
+            p.amount = metric.isCount() ? null : e.getValue().amount.toBigDecimal();
             return p;
         }).toList();
     }
 
-    private List<TimeseriesPoint> fillMissingMonths(List<TimeseriesPoint> points,
-                                                    LocalDate from,
-                                                    LocalDate to) {
-        Map<LocalDate, TimeseriesPoint> byMonth = new HashMap<>();
+    private List<TimeseriesPoint> fillMissingPeriods(List<TimeseriesPoint> points,
+                                                     LocalDate from,
+                                                     LocalDate to,
+                                                     TimeBucket granularity,
+                                                     boolean countMetric) {
+        Map<LocalDate, TimeseriesPoint> byPeriod = new HashMap<>();
         for (TimeseriesPoint p : points) {
-            byMonth.put(p.period.withDayOfMonth(1), p);
+            byPeriod.put(p.period, p);
         }
         List<TimeseriesPoint> filled = new ArrayList<>();
-        YearMonth cur = YearMonth.from(from.withDayOfMonth(1));
-        YearMonth end = YearMonth.from(to.withDayOfMonth(1));
+        LocalDate cur = granularity.start(from);
+        LocalDate end = granularity.start(to);
         while (!cur.isAfter(end)) {
-            LocalDate key = cur.atDay(1);
-            TimeseriesPoint p = byMonth.get(key);
+            if (filled.size() == MAX_POINTS) {
+                throw new IllegalArgumentException("Date range too large for granularity " + granularity.key());
+            }
+            TimeseriesPoint p = byPeriod.get(cur);
             if (p == null) {
                 p = new TimeseriesPoint();
-                p.period = key;
-                p.amount = BigDecimal.ZERO;
+                p.period = cur;
+                p.count = 0L;
+                p.amount = countMetric ? null : BigDecimal.ZERO;
             }
             filled.add(p);
-            cur = cur.plusMonths(1);
+            cur = granularity.next(cur);
         }
         return filled;
     }
+
+    /**
+     * Count and amount of one timeseries bucket.
+     */
+    private static final class Bucket {
+        final MoneyAccumulator amount = new MoneyAccumulator();
+        long count;
+
+        Bucket merge(Bucket other) {
+            amount.add(other.amount);
+            count += other.count;
+            return this;
+        }
+    }
+
+    /**
+     * Timeseries buckets per metric of one partner range; partials merge bucket by bucket.
+     */
+    private static final class SeriesPartial {
+        private final Map<TimeseriesMetric, Map<LocalDate, Bucket>> series = new EnumMap<>(TimeseriesMetric.class);
+
+        void add(TimeseriesMetric metric, LocalDate period, long count, BigDecimal amount) {
+            Bucket b = series.computeIfAbsent(metric, m -> new HashMap<>()).computeIfAbsent(period, k -> new Bucket());
+            b.count += count;
+            b.amount.add(amount);
+        }
+
+        Map<LocalDate, Bucket> buckets(TimeseriesMetric metric) {
+            return series.getOrDefault(metric, Map.of());
+        }
+
+        SeriesPartial merge(SeriesPartial other) {
+            other.series.forEach((metric, buckets) -> {
+                Map<LocalDate, Bucket> mine = series.computeIfAbsent(metric, m -> new HashMap<>());
+                buckets.forEach((period, b) -> mine.merge(period, b, Bucket::merge));
+            });
+            return this;
+        }
+    }
+
+    /**
+     * Count and amount per aging bucket, indexed by AgingBucket ordinal.
+     */
+    private static final class AgingTotals {
+        final long[] counts = new long[AgingBucket.values().length];
+        final MoneyAccumulator[] amounts = Arrays.stream(AgingBucket.values())
+                .map(b -> new MoneyAccumulator()).toArray(MoneyAccumulator[]::new);
+
+        void add(int bucket, long count, BigDecimal amount) {
+            counts[bucket] += count;
+            amounts[bucket].add(amount);
+        }
+
+        AgingTotals merge(AgingTotals other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+                amounts[i].add(other.amounts[i]);
+            }
+            return this;
+        }
+
+        BigDecimal totalAmount() {
+            MoneyAccumulator total = new MoneyAccumulator();
+            for (MoneyAccumulator a : amounts) {
+                total.add(a);
+            }
+            return total.toBigDecimal();
+        }
+
+        List<AgingBucketTotal> toDtos() {
+            List<AgingBucketTotal> dtos = new ArrayList<>(counts.length);
+            for (AgingBucket b : AgingBucket.values()) {
+                AgingBucketTotal t = new AgingBucketTotal();
+                t.bucket = b.key();
+                t.count = counts[b.ordinal()];
+                t.amount = amounts[b.ordinal()].toBigDecimal();
+                dtos.add(t);
+            }
+            return dtos;
+        }
+    }
+
+    private static final class CustomerAgingTotals {
+        final String name;
+        final AgingTotals totals = new AgingTotals();
+
+        CustomerAgingTotals(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class PartnerAgingTotals {
+        final AgingTotals totals = new AgingTotals();
+        final Map<Long, CustomerAgingTotals> customers = new TreeMap<>();
+    }
+
+    /**
+     * Aging totals of one partner range. Ranges are disjoint, so partials merge by partner.
+     */
+    private static final class AgingPartial {
+        final AgingTotals overall = new AgingTotals();
+        final Map<Long, PartnerAgingTotals> partners = new TreeMap<>();
+
+        AgingPartial merge(AgingPartial other) {
+            overall.merge(other.overall);
+            partners.putAll(other.partners);
+            return this;
+        }
+    }
+
+    /**
+     * Summary aggregates of one partner range; partials merge by addition.
+     */
+    private static final class SummaryPartial {
+        final Map<InvoiceStatus, Long> statusCounts = Arrays.stream(InvoiceStatus.values())
+                .collect(Collectors.toMap(s -> s, s -> 0L, (a,b)->a, () -> new EnumMap<>(InvoiceStatus.class)));
+        final Map<InvoiceStatus, MoneyAccumulator> statusAmounts = Arrays.stream(InvoiceStatus.values())
+                .collect(Collectors.toMap(s -> s, s -> new MoneyAccumulator(), (a,b)->a, () -> new EnumMap<>(InvoiceStatus.class)));
+        final MoneyAccumulator outstanding = new MoneyAccumulator();
+        long settledCount;
+        long onTimeCount;
+        long delayDaysSum;
+        DelayHistogram delays = new DelayHistogram();
+        HyperLogLog customers;
+
+        SummaryPartial merge(SummaryPartial other) {
+            other.statusCounts.forEach((k, v) -> statusCounts.merge(k, v, Long::sum));
+            other.statusAmounts.forEach((k, v) -> statusAmounts.get(k).add(v));
+            outstanding.add(other.outstanding);
+            settledCount += other.settledCount;
+            onTimeCount += other.onTimeCount;
+            delayDaysSum += other.delayDaysSum;
+            delays.merge(other.delays);
+            if (customers == null) {
+                customers = other.customers;
+            } else if (other.customers != null) {
+                customers.merge(other.customers);
+            }
+            return this;
+        }
+    }
 }
@@ -0,0 +1,352 @@
+package com.example.invoicebackend.service;
+
+import com.example.invoicebackend.model.Customer;
+import com.example.invoicebackend.model.Invoice;
+import com.example.invoicebackend.model.InvoiceItem;
+import com.example.invoicebackend.model.InvoiceSearchDocument;
+import com.example.invoicebackend.model.Partner;
+import com.example.invoicebackend.model.Template;
+import com.example.invoicebackend.model.enums.InvoiceStatus;
+import com.example.invoicebackend.repository.CustomerRepository;
+import com.example.invoicebackend.repository.InvoiceRepository;
+import com.example.invoicebackend.repository.PartnerRepository;
+import com.example.invoicebackend.repository.TemplateRepository;
+import com.example.invoicebackend.service.webhook.WebhookOutbox;
+import com.example.invoicebackend.web.dto.InvoiceDtos.InvoiceBatchItemResult;
+import com.example.invoicebackend.web.dto.InvoiceDtos.InvoiceBatchResponse;
+import com.example.invoicebackend.web.dto.InvoiceDtos.InvoiceCreateRequest;
+import com.example.invoicebackend.web.dto.InvoiceDtos.InvoiceItemRequest;
+import com.example.invoicebackend.web.mapper.DtoMappers;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Creates many invoices in one request.
+ * Lookups (partners, customers, templates, taken invoice numbers) are done once for the whole batch,
+ * then invoices, items and search documents are written with JDBC batch inserts in chunks.
+ * Each chunk commits on its own, so a failing chunk only fails the entries it contains.
+ */
+@Service
+public class InvoiceBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoiceBatchService.class);
+
+    private static final String INSERT_INVOICE = """
+            INSERT INTO invoices (partner_id, customer_id, template_id, invoice_number, status, currency, issue_date, due_date,
+                                  subtotal_amount, tax_amount, discount_amount, total_amount, notes, is_deleted, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, FALSE, ?, ?)""";
+
+    private static final String INSERT_ITEM = """
+            INSERT INTO invoice_items (invoice_id, item_name, item_description, quantity, unit_price, line_total, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)""";
+
+    private static final String INSERT_SEARCH_DOCUMENT = """
+            INSERT INTO invoice_search_documents (invoice_id, partner_id, document, updated_at)
+            VALUES (?, ?, ?, ?)""";
+
+    private final InvoiceRepository invoices;
+    private final PartnerRepository partners;
+    private final CustomerRepository customers;
+    private final TemplateRepository templates;
+    private final InvoiceSearchService searchService;
+    private final WebhookOutbox webhookOutbox;
+    private final AnalyticsRollupService rollups;
+    private final Validator validator;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate chunkTx;
+
+    @Value("${app.invoices.batch.max-size:20000}")
+    private int maxBatchSize;
+
+    @Value("${app.invoices.batch.chunk-size:1000}")
+    private int chunkSize;
+
+    public InvoiceBatchService(InvoiceRepository invoices,
+                               PartnerRepository partners,
+                               CustomerRepository customers,
+                               TemplateRepository templates,
+                               InvoiceSearchService searchService,
+                               WebhookOutbox webhookOutbox,
+                               AnalyticsRollupService rollups,
+                               Validator validator,
+                               JdbcTemplate jdbc,
+                               PlatformTransactionManager transactionManager) {
+        this.invoices = invoices;
+        this.partners = partners;
+        this.customers = customers;
+        this.templates = templates;
+        this.searchService = searchService;
+        this.webhookOutbox = webhookOutbox;
+        this.rollups = rollups;
+        this.validator = validator;
+        this.jdbc = jdbc;
+        this.chunkTx = new TransactionTemplate(transactionManager);
+        this.chunkTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // PUBLIC_INTERFACE
+    public InvoiceBatchResponse createAll(List<InvoiceCreateRequest> requests) {
+        /**
+         * Create every valid entry of the batch as a DRAFT invoice, like POST /api/invoices would.
+         * Returns one result per entry in request order; invalid entries are reported, not thrown.
+         */
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one invoice");
+        }
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch exceeds maximum size of " + maxBatchSize);
+        }
+
+        InvoiceBatchItemResult[] results = new InvoiceBatchItemResult[requests.size()];
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            InvoiceCreateRequest req = requests.get(i);
+            String violations = req == null ? "invoice: must not be null" : violations(req);
+            if (violations != null) {
+                results[i] = failure(i, req, violations);
+            } else {
+                candidates.add(i);
+            }
+        }
+
+        Map<Long, Partner> partnersById = loadById(partners::findAllById, Partner::getId,
+                candidates.stream().map(i -> requests.get(i).partnerId));
+        Map<Long, Customer> customersById = loadById(customers::findAllById, Customer::getId,
+                candidates.stream().map(i -> requests.get(i).customerId));
+        Map<Long, Template> templatesById = loadById(templates::findAllById, Template::getId,
+                candidates.stream().map(i -> requests.get(i).templateId).filter(Objects::nonNull));
+        Set<String> taken = takenNumbers(candidates.stream().map(requests::get).toList());
+
+        Set<String> seen = new HashSet<>();
+        List<Pending> pending = new ArrayList<>();
+        for (int i : candidates) {
+            InvoiceCreateRequest req = requests.get(i);
+            Partner partner = partnersById.get(req.partnerId);
+            Customer customer = customersById.get(req.customerId);
+            Template template = req.templateId != null ? templatesById.get(req.templateId) : null;
+            String key = numberKey(req.partnerId, req.invoiceNumber);
+            if (partner == null) {
+                results[i] = failure(i, req, "Partner not found");
+            } else if (customer == null) {
+                results[i] = failure(i, req, "Customer not found");
+            } else if (req.templateId != null && template == null) {
+                results[i] = failure(i, req, "Template not found");
+            } else if (taken.contains(key)) {
+                results[i] = failure(i, req, "Invoice number already exists for this partner");
+            } else if (!seen.add(key)) {
+                results[i] = failure(i, req, "Duplicate invoice number within batch");
+            } else {
+                pending.add(new Pending(i, toInvoice(req, partner, customer, template)));
+            }
+        }
+
+        int size = Math.max(1, chunkSize);
+        for (int from = 0; from < pending.size(); from += size) {
+            List<Pending> chunk = pending.subList(from, Math.min(from + size, pending.size()));
+            try {
+                chunkTx.executeWithoutResult(status -> insertChunk(chunk));
+                for (Pending p : chunk) {
+                    results[p.index] = success(p.index, p.invoice);
+                }
+            } catch (DataAccessException ex) {
+                // Typically a number taken concurrently after the uniqueness check; the whole chunk rolled back
+                log.warn("Invoice batch chunk of {} rolled back: {}", chunk.size(), ex.getMostSpecificCause().getMessage());
+                for (Pending p : chunk) {
+                    results[p.index] = failure(p.index, requests.get(p.index),
+                            "Rejected by database together with its chunk: " + ex.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+
+        InvoiceBatchResponse response = new InvoiceBatchResponse();
+        response.results = Arrays.asList(results);
+        response.created = (int) response.results.stream().filter(r -> r.success).count();
+        response.failed = results.length - response.created;
+        return response;
+    }
+
+    private void insertChunk(List<Pending> chunk) {
+        Timestamp now = Timestamp.from(Instant.now());
+
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbc.batchUpdate(con -> con.prepareStatement(INSERT_INVOICE, new String[] {"id"}), new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Invoice inv = chunk.get(i).invoice;
+                ps.setLong(1, inv.getPartner().getId());
+                ps.setLong(2, inv.getCustomer().getId());
+                if (inv.getTemplate() != null) {
+                    ps.setLong(3, inv.getTemplate().getId());
+                } else {
+                    ps.setNull(3, Types.BIGINT);
+                }
+                ps.setString(4, inv.getInvoiceNumber());
+                ps.setString(5, inv.getStatus().name());
+                ps.setString(6, inv.getCurrency());
+                ps.setDate(7, Date.valueOf(inv.getIssueDate()));
+                ps.setDate(8, inv.getDueDate() != null ? Date.valueOf(inv.getDueDate()) : null);
+                ps.setBigDecimal(9, inv.getSubtotalAmount());
+                ps.setBigDecimal(10, inv.getTaxAmount());
+                ps.setBigDecimal(11, inv.getDiscountAmount());
+                ps.setBigDecimal(12, inv.getTotalAmount());
+                ps.setString(13, inv.getNotes());
+                ps.setTimestamp(14, now);
+                ps.setTimestamp(15, now);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return chunk.size();
+            }
+        }, keys);
+
+        List<Map<String, Object>> keyList = keys.getKeyList();
+        for (int i = 0; i < chunk.size(); i++) {
+            // Single requested key column; its label case differs between drivers
+            chunk.get(i).invoice.setId(((Number) keyList.get(i).values().iterator().next()).longValue());
+        }
+
+        List<InvoiceItem> items = chunk.stream().flatMap(p -> p.invoice.getItems().stream()).toList();
+        if (!items.isEmpty()) {
+            jdbc.batchUpdate(INSERT_ITEM, items, items.size(), (ps, it) -> {
+                ps.setLong(1, it.getInvoice().getId());
+                ps.setString(2, it.getItemName());
+                ps.setString(3, it.getItemDescription());
+                ps.setBigDecimal(4, it.getQuantity());
+                ps.setBigDecimal(5, it.getUnitPrice());
+                ps.setBigDecimal(6, it.getLineTotal());
+                ps.setTimestamp(7, now);
+                ps.setTimestamp(8, now);
+            });
+        }
+
+        List<InvoiceSearchDocument> documents = new ArrayList<>(chunk.size());
+        for (Pending p : chunk) {
+            InvoiceSearchDocument d = new InvoiceSearchDocument();
+            d.setInvoiceId(p.invoice.getId());
+            d.setPartnerId(p.invoice.getPartner().getId());
+            d.setDocument(InvoiceSearchService.buildDocument(p.invoice));
+            d.setUpdatedAt(now.toInstant());
+            documents.add(d);
+        }
+        jdbc.batchUpdate(INSERT_SEARCH_DOCUMENT, documents, documents.size(), (ps, d) -> {
+            ps.setLong(1, d.getInvoiceId());
+            ps.setLong(2, d.getPartnerId());
+            ps.setString(3, d.getDocument());
+            ps.setTimestamp(4, now);
+        });
+        searchService.documentsInserted(documents);
+        rollups.invoicesCreated(chunk.stream().map(Pending::invoice).toList());
+        // Created invoices are DRAFT (status change null->DRAFT), as in InvoiceService.create
+        webhookOutbox.invoiceStatusChanged(chunk.stream().map(Pending::invoice).toList());
+    }
+
+    private Set<String> takenNumbers(List<InvoiceCreateRequest> reqs) {
+        if (reqs.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> partnerIds = reqs.stream().map(r -> r.partnerId).collect(Collectors.toSet());
+        Set<String> numbers = reqs.stream().map(r -> r.invoiceNumber).collect(Collectors.toSet());
+        Set<String> taken = new HashSet<>();
+        for (Object[] row : invoices.findTakenNumbers(partnerIds, numbers)) {
+            taken.add(numberKey((Long) row[0], (String) row[1]));
+        }
+        return taken;
+    }
+
+    private static Invoice toInvoice(InvoiceCreateRequest req, Partner partner, Customer customer, Template template) {
+        // Same construction as InvoiceService.create, without persisting
+        Invoice inv = new Invoice();
+        inv.setPartner(partner);
+        inv.setCustomer(customer);
+        inv.setTemplate(template);
+        inv.setInvoiceNumber(req.invoiceNumber);
+        inv.setCurrency(req.currency);
+        inv.setIssueDate(req.issueDate);
+        inv.setDueDate(req.dueDate);
+        inv.setTaxAmount(req.taxAmount != null ? req.taxAmount : BigDecimal.ZERO);
+        inv.setDiscountAmount(req.discountAmount != null ? req.discountAmount : BigDecimal.ZERO);
+        inv.setNotes(req.notes);
+        inv.setStatus(InvoiceStatus.DRAFT);
+        List<InvoiceItem> items = new ArrayList<>();
+        if (req.items != null) {
+            for (InvoiceItemRequest ir : req.items) {
+                InvoiceItem it = new InvoiceItem();
+                it.setInvoice(inv);
+                DtoMappers.applyInvoiceItemFromRequest(it, ir);
+                items.add(it);
+            }
+        }
+        inv.setItems(items);
+        inv.recalcTotals();
+        DtoMappers.normalizeMoney(inv);
+        return inv;
+    }
+
+    private String violations(InvoiceCreateRequest req) {
+        Set<ConstraintViolation<InvoiceCreateRequest>> found = validator.validate(req);
+        if (found.isEmpty()) {
+            return null;
+        }
+        return found.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private static <T> Map<Long, T> loadById(Function<Set<Long>, List<T>> finder, Function<T, Long> idOf, Stream<Long> ids) {
+        Set<Long> unique = ids.collect(Collectors.toSet());
+        if (unique.isEmpty()) {
+            return Map.of();
+        }
+        return finder.apply(unique).stream().collect(Collectors.toMap(idOf, Function.identity()));
+    }
+
+    private static String numberKey(Long partnerId, String invoiceNumber) {
+        return partnerId + "|" + invoiceNumber;
+    }
+
+    private static InvoiceBatchItemResult success(int index, Invoice invoice) {
+        InvoiceBatchItemResult r = new InvoiceBatchItemResult();
+        r.index = index;
+        r.invoiceNumber = invoice.getInvoiceNumber();
+        r.success = true;
+        r.id = invoice.getId();
+        return r;
+    }
+
+    private static InvoiceBatchItemResult failure(int index, InvoiceCreateRequest req, String error) {
+        InvoiceBatchItemResult r = new InvoiceBatchItemResult();
+        r.index = index;
+        r.invoiceNumber = req != null ? req.invoiceNumber : null;
+        r.success = false;
+        r.error = error;
+        return r;
+    }
+
+    private record Pending(int index, Invoice invoice) {}
+}
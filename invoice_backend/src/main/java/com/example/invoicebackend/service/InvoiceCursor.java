@@ -0,0 +1,49 @@
+package com.example.invoicebackend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position in the (issue_date DESC, id DESC) invoice ordering.
+ * Encoded as an opaque URL-safe token for clients; they must pass it back unchanged.
+ */
+public final class InvoiceCursor {
+
+    private final LocalDate issueDate;
+    private final Long id;
+
+    public InvoiceCursor(LocalDate issueDate, Long id) {
+        this.issueDate = issueDate;
+        this.id = id;
+    }
+
+    public LocalDate getIssueDate() { return issueDate; }
+    public Long getId() { return id; }
+
+    // PUBLIC_INTERFACE
+    public String encode() {
+        /** Encode as an opaque continuation token. */
+        String raw = issueDate + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // PUBLIC_INTERFACE
+    public static InvoiceCursor decode(String token) {
+        /** Decode a continuation token; null or blank means start from the first row. */
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            if (sep < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new InvoiceCursor(LocalDate.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
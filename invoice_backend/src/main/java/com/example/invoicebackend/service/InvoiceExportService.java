@@ -0,0 +1,364 @@
+package com.example.invoicebackend.service;
+
+import com.example.invoicebackend.model.enums.InvoiceStatus;
+import com.example.invoicebackend.repository.PartnerRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams a partner's invoice ledger as NDJSON or CSV with bounded memory.
+ * Invoices, items and payments are read through forward-only JDBC cursors ordered by invoice id and
+ * merge-joined while writing, so each row is emitted as soon as it is read and nothing is collected
+ * beyond the items/payments of the current invoice.
+ */
+@Service
+public class InvoiceExportService {
+
+    public enum Format { NDJSON, CSV }
+
+    private static final String CSV_HEADER = String.join(",",
+            "record_type", "invoice_id", "invoice_number", "customer_id", "customer_name", "status", "currency",
+            "issue_date", "due_date", "subtotal_amount", "tax_amount", "discount_amount", "total_amount",
+            "item_name", "item_description", "quantity", "unit_price", "line_total",
+            "payment_date", "payment_method", "payment_amount", "payment_status", "payment_reference");
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate readOnlyTx;
+    private final ObjectMapper objectMapper;
+    private final PartnerRepository partners;
+
+    @Value("${app.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${app.export.flush-every:500}")
+    private int flushEvery;
+
+    public InvoiceExportService(JdbcTemplate jdbc,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                PartnerRepository partners) {
+        this.jdbc = jdbc;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.partners = partners;
+    }
+
+    // PUBLIC_INTERFACE
+    public StreamingResponseBody export(Long partnerId,
+                                        InvoiceStatus status,
+                                        LocalDate issueDateFrom,
+                                        LocalDate issueDateTo,
+                                        boolean includeItems,
+                                        boolean includePayments,
+                                        Format format) {
+        /**
+         * Validate the request up front (so errors still map to 400) and return a body that streams the export.
+         * The read runs in one read-only transaction so PostgreSQL honours the fetch size with a server-side cursor.
+         */
+        if (!partners.existsById(partnerId)) {
+            throw new IllegalArgumentException("Partner not found");
+        }
+        Filter filter = new Filter(partnerId, status, issueDateFrom, issueDateTo);
+        return out -> readOnlyTx.executeWithoutResult(tx -> jdbc.execute((ConnectionCallback<Void>) con -> {
+            try {
+                stream(con, filter, includeItems, includePayments, format, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        }));
+    }
+
+    private void stream(Connection con, Filter filter, boolean includeItems, boolean includePayments,
+                        Format format, OutputStream out) throws SQLException, IOException {
+        try (PreparedStatement invSt = cursor(con, """
+                     SELECT i.id, i.invoice_number, i.customer_id, c.name AS customer_name, i.status, i.currency,
+                            i.issue_date, i.due_date, i.subtotal_amount, i.tax_amount, i.discount_amount, i.total_amount
+                     FROM invoices i JOIN customers c ON c.id = i.customer_id
+                     WHERE %s ORDER BY i.id""", filter);
+             PreparedStatement itemSt = includeItems ? cursor(con, """
+                     SELECT it.invoice_id, it.item_name, it.item_description, it.quantity, it.unit_price, it.line_total
+                     FROM invoice_items it JOIN invoices i ON i.id = it.invoice_id
+                     WHERE %s ORDER BY it.invoice_id, it.id""", filter) : null;
+             PreparedStatement paySt = includePayments ? cursor(con, """
+                     SELECT p.invoice_id, p.payment_date, p.method, p.amount, p.status, p.reference
+                     FROM payments p JOIN invoices i ON i.id = p.invoice_id
+                     WHERE %s ORDER BY p.invoice_id, p.id""", filter) : null;
+             ResultSet invoices = invSt.executeQuery();
+             ResultSet items = itemSt != null ? itemSt.executeQuery() : null;
+             ResultSet payments = paySt != null ? paySt.executeQuery() : null) {
+
+            ChildCursor itemCursor = new ChildCursor(items);
+            ChildCursor paymentCursor = new ChildCursor(payments);
+            RowWriter writer = format == Format.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(objectMapper, out);
+            writer.begin();
+            long count = 0;
+            while (invoices.next()) {
+                long invoiceId = invoices.getLong("id");
+                writer.invoice(invoices, itemCursor.rowsFor(invoiceId, this::readItem),
+                        paymentCursor.rowsFor(invoiceId, this::readPayment), includeItems, includePayments);
+                if (++count % Math.max(1, flushEvery) == 0) {
+                    writer.flush();
+                }
+            }
+            writer.end();
+        }
+    }
+
+    private PreparedStatement cursor(Connection con, String sqlTemplate, Filter filter) throws SQLException {
+        StringBuilder where = new StringBuilder("i.partner_id = ? AND i.is_deleted = false");
+        List<Object> params = new ArrayList<>();
+        params.add(filter.partnerId);
+        if (filter.status != null) {
+            where.append(" AND i.status = ?");
+            params.add(filter.status.name());
+        }
+        if (filter.from != null) {
+            where.append(" AND i.issue_date >= ?");
+            params.add(Date.valueOf(filter.from));
+        }
+        if (filter.to != null) {
+            where.append(" AND i.issue_date <= ?");
+            params.add(Date.valueOf(filter.to));
+        }
+        PreparedStatement st = con.prepareStatement(sqlTemplate.formatted(where),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        st.setFetchSize(fetchSize);
+        for (int i = 0; i < params.size(); i++) {
+            st.setObject(i + 1, params.get(i));
+        }
+        return st;
+    }
+
+    private Object[] readItem(ResultSet rs) throws SQLException {
+        return new Object[] {rs.getString("item_name"), rs.getString("item_description"),
+                rs.getBigDecimal("quantity"), rs.getBigDecimal("unit_price"), rs.getBigDecimal("line_total")};
+    }
+
+    private Object[] readPayment(ResultSet rs) throws SQLException {
+        Date d = rs.getDate("payment_date");
+        return new Object[] {d != null ? d.toLocalDate() : null, rs.getString("method"),
+                rs.getBigDecimal("amount"), rs.getString("status"), rs.getString("reference")};
+    }
+
+    private record Filter(Long partnerId, InvoiceStatus status, LocalDate from, LocalDate to) {}
+
+    @FunctionalInterface
+    private interface RowReader {
+        Object[] read(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Forward-only child cursor ordered by invoice_id; yields the rows of one invoice at a time.
+     */
+    private static final class ChildCursor {
+        private final ResultSet rs;
+        private boolean hasRow;
+
+        ChildCursor(ResultSet rs) throws SQLException {
+            this.rs = rs;
+            this.hasRow = rs != null && rs.next();
+        }
+
+        List<Object[]> rowsFor(long invoiceId, RowReader reader) throws SQLException {
+            if (rs == null) {
+                return List.of();
+            }
+            while (hasRow && rs.getLong("invoice_id") < invoiceId) {
+                hasRow = rs.next();
+            }
+            List<Object[]> rows = new ArrayList<>();
+            while (hasRow && rs.getLong("invoice_id") == invoiceId) {
+                rows.add(reader.read(rs));
+                hasRow = rs.next();
+            }
+            return rows;
+        }
+    }
+
+    private interface RowWriter {
+        void begin() throws IOException;
+        void invoice(ResultSet inv, List<Object[]> items, List<Object[]> payments,
+                     boolean includeItems, boolean includePayments) throws IOException, SQLException;
+        void flush() throws IOException;
+        void end() throws IOException;
+    }
+
+    /**
+     * One JSON object per line per invoice, with nested items/payments arrays when requested.
+     */
+    private static final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator gen;
+
+        NdjsonRowWriter(ObjectMapper mapper, OutputStream out) throws IOException {
+            this.gen = mapper.getFactory().createGenerator(out);
+            this.gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Lines are separated by the '\n' written after each object, not by the default space
+            this.gen.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void begin() {}
+
+        @Override
+        public void invoice(ResultSet inv, List<Object[]> items, List<Object[]> payments,
+                            boolean includeItems, boolean includePayments) throws IOException, SQLException {
+            gen.writeStartObject();
+            gen.writeNumberField("id", inv.getLong("id"));
+            gen.writeStringField("invoiceNumber", inv.getString("invoice_number"));
+            gen.writeNumberField("customerId", inv.getLong("customer_id"));
+            gen.writeStringField("customerName", inv.getString("customer_name"));
+            gen.writeStringField("status", inv.getString("status"));
+            gen.writeStringField("currency", inv.getString("currency"));
+            writeDate("issueDate", inv.getDate("issue_date"));
+            writeDate("dueDate", inv.getDate("due_date"));
+            writeAmount("subtotalAmount", inv.getBigDecimal("subtotal_amount"));
+            writeAmount("taxAmount", inv.getBigDecimal("tax_amount"));
+            writeAmount("discountAmount", inv.getBigDecimal("discount_amount"));
+            writeAmount("totalAmount", inv.getBigDecimal("total_amount"));
+            if (includeItems) {
+                gen.writeArrayFieldStart("items");
+                for (Object[] it : items) {
+                    gen.writeStartObject();
+                    gen.writeStringField("itemName", (String) it[0]);
+                    gen.writeStringField("itemDescription", (String) it[1]);
+                    writeAmount("quantity", (BigDecimal) it[2]);
+                    writeAmount("unitPrice", (BigDecimal) it[3]);
+                    writeAmount("lineTotal", (BigDecimal) it[4]);
+                    gen.writeEndObject();
+                }
+                gen.writeEndArray();
+            }
+            if (includePayments) {
+                gen.writeArrayFieldStart("payments");
+                for (Object[] p : payments) {
+                    gen.writeStartObject();
+                    gen.writeStringField("paymentDate", p[0] != null ? p[0].toString() : null);
+                    gen.writeStringField("method", (String) p[1]);
+                    writeAmount("amount", (BigDecimal) p[2]);
+                    gen.writeStringField("status", (String) p[3]);
+                    gen.writeStringField("reference", (String) p[4]);
+                    gen.writeEndObject();
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndObject();
+            gen.writeRaw('\n');
+        }
+
+        private void writeDate(String field, Date d) throws IOException {
+            gen.writeStringField(field, d != null ? d.toLocalDate().toString() : null);
+        }
+
+        private void writeAmount(String field, BigDecimal v) throws IOException {
+            if (v == null) {
+                gen.writeNullField(field);
+            } else {
+                gen.writeNumberField(field, v);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            gen.flush();
+        }
+
+        @Override
+        public void end() throws IOException {
+            gen.close();
+        }
+    }
+
+    /**
+     * Flat CSV: one "invoice" row per invoice followed by its "item" and "payment" rows when requested.
+     */
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer w;
+
+        CsvRowWriter(OutputStream out) {
+            this.w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        @Override
+        public void begin() throws IOException {
+            w.write(CSV_HEADER);
+            w.write("\r\n");
+            // Emit the header immediately so clients see the download start
+            w.flush();
+        }
+
+        @Override
+        public void invoice(ResultSet inv, List<Object[]> items, List<Object[]> payments,
+                            boolean includeItems, boolean includePayments) throws IOException, SQLException {
+            String id = Long.toString(inv.getLong("id"));
+            Date issue = inv.getDate("issue_date");
+            Date due = inv.getDate("due_date");
+            row("invoice", id, inv.getString("invoice_number"), Long.toString(inv.getLong("customer_id")),
+                    inv.getString("customer_name"), inv.getString("status"), inv.getString("currency"),
+                    issue != null ? issue.toLocalDate() : null, due != null ? due.toLocalDate() : null,
+                    inv.getBigDecimal("subtotal_amount"), inv.getBigDecimal("tax_amount"),
+                    inv.getBigDecimal("discount_amount"), inv.getBigDecimal("total_amount"),
+                    null, null, null, null, null, null, null, null, null, null);
+            for (Object[] it : items) {
+                row("item", id, null, null, null, null, null, null, null, null, null, null, null,
+                        it[0], it[1], it[2], it[3], it[4], null, null, null, null, null);
+            }
+            for (Object[] p : payments) {
+                row("payment", id, null, null, null, null, null, null, null, null, null, null, null,
+                        null, null, null, null, null, p[0], p[1], p[2], p[3], p[4]);
+            }
+        }
+
+        private void row(Object... values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) w.write(',');
+                Object v = values[i];
+                if (v == null) continue;
+                String s = v instanceof BigDecimal bd ? bd.toPlainString() : v.toString();
+                if (s.indexOf(',') >= 0 || s.indexOf('"') >= 0 || s.indexOf('\n') >= 0 || s.indexOf('\r') >= 0) {
+                    w.write('"');
+                    w.write(s.replace("\"", "\"\""));
+                    w.write('"');
+                } else {
+                    w.write(s);
+                }
+            }
+            w.write("\r\n");
+        }
+
+        @Override
+        public void flush() throws IOException {
+            w.flush();
+        }
+
+        @Override
+        public void end() throws IOException {
+            w.flush();
+        }
+    }
+}
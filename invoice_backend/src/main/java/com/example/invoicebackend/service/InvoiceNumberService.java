@@ -0,0 +1,166 @@
+package com.example.invoicebackend.service;
+
+import com.example.invoicebackend.model.InvoiceNumberSequence;
+import com.example.invoicebackend.model.Partner;
+import com.example.invoicebackend.repository.InvoiceNumberSequenceRepository;
+import com.example.invoicebackend.repository.InvoiceRepository;
+import com.example.invoicebackend.repository.PartnerRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Allocates per-partner invoice numbers using a hi/lo scheme.
+ * Each instance reserves a block of values by advancing the partner's row in invoice_number_sequences
+ * under a row lock in its own short transaction, then hands out numbers from the block in memory.
+ * Numbers are unique across instances; values of a block that are never used leave gaps.
+ */
+@Service
+public class InvoiceNumberService {
+
+    private static final String SEQ_TOKEN = "{SEQ}";
+    private static final int MAX_SKIPPED_NUMBERS = 100;
+
+    private final InvoiceNumberSequenceRepository sequences;
+    private final InvoiceRepository invoices;
+    private final PartnerRepository partners;
+    private final TransactionTemplate requiresNew;
+    private final Map<Long, Block> blocks = new ConcurrentHashMap<>();
+
+    @Value("${app.invoices.numbering.block-size:20}")
+    private int blockSize;
+
+    public InvoiceNumberService(InvoiceNumberSequenceRepository sequences,
+                                InvoiceRepository invoices,
+                                PartnerRepository partners,
+                                PlatformTransactionManager transactionManager) {
+        this.sequences = sequences;
+        this.invoices = invoices;
+        this.partners = partners;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // PUBLIC_INTERFACE
+    public String nextNumber(Long partnerId) {
+        /**
+         * Allocate the next invoice number for a partner. Numbers already taken by manually numbered
+         * invoices are skipped, so the result never collides on uq_invoices_number at allocation time.
+         */
+        Partner partner = partners.findById(partnerId).orElseThrow(() -> new IllegalArgumentException("Partner not found"));
+        Block block = blocks.computeIfAbsent(partnerId, id -> new Block());
+        for (int i = 0; i < MAX_SKIPPED_NUMBERS; i++) {
+            String candidate;
+            synchronized (block) {
+                if (block.next >= block.limit) {
+                    reserve(partner, block);
+                }
+                candidate = format(block.numberFormat, block.padWidth, block.next++);
+            }
+            if (!invoices.existsByPartnerAndInvoiceNumber(partner, candidate)) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("Could not allocate a free invoice number for partner " + partnerId);
+    }
+
+    // PUBLIC_INTERFACE
+    @Transactional(readOnly = true)
+    public InvoiceNumberSequence getSettings(Long partnerId) {
+        /** Current numbering settings for a partner; defaults if the partner never allocated a number. */
+        if (!partners.existsById(partnerId)) {
+            throw new IllegalArgumentException("Partner not found");
+        }
+        return sequences.findById(partnerId).orElseGet(() -> new InvoiceNumberSequence(partnerId, 1));
+    }
+
+    // PUBLIC_INTERFACE
+    public InvoiceNumberSequence updateSettings(Long partnerId, String numberFormat, Integer padWidth) {
+        /**
+         * Change the number format and/or padding for a partner. Applies to blocks reserved afterwards;
+         * this instance drops its current block so the change is visible immediately here.
+         */
+        if (numberFormat != null && !numberFormat.contains(SEQ_TOKEN)) {
+            throw new IllegalArgumentException("numberFormat must contain " + SEQ_TOKEN);
+        }
+        if (padWidth != null && (padWidth < 1 || padWidth > 18)) {
+            throw new IllegalArgumentException("padWidth must be between 1 and 18");
+        }
+        Partner partner = partners.findById(partnerId).orElseThrow(() -> new IllegalArgumentException("Partner not found"));
+        InvoiceNumberSequence updated = inNewTransaction(() -> {
+            InvoiceNumberSequence seq = lockOrCreate(partner);
+            if (numberFormat != null) seq.setNumberFormat(numberFormat);
+            if (padWidth != null) seq.setPadWidth(padWidth);
+            seq.setUpdatedAt(Instant.now());
+            return seq;
+        });
+        blocks.remove(partnerId);
+        return updated;
+    }
+
+    private void reserve(Partner partner, Block block) {
+        int size = Math.max(1, blockSize);
+        InvoiceNumberSequence seq = inNewTransaction(() -> {
+            InvoiceNumberSequence s = lockOrCreate(partner);
+            long start = s.getNextValue();
+            s.setNextValue(start + size);
+            s.setUpdatedAt(Instant.now());
+            // Return a detached copy holding the reserved range start
+            InvoiceNumberSequence reserved = new InvoiceNumberSequence(s.getPartnerId(), start);
+            reserved.setNumberFormat(s.getNumberFormat());
+            reserved.setPadWidth(s.getPadWidth());
+            return reserved;
+        });
+        block.next = seq.getNextValue();
+        block.limit = seq.getNextValue() + size;
+        block.numberFormat = seq.getNumberFormat();
+        block.padWidth = seq.getPadWidth();
+    }
+
+    private InvoiceNumberSequence lockOrCreate(Partner partner) {
+        return sequences.findForUpdate(partner.getId()).orElseGet(() -> {
+            // Seed past existing invoices (including soft-deleted ones, which still hold their numbers)
+            long seed = invoices.countByPartner(partner) + 1;
+            return sequences.saveAndFlush(new InvoiceNumberSequence(partner.getId(), seed));
+        });
+    }
+
+    private <T> T inNewTransaction(Supplier<T> work) {
+        try {
+            return requiresNew.execute(status -> work.get());
+        } catch (DataIntegrityViolationException e) {
+            // Another instance created the partner's row concurrently; it exists now, so lock it and retry once
+            return requiresNew.execute(status -> work.get());
+        }
+    }
+
+    static String format(String numberFormat, int padWidth, long value) {
+        LocalDate today = LocalDate.now();
+        String seq = String.format("%0" + padWidth + "d", value);
+        return numberFormat
+                .replace("{YYYY}", String.format("%04d", today.getYear()))
+                .replace("{YY}", String.format("%02d", today.getYear() % 100))
+                .replace("{MM}", String.format("%02d", today.getMonthValue()))
+                .replace(SEQ_TOKEN, seq);
+    }
+
+    /**
+     * In-memory block of reserved sequence values for one partner. Guarded by its own monitor.
+     */
+    private static final class Block {
+        long next;
+        long limit;
+        String numberFormat = InvoiceNumberSequence.DEFAULT_FORMAT;
+        int padWidth = InvoiceNumberSequence.DEFAULT_PAD_WIDTH;
+    }
+}
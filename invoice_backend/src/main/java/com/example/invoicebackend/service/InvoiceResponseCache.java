@@ -0,0 +1,66 @@
+package com.example.invoicebackend.service;
+
+import com.example.invoicebackend.web.dto.InvoiceDtos.InvoiceResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of InvoiceResponse by invoice id.
+ * Entries are evicted by size (LRU-like) and after a TTL, which bounds staleness across instances
+ * since invalidation is local. Hit/miss/eviction statistics are published as cache.* metrics with tag cache=invoices.
+ * Cached responses are shared; callers must not modify them.
+ */
+@Component
+public class InvoiceResponseCache {
+
+    private final Cache<Long, InvoiceResponse> cache;
+
+    public InvoiceResponseCache(MeterRegistry meterRegistry,
+                                @Value("${app.invoices.cache.max-size:10000}") long maxSize,
+                                @Value("${app.invoices.cache.ttl:PT10M}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "invoices");
+    }
+
+    // PUBLIC_INTERFACE
+    public InvoiceResponse get(Long id, Function<Long, InvoiceResponse> loader) {
+        /** Cached response, or load it once (concurrent callers for the same id wait for the same load). */
+        return cache.get(id, loader);
+    }
+
+    // PUBLIC_INTERFACE
+    public InvoiceResponse peek(Long id) {
+        /** Cached response without loading; null on miss. */
+        return cache.getIfPresent(id);
+    }
+
+    // PUBLIC_INTERFACE
+    public void invalidate(Long id) {
+        /**
+         * Drop an invoice now and again after the current transaction commits, so a reader that
+         * loads the pre-commit row in between cannot leave a stale entry behind.
+         */
+        cache.invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(id);
+                }
+            });
+        }
+    }
+}
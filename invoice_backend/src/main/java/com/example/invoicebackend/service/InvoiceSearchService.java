@@ -0,0 +1,151 @@
+package com.example.invoicebackend.service;
+
+import com.example.invoicebackend.model.Invoice;
+import com.example.invoicebackend.model.InvoiceItem;
+import com.example.invoicebackend.model.InvoiceSearchDocument;
+import com.example.invoicebackend.repository.InvoiceRepository;
+import com.example.invoicebackend.repository.InvoiceSearchDocumentRepository;
+import com.example.invoicebackend.repository.InvoiceSpecifications;
+import com.example.invoicebackend.repository.PartnerRepository;
+import com.example.invoicebackend.repository.projection.InvoiceView;
+import com.example.invoicebackend.service.search.InvoiceSearchIndex;
+import com.example.invoicebackend.service.search.SearchHits;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains invoice full-text search documents and serves ranked search over them.
+ */
+@Service
+public class InvoiceSearchService {
+
+    private final InvoiceSearchDocumentRepository documents;
+    private final InvoiceRepository invoices;
+    private final PartnerRepository partners;
+    private final InvoiceSearchIndex index;
+
+    public InvoiceSearchService(InvoiceSearchDocumentRepository documents,
+                                InvoiceRepository invoices,
+                                PartnerRepository partners,
+                                InvoiceSearchIndex index) {
+        this.documents = documents;
+        this.invoices = invoices;
+        this.partners = partners;
+        this.index = index;
+    }
+
+    // PUBLIC_INTERFACE
+    @Transactional
+    public void indexInvoice(Invoice invoice) {
+        /** Write the search document for an invoice: number, notes, customer name and item names/descriptions. */
+        InvoiceSearchDocument d = documents.findById(invoice.getId()).orElseGet(InvoiceSearchDocument::new);
+        d.setInvoiceId(invoice.getId());
+        d.setPartnerId(invoice.getPartner().getId());
+        d.setDocument(buildDocument(invoice));
+        d.setUpdatedAt(Instant.now());
+        documents.save(d);
+        Long invoiceId = d.getInvoiceId();
+        Long partnerId = d.getPartnerId();
+        String text = d.getDocument();
+        afterCommit(() -> index.documentChanged(invoiceId, partnerId, text));
+    }
+
+    // PUBLIC_INTERFACE
+    public void documentsInserted(List<InvoiceSearchDocument> inserted) {
+        /** Notify the index about documents written directly (e.g. by JDBC batch inserts) in the current transaction. */
+        List<InvoiceSearchDocument> copy = List.copyOf(inserted);
+        afterCommit(() -> copy.forEach(d -> index.documentChanged(d.getInvoiceId(), d.getPartnerId(), d.getDocument())));
+    }
+
+    // PUBLIC_INTERFACE
+    public static String buildDocument(Invoice invoice) {
+        /** Concatenate the searchable text of an invoice (number, notes, customer name, item names/descriptions). */
+        StringJoiner doc = new StringJoiner(" ");
+        add(doc, invoice.getInvoiceNumber());
+        add(doc, invoice.getNotes());
+        if (invoice.getCustomer() != null) {
+            add(doc, invoice.getCustomer().getName());
+        }
+        for (InvoiceItem it : invoice.getItems()) {
+            add(doc, it.getItemName());
+            add(doc, it.getItemDescription());
+        }
+        return doc.toString();
+    }
+
+    // PUBLIC_INTERFACE
+    @Transactional
+    public void removeInvoice(Long invoiceId) {
+        /** Drop the search document of a (soft-)deleted invoice. */
+        if (documents.existsById(invoiceId)) {
+            documents.deleteById(invoiceId);
+        }
+        afterCommit(() -> index.documentRemoved(invoiceId));
+    }
+
+    // PUBLIC_INTERFACE
+    @Transactional(readOnly = true)
+    public Page<InvoiceView> search(Long partnerId, String query, int page, int size) {
+        /**
+         * Ranked full-text search of a partner's invoices. Every term of the query must match the start of a word
+         * in the invoice number, notes, customer name or an item name/description.
+         */
+        if (!partners.existsById(partnerId)) {
+            throw new IllegalArgumentException("Partner not found");
+        }
+        List<String> terms = InvoiceSearchIndex.tokenize(query);
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("Search query must contain letters or digits");
+        }
+        PageRequest pageable = PageRequest.of(page, size);
+        SearchHits hits = index.search(partnerId, terms, page, size);
+        if (hits.invoiceIds().isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, hits.total());
+        }
+        Specification<Invoice> spec = Specification.where(InvoiceSpecifications.ofPartner(partnerId))
+                .and((root, q, cb) -> root.get("id").in(hits.invoiceIds()));
+        Map<Long, InvoiceView> byId = invoices.findViews(spec, Sort.unsorted()).stream()
+                .collect(Collectors.toMap(InvoiceView::id, Function.identity()));
+        // Keep the index's rank order
+        List<InvoiceView> ranked = hits.invoiceIds().stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new PageImpl<>(ranked, pageable, hits.total());
+    }
+
+    private static void afterCommit(Runnable action) {
+        // In-memory index state must not observe rolled-back writes
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static void add(StringJoiner doc, String value) {
+        if (value != null && !value.isBlank()) {
+            doc.add(value);
+        }
+    }
+}
@@ -3,12 +3,22 @@ package com.example.invoicebackend.service;
 import com.example.invoicebackend.model.*;
 import com.example.invoicebackend.model.enums.InvoiceStatus;
 import com.example.invoicebackend.repository.*;
+import com.example.invoicebackend.repository.projection.InvoiceView;
+import com.example.invoicebackend.service.webhook.WebhookOutbox;
 import com.example.invoicebackend.web.dto.InvoiceDtos.*;
 import com.example.invoicebackend.web.mapper.DtoMappers;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -23,20 +33,29 @@ public class InvoiceService {
     private final PartnerRepository partners;
     private final CustomerRepository customers;
     private final TemplateRepository templates;
-    private final WebhookService webhookService;
+    private final WebhookOutbox webhookOutbox;
+    private final InvoiceSearchService searchService;
+    private final InvoiceResponseCache responseCache;
+    private final AnalyticsRollupService rollups;
 
     public InvoiceService(InvoiceRepository invoices,
                           InvoiceItemRepository itemsRepo,
                           PartnerRepository partners,
                           CustomerRepository customers,
                           TemplateRepository templates,
-                          WebhookService webhookService) {
+                          WebhookOutbox webhookOutbox,
+                          InvoiceSearchService searchService,
+                          InvoiceResponseCache responseCache,
+                          AnalyticsRollupService rollups) {
         this.invoices = invoices;
         this.itemsRepo = itemsRepo;
         this.partners = partners;
         this.customers = customers;
         this.templates = templates;
-        this.webhookService = webhookService;
+        this.webhookOutbox = webhookOutbox;
+        this.searchService = searchService;
+        this.responseCache = responseCache;
+        this.rollups = rollups;
     }
 
     // PUBLIC_INTERFACE
@@ -82,16 +101,36 @@ public class InvoiceService {
         DtoMappers.normalizeMoney(inv);
 
         Invoice saved = invoices.save(inv);
-        // Publish event for created invoice in DRAFT (status change considered from null->DRAFT)
-        webhookService.publishInvoiceStatusChange(saved);
+        rollups.invoiceCreated(saved);
+        searchService.indexInvoice(saved);
+        // Record event for created invoice in DRAFT (status change considered from null->DRAFT); delivered after commit
+        webhookOutbox.invoiceStatusChanged(saved);
         return saved;
     }
 
     // PUBLIC_INTERFACE
     @Transactional
     public Invoice update(Long id, InvoiceUpdateRequest req) {
-        /** Update invoice; if items provided, replace list. Recalc totals. */
+        /**
+         * Update invoice without the If-Match precondition. A concurrent update committed after this read still
+         * fails on flush through the @Version check.
+         */
+        return update(id, req, null);
+    }
+
+    // PUBLIC_INTERFACE
+    @Transactional
+    public Invoice update(Long id, InvoiceUpdateRequest req, Long expectedVersion) {
+        /**
+         * Update invoice; if items provided, replace list. Recalc totals.
+         * When expectedVersion is given (If-Match), the update is rejected unless it matches the stored version;
+         * a concurrent update committed after this read is rejected by the @Version check on flush.
+         */
         Invoice inv = invoices.findById(id).orElseThrow(() -> new IllegalArgumentException("Invoice not found"));
+        if (expectedVersion != null && expectedVersion != inv.getVersion()) {
+            throw new OptimisticLockingFailureException("Invoice was modified (current version " + inv.getVersion() + ")");
+        }
+        AnalyticsRollupService.Snapshot rollupBefore = rollups.capture(inv);
 
         InvoiceStatus before = inv.getStatus();
 
@@ -113,10 +152,15 @@ public class InvoiceService {
         // Recompute totals every update
         inv.recalcTotals();
         DtoMappers.normalizeMoney(inv);
+        // Always dirty, so every update gets a new version (item-only changes do not touch invoice columns)
+        inv.setUpdatedAt(Instant.now());
+        rollups.invoiceChanged(rollupBefore, inv);
+        searchService.indexInvoice(inv);
+        responseCache.invalidate(id);
 
-        // If status changed, publish
+        // If status changed, record an event; delivered after commit
         if (before != inv.getStatus()) {
-            webhookService.publishInvoiceStatusChange(inv);
+            webhookOutbox.invoiceStatusChanged(inv);
         }
         return inv;
     }
@@ -128,12 +172,104 @@ public class InvoiceService {
         return invoices.findById(id).orElseThrow(() -> new IllegalArgumentException("Invoice not found"));
     }
 
+    // PUBLIC_INTERFACE
+    public InvoiceResponse findResponse(Long id) {
+        /** Invoice response by id through the read-through cache; misses are loaded from the projection. */
+        return responseCache.get(id, key -> DtoMappers.toInvoiceResponse(
+                invoices.findViewById(key).orElseThrow(() -> new IllegalArgumentException("Invoice not found"))));
+    }
+
+    // PUBLIC_INTERFACE
+    public long findVersion(Long id) {
+        /** Current version of an invoice: from the cache if present, else a version-only lookup. */
+        InvoiceResponse cached = responseCache.peek(id);
+        if (cached != null) {
+            return cached.version;
+        }
+        return invoices.findVersionById(id).orElseThrow(() -> new IllegalArgumentException("Invoice not found"));
+    }
+
     // PUBLIC_INTERFACE
     @Transactional(readOnly = true)
-    public List<Invoice> listByPartner(Long partnerId) {
-        /** List non-deleted invoices for a partner. */
-        Partner partner = partners.findById(partnerId).orElseThrow(() -> new IllegalArgumentException("Partner not found"));
-        return invoices.findByPartnerAndDeletedFalse(partner);
+    public List<InvoiceView> search(InvoiceSearchCriteria c, Integer page, Integer size) {
+        /**
+         * Search a partner's non-deleted invoices, ANDing every provided filter
+         * (status set, customer, currency, issue/due date ranges, total amount range), newest issue date first.
+         * Returns every match unless page or size is given.
+         */
+        if (!partners.existsById(c.partnerId)) {
+            throw new IllegalArgumentException("Partner not found");
+        }
+        Specification<Invoice> spec = Specification.where(InvoiceSpecifications.ofPartner(c.partnerId))
+                .and(InvoiceSpecifications.statusIn(c.statuses))
+                .and(InvoiceSpecifications.ofCustomer(c.customerId))
+                .and(InvoiceSpecifications.hasCurrency(c.currency))
+                .and(InvoiceSpecifications.issuedFrom(c.issueDateFrom))
+                .and(InvoiceSpecifications.issuedTo(c.issueDateTo))
+                .and(InvoiceSpecifications.dueFrom(c.dueDateFrom))
+                .and(InvoiceSpecifications.dueTo(c.dueDateTo))
+                .and(InvoiceSpecifications.dueBefore(c.dueBefore))
+                .and(InvoiceSpecifications.totalAtLeast(c.minTotal))
+                .and(InvoiceSpecifications.totalAtMost(c.maxTotal));
+        Sort sort = Sort.by(Sort.Order.desc("issueDate"), Sort.Order.desc("id"));
+        if (page == null && size == null) {
+            return invoices.findViews(spec, sort);
+        }
+        // Only the page window is fetched: search returns no total, so no count query is needed
+        Pageable pageable = PageRequest.of(page != null ? page : 0, size != null ? size : 20);
+        return invoices.findViews(spec, sort, (int) pageable.getOffset(), pageable.getPageSize());
+    }
+
+    // PUBLIC_INTERFACE
+    @Transactional(readOnly = true)
+    public Page<InvoiceView> listByPartner(Long partnerId,
+                                       InvoiceStatus status,
+                                       Long customerId,
+                                       LocalDate issueDateFrom,
+                                       LocalDate issueDateTo,
+                                       int page,
+                                       int size) {
+        /**
+         * List non-deleted invoices for a partner, newest issue date first.
+         * Filters, ordering and the page window are applied in the database; the total comes from a separate count query.
+         */
+        if (!partners.existsById(partnerId)) {
+            throw new IllegalArgumentException("Partner not found");
+        }
+        Specification<Invoice> spec = Specification.where(InvoiceSpecifications.ofPartner(partnerId))
+                .and(InvoiceSpecifications.hasStatus(status))
+                .and(InvoiceSpecifications.ofCustomer(customerId))
+                .and(InvoiceSpecifications.issuedFrom(issueDateFrom))
+                .and(InvoiceSpecifications.issuedTo(issueDateTo));
+        // id breaks ties between invoices issued on the same day so pages are stable
+        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Order.desc("issueDate"), Sort.Order.desc("id")));
+        return invoices.findViews(spec, pageable);
+    }
+
+    // PUBLIC_INTERFACE
+    @Transactional(readOnly = true)
+    public List<InvoiceView> listByPartnerAfter(Long partnerId,
+                                                InvoiceStatus status,
+                                                Long customerId,
+                                                LocalDate issueDateFrom,
+                                                LocalDate issueDateTo,
+                                                InvoiceCursor after,
+                                                int limit) {
+        /**
+         * Keyset variant of listByPartner: returns up to limit invoices following the cursor position in
+         * (issue_date DESC, id DESC) order. No count query is issued, so every page costs the same as the first.
+         */
+        if (!partners.existsById(partnerId)) {
+            throw new IllegalArgumentException("Partner not found");
+        }
+        Specification<Invoice> spec = Specification.where(InvoiceSpecifications.ofPartner(partnerId))
+                .and(InvoiceSpecifications.hasStatus(status))
+                .and(InvoiceSpecifications.ofCustomer(customerId))
+                .and(InvoiceSpecifications.issuedFrom(issueDateFrom))
+                .and(InvoiceSpecifications.issuedTo(issueDateTo))
+                .and(after != null ? InvoiceSpecifications.seekAfter(after.getIssueDate(), after.getId()) : null);
+        Sort sort = Sort.by(Sort.Order.desc("issueDate"), Sort.Order.desc("id"));
+        return invoices.findViews(spec, sort, limit);
     }
 
     // PUBLIC_INTERFACE
@@ -141,6 +277,10 @@ public class InvoiceService {
     public void softDelete(Long id) {
         /** Soft delete invoice (mark is_deleted = true). */
         Invoice inv = invoices.findById(id).orElseThrow(() -> new IllegalArgumentException("Invoice not found"));
+        AnalyticsRollupService.Snapshot rollupBefore = rollups.capture(inv);
         inv.setDeleted(true);
+        rollups.invoiceChanged(rollupBefore, inv);
+        searchService.removeInvoice(id);
+        responseCache.invalidate(id);
     }
 }
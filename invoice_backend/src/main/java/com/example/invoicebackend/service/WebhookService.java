@@ -2,31 +2,24 @@ package com.example.invoicebackend.service;
 
 import com.example.invoicebackend.model.Invoice;
 import com.example.invoicebackend.model.Partner;
-import com.example.invoicebackend.model.WebhookSubscription;
 import com.example.invoicebackend.model.enums.InvoiceStatus;
 import com.example.invoicebackend.repository.InvoiceRepository;
 import com.example.invoicebackend.repository.PartnerRepository;
-import com.example.invoicebackend.repository.WebhookSubscriptionRepository;
 import com.example.invoicebackend.web.dto.InvoiceDtos;
 import com.example.invoicebackend.web.dto.WebhookDtos.InvoiceCreatedWebhookRequest;
 import com.example.invoicebackend.web.dto.WebhookDtos.PaymentUpdatedWebhookRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.DigestUtils;
-import org.springframework.web.client.RestClient;
 
 import java.nio.charset.StandardCharsets;
-import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
 
 /**
- * Service for handling incoming webhooks and publishing outgoing webhooks.
+ * Service for handling incoming webhooks. Outgoing events are recorded by WebhookOutbox and delivered by
+ * WebhookRelay.
  */
 @Service
 public class WebhookService {
@@ -36,24 +29,19 @@ public class WebhookService {
     private final InvoiceService invoiceService;
     private final InvoiceRepository invoiceRepository;
     private final PartnerRepository partnerRepository;
-    private final WebhookSubscriptionRepository subscriptionRepository;
-
-    @Value("${app.webhooks.outgoing.enabled:false}")
-    private boolean outgoingEnabled;
-
-    @Value("${app.webhooks.outgoing.defaultSecret:${WEBHOOK_OUTGOING_SIGNING_SECRET:}}")
-    private String defaultSigningSecret;
-
-    private final RestClient httpClient = RestClient.builder().build();
+    private final InvoiceResponseCache responseCache;
+    private final AnalyticsRollupService rollups;
 
     public WebhookService(InvoiceService invoiceService,
                           InvoiceRepository invoiceRepository,
                           PartnerRepository partnerRepository,
-                          WebhookSubscriptionRepository subscriptionRepository) {
+                          InvoiceResponseCache responseCache,
+                          AnalyticsRollupService rollups) {
         this.invoiceService = invoiceService;
         this.invoiceRepository = invoiceRepository;
         this.partnerRepository = partnerRepository;
-        this.subscriptionRepository = subscriptionRepository;
+        this.responseCache = responseCache;
+        this.rollups = rollups;
     }
 
     /**
@@ -108,6 +96,7 @@ public class WebhookService {
             return inv;
         }
 
+        AnalyticsRollupService.Snapshot rollupBefore = rollups.capture(inv);
         if ("PAID".equals(normalized)) {
             inv.setStatus(InvoiceStatus.PAID);
         } else if ("SENT".equals(normalized)) {
@@ -118,47 +107,8 @@ public class WebhookService {
             // Unknown mapping -> leave unchanged; still return invoice
             log.info("Unknown paymentStatus {}, leaving invoice status as {}", normalized, inv.getStatus());
         }
+        rollups.invoiceChanged(rollupBefore, inv);
+        responseCache.invalidate(inv.getId());
         return inv;
     }
-
-    /**
-     * Publish an outgoing webhook event when invoice status changes. Controlled via env toggle.
-     */
-    public void publishInvoiceStatusChange(Invoice invoice) {
-        if (!outgoingEnabled) {
-            return;
-        }
-        Partner partner = invoice.getPartner();
-        List<WebhookSubscription> subs = subscriptionRepository.findByPartnerAndActiveTrue(partner);
-        if (subs.isEmpty()) {
-            return;
-        }
-        for (WebhookSubscription sub : subs) {
-            try {
-                sendEvent(sub, "invoice.status.changed", """
-                        {"invoiceId": %d, "invoiceNumber": "%s", "status": "%s", "partnerId": %d}
-                        """.formatted(invoice.getId(), invoice.getInvoiceNumber(), invoice.getStatus().name(), partner.getId()));
-            } catch (Exception ex) {
-                log.warn("Failed to publish webhook to {}: {}", sub.getTargetUrl(), ex.getMessage());
-            }
-        }
-    }
-
-    private void sendEvent(WebhookSubscription sub, String eventType, String jsonBody) {
-        String secret = (sub.getSecretToken() != null && !sub.getSecretToken().isBlank()) ? sub.getSecretToken() : defaultSigningSecret;
-        String signature = null;
-        if (secret != null && !secret.isBlank()) {
-            // Placeholder signature. Replace with HMAC in production
-            signature = DigestUtils.md5DigestAsHex((jsonBody + secret).getBytes(StandardCharsets.UTF_8));
-        }
-        RestClient.RequestBodySpec req = httpClient.post()
-                .uri(sub.getTargetUrl())
-                .contentType(MediaType.APPLICATION_JSON)
-                .header("X-Webhook-Event", eventType)
-                .header("X-Request-Id", UUID.randomUUID().toString());
-        if (signature != null) {
-            req.header("X-Signature", signature);
-        }
-        req.body(jsonBody).retrieve().toBodilessEntity();
-    }
 }
@@ -0,0 +1,49 @@
+package com.example.invoicebackend.service.analytics;
+
+import java.time.LocalDate;
+
+/**
+ * Receivables aging buckets by days past due as of a date. Invoices without a due date are current.
+ */
+public enum AgingBucket {
+    CURRENT("current", Integer.MIN_VALUE, 0),
+    DAYS_1_30("1-30", 1, 30),
+    DAYS_31_60("31-60", 31, 60),
+    DAYS_61_90("61-90", 61, 90),
+    DAYS_90_PLUS("90+", 91, Integer.MAX_VALUE);
+
+    private final String key;
+    private final int minDays;
+    private final int maxDays;
+
+    AgingBucket(String key, int minDays, int maxDays) {
+        this.key = key;
+        this.minDays = minDays;
+        this.maxDays = maxDays;
+    }
+
+    public String key() { return key; }
+
+    // PUBLIC_INTERFACE
+    public LocalDate dueFrom(LocalDate asOf) {
+        /** Earliest due date in this bucket (inclusive); null when unbounded. */
+        return maxDays == Integer.MAX_VALUE ? null : asOf.minusDays(maxDays);
+    }
+
+    // PUBLIC_INTERFACE
+    public LocalDate dueTo(LocalDate asOf) {
+        /** Latest due date in this bucket (inclusive); null when unbounded. */
+        return minDays == Integer.MIN_VALUE ? null : asOf.minusDays(minDays);
+    }
+
+    // PUBLIC_INTERFACE
+    public static AgingBucket parse(String value) {
+        /** Parse a bucket key (current, 1-30, 31-60, 61-90, 90+) or enum name. */
+        for (AgingBucket b : values()) {
+            if (b.key.equalsIgnoreCase(value) || b.name().equalsIgnoreCase(value)) {
+                return b;
+            }
+        }
+        throw new IllegalArgumentException("Unknown aging bucket: " + value);
+    }
+}
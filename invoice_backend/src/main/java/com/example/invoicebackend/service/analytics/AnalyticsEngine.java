@@ -0,0 +1,65 @@
+package com.example.invoicebackend.service.analytics;
+
+import com.example.invoicebackend.repository.AnalyticsRepository.DayCount;
+import com.example.invoicebackend.repository.AnalyticsRepository.DayStatusTotal;
+import com.example.invoicebackend.repository.AnalyticsRepository.DayTotal;
+import com.example.invoicebackend.repository.AnalyticsRepository.InvoiceFilter;
+import com.example.invoicebackend.repository.AnalyticsRepository.PartnerRange;
+import com.example.invoicebackend.repository.AnalyticsRepository.SettlementTotals;
+import com.example.invoicebackend.repository.AnalyticsRepository.StatusTotal;
+import com.example.invoicebackend.service.AnalyticsRollupService.Snapshot;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Source of the aggregates behind AnalyticsService. Amounts are exact with scale 2; days and statuses
+ * without invoices (or payments) are omitted.
+ * The daily rollups are always maintained by AnalyticsRollupService; implementations that keep derived
+ * in-memory state are also notified of committed invoice changes.
+ */
+public interface AnalyticsEngine {
+
+    /**
+     * Invoice count and total amount per status of non-deleted invoices matching the filter.
+     */
+    List<StatusTotal> statusTotals(InvoiceFilter filter);
+
+    /**
+     * Invoice count and total amount per issue date and status of non-deleted invoices matching the filter.
+     */
+    List<DayStatusTotal> invoicedByDayAndStatus(InvoiceFilter filter);
+
+    /**
+     * COMPLETED payment count and amount per payment date of non-deleted invoices.
+     */
+    List<DayTotal> paidByDay(PartnerRange partners, LocalDate from, LocalDate to);
+
+    /**
+     * Number of customers per date of their first non-deleted invoice, for first dates within [from, to].
+     */
+    List<DayCount> newCustomersByDay(PartnerRange partners, LocalDate from, LocalDate to);
+
+    /**
+     * Settlement stats of PAID invoices issued within [issueFrom, issueTo] and paid within [paidFrom, paidTo].
+     */
+    SettlementTotals settlementTotals(PartnerRange partners, LocalDate issueFrom, LocalDate issueTo,
+                                      LocalDate paidFrom, LocalDate paidTo);
+
+    /**
+     * Histogram of payment delay days, max(0, paid - due), of the invoices counted by settlementTotals.
+     */
+    DelayHistogram settlementDelays(PartnerRange partners, LocalDate issueFrom, LocalDate issueTo,
+                                    LocalDate paidFrom, LocalDate paidTo);
+
+    /**
+     * Distinct count sketch of the customers of non-deleted invoices issued within [from, to].
+     */
+    HyperLogLog invoicedCustomers(PartnerRange partners, LocalDate from, LocalDate to);
+
+    /**
+     * Called after a transaction that created or changed invoices committed, with their new state.
+     */
+    default void invoicesChanged(List<Snapshot> invoices) {
+    }
+}
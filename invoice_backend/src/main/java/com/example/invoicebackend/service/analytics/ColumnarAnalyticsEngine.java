@@ -0,0 +1,540 @@
+package com.example.invoicebackend.service.analytics;
+
+import com.example.invoicebackend.model.enums.InvoiceStatus;
+import com.example.invoicebackend.repository.AnalyticsRepository;
+import com.example.invoicebackend.repository.AnalyticsRepository.DayCount;
+import com.example.invoicebackend.repository.AnalyticsRepository.DayStatusTotal;
+import com.example.invoicebackend.repository.AnalyticsRepository.DayTotal;
+import com.example.invoicebackend.repository.AnalyticsRepository.InvoiceFilter;
+import com.example.invoicebackend.repository.AnalyticsRepository.PartnerRange;
+import com.example.invoicebackend.repository.AnalyticsRepository.PaymentRollupRow;
+import com.example.invoicebackend.repository.AnalyticsRepository.SettlementTotals;
+import com.example.invoicebackend.repository.AnalyticsRepository.StatusTotal;
+import com.example.invoicebackend.service.AnalyticsRollupService.Snapshot;
+import com.example.invoicebackend.util.MoneyAccumulator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory analytics engine keeping a columnar snapshot of each partner's non-deleted invoices in primitive
+ * arrays (amount in cents, issue/due/last-paid epoch day, status ordinal, customer id) plus its COMPLETED payments
+ * (invoice id, epoch day, cents). Queries are single passes over the arrays; amounts are summed in
+ * MoneyAccumulators and only converted to BigDecimal for the result.
+ * A partner is loaded on first query and reloaded after app.analytics.memory.refresh-after, which bounds
+ * staleness from writes on other instances; committed local writes are applied as they happen.
+ */
+public class ColumnarAnalyticsEngine implements AnalyticsEngine {
+
+    private static final int NONE = Integer.MIN_VALUE;
+    private static final InvoiceStatus[] STATUSES = InvoiceStatus.values();
+    private static final byte PAID = (byte) InvoiceStatus.PAID.ordinal();
+    /** Widest day window aggregated into a dense array; days outside it fall back to a hash map. */
+    private static final int MAX_DENSE_DAYS = 1 << 16;
+
+    private final AnalyticsRepository analytics;
+    private final long refreshAfterNanos;
+    private final Map<Long, PartnerColumns> partners = new ConcurrentHashMap<>();
+
+    public ColumnarAnalyticsEngine(AnalyticsRepository analytics, Duration refreshAfter) {
+        this.analytics = analytics;
+        this.refreshAfterNanos = refreshAfter.toNanos();
+    }
+
+    @Override
+    public List<StatusTotal> statusTotals(InvoiceFilter filter) {
+        int from = dayOrMin(filter.issueFrom());
+        int to = dayOrMax(filter.issueTo());
+        int wanted = filter.status() == null ? -1 : filter.status().ordinal();
+        long[] counts = new long[STATUSES.length];
+        MoneyAccumulator[] sums = new MoneyAccumulator[STATUSES.length];
+        Arrays.setAll(sums, s -> new MoneyAccumulator());
+        for (PartnerColumns c : columns(filter.partners())) {
+            c.lock.readLock().lock();
+            try {
+                for (int i = 0; i < c.size; i++) {
+                    int d = c.issueDay[i];
+                    int s = c.status[i];
+                    if (d < from || d > to || (wanted >= 0 && s != wanted)) {
+                        continue;
+                    }
+                    counts[s]++;
+                    sums[s].addCents(c.amountCents[i]);
+                }
+            } finally {
+                c.lock.readLock().unlock();
+            }
+        }
+        List<StatusTotal> result = new ArrayList<>();
+        for (int s = 0; s < counts.length; s++) {
+            if (counts[s] > 0) {
+                result.add(new StatusTotal(STATUSES[s], counts[s], sums[s].toBigDecimal()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<DayStatusTotal> invoicedByDayAndStatus(InvoiceFilter filter) {
+        List<PartnerColumns> cols = columns(filter.partners());
+        int wanted = filter.status() == null ? -1 : filter.status().ordinal();
+        int from = dayOrMin(filter.issueFrom());
+        int to = dayOrMax(filter.issueTo());
+        int lo = cols.stream().mapToInt(c -> Math.max(from, c.minIssueDay)).min().orElse(0);
+        int hi = cols.stream().mapToInt(c -> Math.min(to, c.maxIssueDay)).max().orElse(-1);
+        DaySums[] byStatus = new DaySums[STATUSES.length];
+        for (PartnerColumns c : cols) {
+            c.lock.readLock().lock();
+            try {
+                for (int i = 0; i < c.size; i++) {
+                    int d = c.issueDay[i];
+                    int s = c.status[i];
+                    if (d < from || d > to || (wanted >= 0 && s != wanted)) {
+                        continue;
+                    }
+                    if (byStatus[s] == null) {
+                        byStatus[s] = new DaySums(lo, hi);
+                    }
+                    byStatus[s].add(d, c.amountCents[i]);
+                }
+            } finally {
+                c.lock.readLock().unlock();
+            }
+        }
+        List<DayStatusTotal> result = new ArrayList<>();
+        for (int s = 0; s < byStatus.length; s++) {
+            if (byStatus[s] != null) {
+                for (DayTotal t : byStatus[s].toList()) {
+                    result.add(new DayStatusTotal(t.date(), STATUSES[s], t.count(), t.amount()));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<DayTotal> paidByDay(PartnerRange partners, LocalDate fromDate, LocalDate toDate) {
+        List<PartnerColumns> cols = columns(partners);
+        int from = dayOrMin(fromDate);
+        int to = dayOrMax(toDate);
+        DaySums days = new DaySums(cols.stream().mapToInt(c -> Math.max(from, c.minPaymentDay)).min().orElse(0),
+                cols.stream().mapToInt(c -> Math.min(to, c.maxPaymentDay)).max().orElse(-1));
+        for (PartnerColumns c : cols) {
+            c.lock.readLock().lock();
+            try {
+                for (int i = 0; i < c.paymentSize; i++) {
+                    int d = c.paymentDay[i];
+                    if (d >= from && d <= to) {
+                        days.add(d, c.paymentCents[i]);
+                    }
+                }
+            } finally {
+                c.lock.readLock().unlock();
+            }
+        }
+        return days.toList();
+    }
+
+    @Override
+    public List<DayCount> newCustomersByDay(PartnerRange partners, LocalDate fromDate, LocalDate toDate) {
+        List<PartnerColumns> cols = columns(partners);
+        int from = dayOrMin(fromDate);
+        int to = dayOrMax(toDate);
+        DaySums days = new DaySums(cols.stream().mapToInt(c -> Math.max(from, c.minIssueDay)).min().orElse(0),
+                cols.stream().mapToInt(c -> Math.min(to, c.maxIssueDay)).max().orElse(-1));
+        for (PartnerColumns c : cols) {
+            LongIntMap firstDay = new LongIntMap();
+            c.lock.readLock().lock();
+            try {
+                for (int i = 0; i < c.size; i++) {
+                    long customer = c.customerId[i];
+                    int first = firstDay.get(customer, NONE);
+                    if (first == NONE || c.issueDay[i] < first) {
+                        firstDay.put(customer, c.issueDay[i]);
+                    }
+                }
+            } finally {
+                c.lock.readLock().unlock();
+            }
+            firstDay.forEach((customer, d) -> {
+                if (d >= from && d <= to) {
+                    days.add(d, 0);
+                }
+            });
+        }
+        return days.toList().stream().map(t -> new DayCount(t.date(), t.count())).toList();
+    }
+
+    @Override
+    public SettlementTotals settlementTotals(PartnerRange partners, LocalDate issueFrom, LocalDate issueTo,
+                                             LocalDate paidFrom, LocalDate paidTo) {
+        int iFrom = dayOrMin(issueFrom);
+        int iTo = dayOrMax(issueTo);
+        int pFrom = dayOrMin(paidFrom);
+        int pTo = dayOrMax(paidTo);
+        long count = 0;
+        long onTime = 0;
+        long delaySum = 0;
+        for (PartnerColumns c : columns(partners)) {
+            c.lock.readLock().lock();
+            try {
+                for (int i = 0; i < c.size; i++) {
+                    int issue = c.issueDay[i];
+                    int paid = c.lastPaidDay[i];
+                    int due = c.dueDay[i];
+                    if (c.status[i] != PAID || due == NONE || paid == NONE
+                            || issue < iFrom || issue > iTo || paid < pFrom || paid > pTo) {
+                        continue;
+                    }
+                    count++;
+                    if (paid <= due) {
+                        onTime++;
+                    } else {
+                        delaySum += paid - due;
+                    }
+                }
+            } finally {
+                c.lock.readLock().unlock();
+            }
+        }
+        return new SettlementTotals(count, onTime, delaySum);
+    }
+
+    @Override
+    public DelayHistogram settlementDelays(PartnerRange partners, LocalDate issueFrom, LocalDate issueTo,
+                                           LocalDate paidFrom, LocalDate paidTo) {
+        int iFrom = dayOrMin(issueFrom);
+        int iTo = dayOrMax(issueTo);
+        int pFrom = dayOrMin(paidFrom);
+        int pTo = dayOrMax(paidTo);
+        DelayHistogram h = new DelayHistogram();
+        for (PartnerColumns c : columns(partners)) {
+            c.lock.readLock().lock();
+            try {
+                for (int i = 0; i < c.size; i++) {
+                    int issue = c.issueDay[i];
+                    int paid = c.lastPaidDay[i];
+                    int due = c.dueDay[i];
+                    if (c.status[i] != PAID || due == NONE || paid == NONE
+                            || issue < iFrom || issue > iTo || paid < pFrom || paid > pTo) {
+                        continue;
+                    }
+                    h.add(Math.max(0, paid - due), 1);
+                }
+            } finally {
+                c.lock.readLock().unlock();
+            }
+        }
+        return h;
+    }
+
+    @Override
+    public HyperLogLog invoicedCustomers(PartnerRange partners, LocalDate fromDate, LocalDate toDate) {
+        int from = dayOrMin(fromDate);
+        int to = dayOrMax(toDate);
+        HyperLogLog sketch = new HyperLogLog();
+        for (PartnerColumns c : columns(partners)) {
+            c.lock.readLock().lock();
+            try {
+                for (int i = 0; i < c.size; i++) {
+                    if (c.issueDay[i] >= from && c.issueDay[i] <= to) {
+                        sketch.offer(c.customerId[i]);
+                    }
+                }
+            } finally {
+                c.lock.readLock().unlock();
+            }
+        }
+        return sketch;
+    }
+
+    @Override
+    public void invoicesChanged(List<Snapshot> invoices) {
+        for (Snapshot s : invoices) {
+            // Partners not loaded yet will read the committed state when they are
+            PartnerColumns c = partners.get(s.partnerId());
+            if (c != null) {
+                c.apply(s);
+            }
+        }
+    }
+
+    private List<PartnerColumns> columns(PartnerRange range) {
+        if (range.fromId() != null && range.fromId().equals(range.toId())) {
+            return List.of(columns(range.fromId()));
+        }
+        List<PartnerColumns> result = new ArrayList<>();
+        for (Long id : analytics.partnerIds()) {
+            if ((range.fromId() == null || id >= range.fromId()) && (range.toId() == null || id <= range.toId())) {
+                result.add(columns(id));
+            }
+        }
+        return result;
+    }
+
+    private PartnerColumns columns(Long partnerId) {
+        PartnerColumns current = partners.get(partnerId);
+        if (current == null || System.nanoTime() - current.loadedAt > refreshAfterNanos) {
+            PartnerColumns fresh = new PartnerColumns();
+            boolean mine = current == null
+                    ? partners.putIfAbsent(partnerId, fresh) == null
+                    : partners.replace(partnerId, current, fresh);
+            if (mine) {
+                load(partnerId, fresh);
+                return fresh;
+            }
+            current = partners.get(partnerId);
+            if (current == null) {
+                return columns(partnerId);
+            }
+        }
+        current.ready.join();
+        return current;
+    }
+
+    private void load(Long partnerId, PartnerColumns c) {
+        try {
+            analytics.streamInvoices(partnerId, rs -> c.put(rs.getLong(1), cents(rs.getBigDecimal(2)),
+                    day(rs.getDate(3)), day(rs.getDate(4)), (byte) InvoiceStatus.valueOf(rs.getString(5)).ordinal(),
+                    rs.getLong(6)));
+            analytics.streamCompletedPayments(partnerId, rs -> c.addPayment(rs.getLong(1),
+                    day(rs.getDate(2)), cents(rs.getBigDecimal(3))));
+            c.finishLoading();
+            c.ready.complete(null);
+        } catch (RuntimeException e) {
+            partners.remove(partnerId, c);
+            c.ready.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static int day(Date date) {
+        return date == null ? NONE : (int) date.toLocalDate().toEpochDay();
+    }
+
+    private static int day(LocalDate date) {
+        return date == null ? NONE : (int) date.toEpochDay();
+    }
+
+    private static int dayOrMin(LocalDate date) {
+        return date == null ? Integer.MIN_VALUE + 1 : (int) date.toEpochDay();
+    }
+
+    private static int dayOrMax(LocalDate date) {
+        return date == null ? Integer.MAX_VALUE : (int) date.toEpochDay();
+    }
+
+    /**
+     * Columns of one partner. Reads hold the read lock; committed changes are applied under the write lock.
+     * While loading, changes are queued and replayed once the load finishes; each change carries the full
+     * new state of an invoice, so replaying one the load already saw is harmless.
+     */
+    private static final class PartnerColumns {
+        final long loadedAt = System.nanoTime();
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        final CompletableFuture<Void> ready = new CompletableFuture<>();
+        private boolean loading = true;
+        private List<Snapshot> pending = new ArrayList<>();
+
+        int size;
+        long[] ids = new long[16];
+        long[] amountCents = new long[16];
+        int[] issueDay = new int[16];
+        int[] dueDay = new int[16];
+        byte[] status = new byte[16];
+        int[] lastPaidDay = new int[16];
+        long[] customerId = new long[16];
+        int minIssueDay = Integer.MAX_VALUE;
+        int maxIssueDay = Integer.MIN_VALUE;
+        private final LongIntMap slots = new LongIntMap();
+
+        int paymentSize;
+        long[] paymentInvoice = new long[16];
+        int[] paymentDay = new int[16];
+        long[] paymentCents = new long[16];
+        int minPaymentDay = Integer.MAX_VALUE;
+        int maxPaymentDay = Integer.MIN_VALUE;
+
+        void apply(Snapshot s) {
+            lock.writeLock().lock();
+            try {
+                if (loading) {
+                    pending.add(s);
+                } else {
+                    upsert(s);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void finishLoading() {
+            lock.writeLock().lock();
+            try {
+                pending.forEach(this::upsert);
+                pending = null;
+                loading = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void upsert(Snapshot s) {
+            removePayments(s.invoiceId());
+            if (s.deleted()) {
+                remove(s.invoiceId());
+                return;
+            }
+            put(s.invoiceId(), cents(s.totalAmount()), day(s.issueDate()), day(s.dueDate()), (byte) s.status().ordinal(),
+                    s.customerId() != null ? s.customerId() : 0);
+            for (PaymentRollupRow p : s.payments()) {
+                addPayment(s.invoiceId(), day(p.paymentDate()), cents(p.paidAmount()));
+            }
+        }
+
+        void put(long id, long cents, int issue, int due, byte st, long customer) {
+            int i = slots.get(id);
+            if (i < 0) {
+                i = size++;
+                if (i == ids.length) {
+                    int cap = ids.length * 2;
+                    ids = Arrays.copyOf(ids, cap);
+                    amountCents = Arrays.copyOf(amountCents, cap);
+                    issueDay = Arrays.copyOf(issueDay, cap);
+                    dueDay = Arrays.copyOf(dueDay, cap);
+                    status = Arrays.copyOf(status, cap);
+                    lastPaidDay = Arrays.copyOf(lastPaidDay, cap);
+                    customerId = Arrays.copyOf(customerId, cap);
+                }
+                ids[i] = id;
+                lastPaidDay[i] = NONE;
+                slots.put(id, i);
+            }
+            amountCents[i] = cents;
+            issueDay[i] = issue;
+            dueDay[i] = due;
+            status[i] = st;
+            customerId[i] = customer;
+            minIssueDay = Math.min(minIssueDay, issue);
+            maxIssueDay = Math.max(maxIssueDay, issue);
+        }
+
+        void addPayment(long invoiceId, int day, long cents) {
+            int slot = slots.get(invoiceId);
+            if (slot < 0) {
+                return;
+            }
+            if (paymentSize == paymentInvoice.length) {
+                int cap = paymentInvoice.length * 2;
+                paymentInvoice = Arrays.copyOf(paymentInvoice, cap);
+                paymentDay = Arrays.copyOf(paymentDay, cap);
+                paymentCents = Arrays.copyOf(paymentCents, cap);
+            }
+            paymentInvoice[paymentSize] = invoiceId;
+            paymentDay[paymentSize] = day;
+            paymentCents[paymentSize] = cents;
+            paymentSize++;
+            lastPaidDay[slot] = Math.max(lastPaidDay[slot], day);
+            minPaymentDay = Math.min(minPaymentDay, day);
+            maxPaymentDay = Math.max(maxPaymentDay, day);
+        }
+
+        private void remove(long id) {
+            int i = slots.get(id);
+            if (i < 0) {
+                return;
+            }
+            slots.remove(id);
+            int last = --size;
+            if (i != last) {
+                ids[i] = ids[last];
+                amountCents[i] = amountCents[last];
+                issueDay[i] = issueDay[last];
+                dueDay[i] = dueDay[last];
+                status[i] = status[last];
+                lastPaidDay[i] = lastPaidDay[last];
+                customerId[i] = customerId[last];
+                slots.put(ids[i], i);
+            }
+        }
+
+        /** Linear in the partner's payments; payment changes are rare compared to reads. */
+        private void removePayments(long invoiceId) {
+            int i = 0;
+            while (i < paymentSize) {
+                if (paymentInvoice[i] == invoiceId) {
+                    int last = --paymentSize;
+                    paymentInvoice[i] = paymentInvoice[last];
+                    paymentDay[i] = paymentDay[last];
+                    paymentCents[i] = paymentCents[last];
+                } else {
+                    i++;
+                }
+            }
+            int slot = slots.get(invoiceId);
+            if (slot >= 0) {
+                lastPaidDay[slot] = NONE;
+            }
+        }
+    }
+
+    /**
+     * Count and amount per epoch day: a dense array over the expected day window, with days outside it
+     * (window wider than MAX_DENSE_DAYS, or extended by a concurrent write) kept in a hash map.
+     */
+    private static final class DaySums {
+        private final int lo;
+        private final long[] counts;
+        private final MoneyAccumulator[] sums;
+        private final Map<Integer, DayCents> sparse = new HashMap<>();
+
+        DaySums(int lo, int hi) {
+            long span = Math.min((long) hi - lo + 1, MAX_DENSE_DAYS);
+            this.lo = lo;
+            this.counts = new long[(int) Math.max(span, 0)];
+            this.sums = new MoneyAccumulator[counts.length];
+        }
+
+        void add(int day, long cents) {
+            long i = (long) day - lo;
+            if (i >= 0 && i < counts.length) {
+                int slot = (int) i;
+                if (counts[slot]++ == 0) {
+                    sums[slot] = new MoneyAccumulator();
+                }
+                sums[slot].addCents(cents);
+            } else {
+                DayCents d = sparse.computeIfAbsent(day, k -> new DayCents());
+                d.count++;
+                d.sum.addCents(cents);
+            }
+        }
+
+        List<DayTotal> toList() {
+            List<DayTotal> result = new ArrayList<>();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    result.add(new DayTotal(LocalDate.ofEpochDay(lo + i), counts[i], sums[i].toBigDecimal()));
+                }
+            }
+            sparse.forEach((day, d) -> result.add(new DayTotal(LocalDate.ofEpochDay(day), d.count, d.sum.toBigDecimal())));
+            return result;
+        }
+
+        private static final class DayCents {
+            long count;
+            final MoneyAccumulator sum = new MoneyAccumulator();
+        }
+    }
+}
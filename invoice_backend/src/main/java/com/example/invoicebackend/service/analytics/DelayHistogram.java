@@ -0,0 +1,55 @@
+package com.example.invoicebackend.service.analytics;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Count of settled invoices per whole day of payment delay. Delays are integral, so the histogram answers
+ * percentiles exactly with one entry per distinct delay; histograms of partners and date windows merge by adding
+ * counts. Not thread-safe.
+ */
+public final class DelayHistogram {
+
+    private final TreeMap<Integer, Long> counts = new TreeMap<>();
+    private long total;
+
+    // PUBLIC_INTERFACE
+    public DelayHistogram add(int delayDays, long count) {
+        /** Add count invoices settled delayDays days after their due date. */
+        if (count != 0) {
+            counts.merge(delayDays, count, Long::sum);
+            total += count;
+        }
+        return this;
+    }
+
+    // PUBLIC_INTERFACE
+    public DelayHistogram merge(DelayHistogram other) {
+        /** Add all counts of another histogram. */
+        other.counts.forEach(this::add);
+        return this;
+    }
+
+    // PUBLIC_INTERFACE
+    public long count() {
+        /** Number of invoices in the histogram. */
+        return total;
+    }
+
+    // PUBLIC_INTERFACE
+    public Integer percentile(double q) {
+        /** Nearest-rank percentile for q in (0, 1]; null when empty. */
+        if (total <= 0) {
+            return null;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (Map.Entry<Integer, Long> e : counts.entrySet()) {
+            seen += e.getValue();
+            if (seen >= rank) {
+                return e.getKey();
+            }
+        }
+        return counts.lastKey();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.invoicebackend.service.analytics;
+
+/**
+ * HyperLogLog distinct count sketch with 2^12 registers (about 1.6% standard error) over 64-bit hashes.
+ * Sketches of partners and date windows merge by taking the register-wise maximum, so the daily rollups only
+ * store the registers a day's customers touched. Not thread-safe.
+ */
+public final class HyperLogLog {
+
+    public static final int PRECISION = 12;
+    public static final int REGISTERS = 1 << PRECISION;
+
+    private final byte[] ranks = new byte[REGISTERS];
+
+    // PUBLIC_INTERFACE
+    public static int registerOf(long value) {
+        /** Register index a value maps to. */
+        return (int) (hash(value) >>> (64 - PRECISION));
+    }
+
+    // PUBLIC_INTERFACE
+    public static int rankOf(long value) {
+        /** Rank (position of the first set bit after the index bits, 1-based) a value contributes to its register. */
+        long rest = hash(value) << PRECISION;
+        return Math.min(Long.numberOfLeadingZeros(rest), 64 - PRECISION) + 1;
+    }
+
+    // PUBLIC_INTERFACE
+    public HyperLogLog offer(long value) {
+        /** Add a value. */
+        return setRank(registerOf(value), rankOf(value));
+    }
+
+    // PUBLIC_INTERFACE
+    public HyperLogLog setRank(int register, int rank) {
+        /** Raise a register to at least the given rank. */
+        if (rank > ranks[register]) {
+            ranks[register] = (byte) rank;
+        }
+        return this;
+    }
+
+    // PUBLIC_INTERFACE
+    public HyperLogLog merge(HyperLogLog other) {
+        /** Union with another sketch. */
+        for (int i = 0; i < REGISTERS; i++) {
+            setRank(i, other.ranks[i]);
+        }
+        return this;
+    }
+
+    // PUBLIC_INTERFACE
+    public long estimate() {
+        /** Estimated number of distinct values, with linear counting for small cardinalities. */
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : ranks) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / REGISTERS);
+        double estimate = alpha * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /** MurmurHash3 64-bit finalizer: spreads sequential ids over all bits. */
+    private static long hash(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53e94cbL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
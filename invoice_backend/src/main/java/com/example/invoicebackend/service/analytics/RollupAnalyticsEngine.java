@@ -0,0 +1,74 @@
+package com.example.invoicebackend.service.analytics;
+
+import com.example.invoicebackend.repository.AnalyticsRepository;
+import com.example.invoicebackend.repository.AnalyticsRepository.DayCount;
+import com.example.invoicebackend.repository.AnalyticsRepository.DelayCount;
+import com.example.invoicebackend.repository.AnalyticsRepository.DayStatusTotal;
+import com.example.invoicebackend.repository.AnalyticsRepository.DayTotal;
+import com.example.invoicebackend.repository.AnalyticsRepository.InvoiceFilter;
+import com.example.invoicebackend.repository.AnalyticsRepository.PartnerRange;
+import com.example.invoicebackend.repository.AnalyticsRepository.SettlementTotals;
+import com.example.invoicebackend.repository.AnalyticsRepository.SketchRegister;
+import com.example.invoicebackend.repository.AnalyticsRepository.StatusTotal;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Answers analytics with grouped queries over the daily rollup tables (default engine); new customers are
+ * grouped from the invoices table. Customer sketches only grow between rebuilds, so distinct customer counts can
+ * include customers whose invoices in the window were deleted since.
+ */
+public class RollupAnalyticsEngine implements AnalyticsEngine {
+
+    private final AnalyticsRepository analytics;
+
+    public RollupAnalyticsEngine(AnalyticsRepository analytics) {
+        this.analytics = analytics;
+    }
+
+    @Override
+    public List<StatusTotal> statusTotals(InvoiceFilter filter) {
+        return analytics.statusTotals(filter);
+    }
+
+    @Override
+    public List<DayStatusTotal> invoicedByDayAndStatus(InvoiceFilter filter) {
+        return analytics.invoicedByDayAndStatus(filter);
+    }
+
+    @Override
+    public List<DayTotal> paidByDay(PartnerRange partners, LocalDate from, LocalDate to) {
+        return analytics.paidByDay(partners, from, to);
+    }
+
+    @Override
+    public List<DayCount> newCustomersByDay(PartnerRange partners, LocalDate from, LocalDate to) {
+        return analytics.newCustomersByDay(partners, from, to);
+    }
+
+    @Override
+    public SettlementTotals settlementTotals(PartnerRange partners, LocalDate issueFrom, LocalDate issueTo,
+                                             LocalDate paidFrom, LocalDate paidTo) {
+        return analytics.settlementTotals(partners, issueFrom, issueTo, paidFrom, paidTo);
+    }
+
+    @Override
+    public DelayHistogram settlementDelays(PartnerRange partners, LocalDate issueFrom, LocalDate issueTo,
+                                           LocalDate paidFrom, LocalDate paidTo) {
+        DelayHistogram h = new DelayHistogram();
+        for (DelayCount d : analytics.settlementDelays(partners, issueFrom, issueTo, paidFrom, paidTo)) {
+            h.add(d.delayDays(), d.count());
+        }
+        return h;
+    }
+
+    @Override
+    public HyperLogLog invoicedCustomers(PartnerRange partners, LocalDate from, LocalDate to) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (SketchRegister r : analytics.customerSketch(partners, from, to)) {
+            sketch.setRank(r.register(), r.rank());
+        }
+        return sketch;
+    }
+}
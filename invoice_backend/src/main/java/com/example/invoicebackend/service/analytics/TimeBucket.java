@@ -0,0 +1,56 @@
+package com.example.invoicebackend.service.analytics;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Timeseries granularity. Buckets are identified by their first day; weeks are ISO weeks starting on Monday.
+ */
+public enum TimeBucket {
+    DAY,
+    WEEK,
+    MONTH,
+    QUARTER;
+
+    // PUBLIC_INTERFACE
+    public LocalDate start(LocalDate date) {
+        /** First day of the bucket containing the date. */
+        return switch (this) {
+            case DAY -> date;
+            case WEEK -> date.with(DayOfWeek.MONDAY);
+            case MONTH -> date.withDayOfMonth(1);
+            case QUARTER -> date.withDayOfMonth(1).withMonth((date.getMonthValue() - 1) / 3 * 3 + 1);
+        };
+    }
+
+    // PUBLIC_INTERFACE
+    public LocalDate next(LocalDate start) {
+        /** First day of the bucket following the one starting at start. */
+        return switch (this) {
+            case DAY -> start.plusDays(1);
+            case WEEK -> start.plusWeeks(1);
+            case MONTH -> start.plusMonths(1);
+            case QUARTER -> start.plusMonths(3);
+        };
+    }
+
+    // PUBLIC_INTERFACE
+    public String key() {
+        /** Lower-case name used in requests and responses. */
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    // PUBLIC_INTERFACE
+    public static TimeBucket parse(String value) {
+        /** Parse day|week|month|quarter (case-insensitive); month when blank. */
+        if (value == null || value.isBlank()) {
+            return MONTH;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown granularity: " + value);
+        }
+    }
+}
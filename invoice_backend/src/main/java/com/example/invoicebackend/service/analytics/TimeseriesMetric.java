@@ -0,0 +1,43 @@
+package com.example.invoicebackend.service.analytics;
+
+import java.util.Locale;
+
+/**
+ * Metrics available as timeseries. Amount metrics report an amount and a count per bucket, count metrics
+ * only a count.
+ */
+public enum TimeseriesMetric {
+    /** Total amount of invoices by issue date. */
+    INVOICED("invoiced", false),
+    /** COMPLETED payments by payment date. */
+    PAID("paid", false),
+    /** Total amount of invoices by issue date that are neither PAID nor CANCELED. */
+    OUTSTANDING("outstanding", false),
+    /** Number of OVERDUE invoices by issue date. */
+    OVERDUE_COUNT("overdue_count", true),
+    /** Number of customers by the issue date of their first invoice. */
+    NEW_CUSTOMERS("new_customers", true);
+
+    private final String key;
+    private final boolean count;
+
+    TimeseriesMetric(String key, boolean count) {
+        this.key = key;
+        this.count = count;
+    }
+
+    public String key() { return key; }
+    public boolean isCount() { return count; }
+
+    // PUBLIC_INTERFACE
+    public static TimeseriesMetric parse(String value) {
+        /** Parse a metric key, case-insensitive and ignoring '_'/'-' (overdue_count, overdueCount, ...). */
+        String normalized = value == null ? "" : value.trim().toLowerCase(Locale.ROOT).replace("_", "").replace("-", "");
+        for (TimeseriesMetric m : values()) {
+            if (m.key.replace("_", "").equals(normalized)) {
+                return m;
+            }
+        }
+        throw new IllegalArgumentException("Unknown metric: " + value);
+    }
+}
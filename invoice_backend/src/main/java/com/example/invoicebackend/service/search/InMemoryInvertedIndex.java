@@ -0,0 +1,145 @@
+package com.example.invoicebackend.service.search;
+
+import com.example.invoicebackend.model.InvoiceSearchDocument;
+import com.example.invoicebackend.repository.InvoiceSearchDocumentRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Embedded inverted index used where the database has no full-text support (H2 dev profile).
+ * Terms are kept per partner in a sorted map so prefix lookups are a sub-map range scan.
+ * Built lazily from invoice_search_documents on first search, then maintained from change notifications.
+ */
+public class InMemoryInvertedIndex implements InvoiceSearchIndex {
+
+    private final InvoiceSearchDocumentRepository documents;
+    private final Map<Long, PartnerIndex> partners = new ConcurrentHashMap<>();
+    private final Map<Long, Long> partnerByInvoice = new ConcurrentHashMap<>();
+    private volatile boolean loaded = false;
+
+    public InMemoryInvertedIndex(InvoiceSearchDocumentRepository documents) {
+        this.documents = documents;
+    }
+
+    @Override
+    public void documentChanged(Long invoiceId, Long partnerId, String document) {
+        ensureLoaded();
+        put(invoiceId, partnerId, document);
+    }
+
+    @Override
+    public void documentRemoved(Long invoiceId) {
+        ensureLoaded();
+        Long partnerId = partnerByInvoice.remove(invoiceId);
+        if (partnerId != null) {
+            partners.get(partnerId).remove(invoiceId);
+        }
+    }
+
+    @Override
+    public SearchHits search(Long partnerId, List<String> terms, int page, int size) {
+        ensureLoaded();
+        PartnerIndex index = partners.get(partnerId);
+        if (index == null || terms.isEmpty()) {
+            return new SearchHits(List.of(), 0);
+        }
+        Map<Long, Integer> scores = index.match(terms);
+        List<Long> ranked = scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.<Long, Integer>comparingByKey().reversed()))
+                .map(Map.Entry::getKey)
+                .toList();
+        int from = Math.min(page * size, ranked.size());
+        int to = Math.min(from + size, ranked.size());
+        return new SearchHits(ranked.subList(from, to), ranked.size());
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                for (InvoiceSearchDocument d : documents.findAll()) {
+                    put(d.getInvoiceId(), d.getPartnerId(), d.getDocument());
+                }
+                loaded = true;
+            }
+        }
+    }
+
+    private void put(Long invoiceId, Long partnerId, String document) {
+        Long previous = partnerByInvoice.put(invoiceId, partnerId);
+        if (previous != null && !previous.equals(partnerId)) {
+            partners.get(previous).remove(invoiceId);
+        }
+        partners.computeIfAbsent(partnerId, id -> new PartnerIndex()).put(invoiceId, InvoiceSearchIndex.tokenize(document));
+    }
+
+    /**
+     * Inverted index of one partner's documents. Mutations are serialized; reads see a consistent map.
+     */
+    private static final class PartnerIndex {
+        private final ConcurrentSkipListMap<String, Set<Long>> postings = new ConcurrentSkipListMap<>();
+        private final Map<Long, Set<String>> termsByInvoice = new ConcurrentHashMap<>();
+
+        synchronized void put(Long invoiceId, List<String> terms) {
+            remove(invoiceId);
+            Set<String> unique = new HashSet<>(terms);
+            termsByInvoice.put(invoiceId, unique);
+            for (String t : unique) {
+                postings.computeIfAbsent(t, k -> ConcurrentHashMap.newKeySet()).add(invoiceId);
+            }
+        }
+
+        synchronized void remove(Long invoiceId) {
+            Set<String> old = termsByInvoice.remove(invoiceId);
+            if (old == null) {
+                return;
+            }
+            for (String t : old) {
+                Set<Long> ids = postings.get(t);
+                if (ids != null) {
+                    ids.remove(invoiceId);
+                    if (ids.isEmpty()) {
+                        postings.remove(t);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Invoices matching every query term by prefix. Score is 2 per exact term match, 1 per prefix-only match.
+         */
+        Map<Long, Integer> match(List<String> queryTerms) {
+            Map<Long, Integer> result = null;
+            for (String q : queryTerms) {
+                Map<Long, Integer> termScores = new HashMap<>();
+                for (Map.Entry<String, Set<Long>> e : postings.subMap(q, true, q + Character.MAX_VALUE, false).entrySet()) {
+                    int score = e.getKey().equals(q) ? 2 : 1;
+                    for (Long id : e.getValue()) {
+                        termScores.merge(id, score, Math::max);
+                    }
+                }
+                if (result == null) {
+                    result = termScores;
+                } else {
+                    Map<Long, Integer> next = new HashMap<>();
+                    for (Map.Entry<Long, Integer> e : result.entrySet()) {
+                        Integer s = termScores.get(e.getKey());
+                        if (s != null) {
+                            next.put(e.getKey(), e.getValue() + s);
+                        }
+                    }
+                    result = next;
+                }
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            return result == null ? Map.of() : result;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.invoicebackend.service.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Abstraction over the full-text index used for invoice search.
+ * Documents are persisted in invoice_search_documents by InvoiceSearchService; implementations
+ * are notified of changes so they can maintain any derived in-memory state.
+ */
+public interface InvoiceSearchIndex {
+
+    /**
+     * Called after an invoice's search document was written.
+     */
+    void documentChanged(Long invoiceId, Long partnerId, String document);
+
+    /**
+     * Called after an invoice's search document was removed.
+     */
+    void documentRemoved(Long invoiceId);
+
+    /**
+     * Ranked prefix search over a partner's documents. All query terms must match.
+     */
+    SearchHits search(Long partnerId, List<String> terms, int page, int size);
+
+    /**
+     * Split text into lower-case letter/digit terms, the same way for documents and queries.
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String t : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!t.isEmpty()) {
+                terms.add(t);
+            }
+        }
+        return terms;
+    }
+}
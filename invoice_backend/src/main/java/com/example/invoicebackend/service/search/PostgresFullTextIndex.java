@@ -0,0 +1,54 @@
+package com.example.invoicebackend.service.search;
+
+import jakarta.persistence.EntityManager;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * PostgreSQL full-text index: queries the generated tsvector column of invoice_search_documents
+ * through its GIN index and ranks with ts_rank. The vector is maintained by the database, so
+ * change notifications are no-ops.
+ */
+public class PostgresFullTextIndex implements InvoiceSearchIndex {
+
+    private static final String MATCH =
+            " FROM {h-schema}invoice_search_documents d" +
+            " WHERE d.partner_id = :partnerId AND d.search_vector @@ to_tsquery('simple', :query)";
+
+    private final EntityManager em;
+
+    public PostgresFullTextIndex(EntityManager em) {
+        this.em = em;
+    }
+
+    @Override
+    public void documentChanged(Long invoiceId, Long partnerId, String document) {
+        // search_vector is a stored generated column
+    }
+
+    @Override
+    public void documentRemoved(Long invoiceId) {
+        // row deletion removes it from the GIN index
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public SearchHits search(Long partnerId, List<String> terms, int page, int size) {
+        // Terms are already restricted to letters/digits, so they are safe tsquery lexemes; ':*' enables prefix match
+        String query = terms.stream().map(t -> t + ":*").collect(Collectors.joining(" & "));
+        List<Number> ids = em.createNativeQuery(
+                        "SELECT d.invoice_id" + MATCH +
+                        " ORDER BY ts_rank(d.search_vector, to_tsquery('simple', :query)) DESC, d.invoice_id DESC")
+                .setParameter("partnerId", partnerId)
+                .setParameter("query", query)
+                .setFirstResult(page * size)
+                .setMaxResults(size)
+                .getResultList();
+        long total = ((Number) em.createNativeQuery("SELECT COUNT(*)" + MATCH)
+                .setParameter("partnerId", partnerId)
+                .setParameter("query", query)
+                .getSingleResult()).longValue();
+        return new SearchHits(ids.stream().map(Number::longValue).toList(), total);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.invoicebackend.service.search;
+
+import java.util.List;
+
+/**
+ * One page of full-text hits: invoice ids in rank order plus the total number of matches.
+ */
+public record SearchHits(List<Long> invoiceIds, long total) {
+}
@@ -0,0 +1,54 @@
+package com.example.invoicebackend.service.webhook;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Keeps a claim on stored webhook rows alive while their deliveries run, by renewing it every half claim timeout.
+ * Without renewal a batch that takes longer than the claim timeout (slow targets, full dispatch queues) would be
+ * taken over and sent again by another poller.
+ */
+final class ClaimLease {
+
+    private final Runnable renew;
+    private final long renewEveryNanos;
+    private long renewedAt = System.nanoTime();
+
+    ClaimLease(Duration claimTimeout, Runnable renew) {
+        this.renew = renew;
+        this.renewEveryNanos = Math.max(1, claimTimeout.toNanos() / 2);
+    }
+
+    /**
+     * Renew the claim if half the claim timeout passed since it was taken or last renewed.
+     */
+    void renewIfDue() {
+        if (System.nanoTime() - renewedAt >= renewEveryNanos) {
+            renew.run();
+            renewedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Wait until done completes, renewing the claim meanwhile.
+     */
+    void await(CompletableFuture<?> done) {
+        while (true) {
+            long wait = Math.max(0, renewEveryNanos - (System.nanoTime() - renewedAt));
+            try {
+                done.get(wait, TimeUnit.NANOSECONDS);
+                return;
+            } catch (TimeoutException e) {
+                renewIfDue();
+            } catch (ExecutionException e) {
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for webhook deliveries", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.invoicebackend.service.webhook;
+
+import com.example.invoicebackend.model.WebhookSubscription;
+import com.example.invoicebackend.repository.WebhookDeliveryRepository;
+import com.example.invoicebackend.repository.WebhookDeliveryRepository.AttemptUpdate;
+import com.example.invoicebackend.repository.WebhookDeliveryRepository.BatchedGroup;
+import com.example.invoicebackend.repository.WebhookDeliveryRepository.Delivery;
+import com.example.invoicebackend.repository.WebhookDeliveryRepository.NewDelivery;
+import com.example.invoicebackend.repository.WebhookOutboxRepository.OutboxEvent;
+import com.example.invoicebackend.repository.WebhookSubscriptionRepository;
+import com.example.invoicebackend.service.webhook.WebhookDispatcher.DeliveryResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Batched delivery for subscriptions that opt in with a batch window. The relay hands their events here instead
+ * of sending them; they are stored as BATCHED deliveries and sent as one JSON array of event payloads once the
+ * oldest has waited batch_window_ms or batch_max_events are collected (app.webhooks.batch.max-events when unset).
+ * With batch_coalesce, only the latest event per invoice and event type of a batch is sent. A batch that fails
+ * or is deferred is retried as a whole by the WebhookRetrier. Events of an inactive subscription become DEAD.
+ * The claims on batches being sent are renewed while they run, like the relay's.
+ */
+@Component
+public class WebhookBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookBatcher.class);
+
+    /** X-Webhook-Event of a batch whose events are not all of the same type. */
+    public static final String MIXED_EVENT_TYPE = "batch";
+
+    private final WebhookDeliveryRepository deliveries;
+    private final WebhookSubscriptionRepository subscriptionRepository;
+    private final WebhookDispatcher dispatcher;
+    private final WebhookRetrier retrier;
+
+    @Value("${app.webhooks.batch.max-events:100}")
+    private int defaultMaxEvents;
+
+    @Value("${app.webhooks.batch.claim-timeout:PT5M}")
+    private Duration claimTimeout;
+
+    public WebhookBatcher(WebhookDeliveryRepository deliveries,
+                          WebhookSubscriptionRepository subscriptionRepository,
+                          WebhookDispatcher dispatcher,
+                          WebhookRetrier retrier) {
+        this.deliveries = deliveries;
+        this.subscriptionRepository = subscriptionRepository;
+        this.dispatcher = dispatcher;
+        this.retrier = retrier;
+    }
+
+    // PUBLIC_INTERFACE
+    public void collect(List<CollectedEvent> events) {
+        /** Store events for their batched subscriptions. */
+        Instant now = Instant.now();
+        deliveries.insert(events.stream()
+                .map(e -> new NewDelivery(e.subscription().getId(), e.event().partnerId(), e.event().invoiceId(),
+                        e.event().eventType(), e.event().payload(), WebhookDeliveryRepository.BATCHED, 0, now,
+                        null, null, null))
+                .toList());
+    }
+
+    // PUBLIC_INTERFACE
+    @Scheduled(fixedDelayString = "${app.webhooks.batch.poll-interval-ms:500}")
+    public void flush() {
+        /** Send every batch that is full or whose window elapsed. */
+        Instant now = Instant.now();
+        List<BatchedGroup> groups = deliveries.batchedGroups(now);
+        if (groups.isEmpty()) {
+            return;
+        }
+        Map<Long, WebhookSubscription> subscriptions = subscriptionRepository
+                .findAllById(groups.stream().map(BatchedGroup::subscriptionId).toList())
+                .stream().collect(Collectors.toMap(WebhookSubscription::getId, Function.identity()));
+        Instant leaseUntil = now.plus(claimTimeout);
+        List<String> sending = new ArrayList<>();
+        ClaimLease lease = new ClaimLease(claimTimeout, () -> {
+            Instant renewedUntil = Instant.now().plus(claimTimeout);
+            for (String token : sending) {
+                if (deliveries.renewClaim(token, renewedUntil) == 0) {
+                    log.warn("Batch claim {} was taken over while its delivery was running", token);
+                }
+            }
+        });
+        List<Batch> batches = new ArrayList<>();
+        List<AttemptUpdate> dead = new ArrayList<>();
+        for (BatchedGroup group : groups) {
+            WebhookSubscription sub = subscriptions.get(group.subscriptionId());
+            boolean active = sub != null && Boolean.TRUE.equals(sub.getActive());
+            int maxEvents = Math.max(1, sub != null && sub.getBatchMaxEvents() != null
+                    ? sub.getBatchMaxEvents() : defaultMaxEvents);
+            // A subscription that left batched mode has its collected events flushed right away
+            boolean windowElapsed = !active || !sub.isBatched()
+                    || !group.oldestAt().plusMillis(sub.getBatchWindowMs()).isAfter(now);
+            long count = windowElapsed ? (group.events() + maxEvents - 1) / maxEvents : group.events() / maxEvents;
+            for (long i = 0; i < count; i++) {
+                List<Delivery> rows = deliveries.claimBatched(group.subscriptionId(), now, leaseUntil, maxEvents);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                if (!active) {
+                    rows.forEach(d -> dead.add(new AttemptUpdate(d.id(), d.claimedBy(),
+                            WebhookDeliveryRepository.DEAD, d.attemptCount(), now, null,
+                            "subscription no longer active", null)));
+                    continue;
+                }
+                Batch batch = new Batch(sub, rows, Boolean.TRUE.equals(sub.getBatchCoalesce()) ? coalesce(rows) : rows);
+                sending.add(rows.get(0).claimedBy());
+                batch.result = dispatcher.dispatch(sub, batch.eventType(), batch.body());
+                batches.add(batch);
+                lease.renewIfDue();
+            }
+        }
+        deliveries.recordAttempts(dead);
+        lease.await(CompletableFuture.allOf(batches.stream().map(b -> b.result).toArray(CompletableFuture[]::new)));
+
+        List<WebhookRetrier.FailedDelivery> failed = new ArrayList<>();
+        for (Batch batch : batches) {
+            DeliveryResult result = batch.result.join();
+            if (!result.delivered()) {
+                failed.add(new WebhookRetrier.FailedDelivery(batch.subscription, batch.rows.get(0).partnerId(), null,
+                        batch.eventType(), batch.body(), result));
+            }
+        }
+        retrier.scheduleRetries(failed);
+        deliveries.delete(batches.stream().flatMap(b -> b.rows.stream()).toList());
+    }
+
+    /**
+     * The latest event per invoice and event type, in id order; events without an invoice are all kept.
+     */
+    private static List<Delivery> coalesce(List<Delivery> rows) {
+        Map<List<Object>, Delivery> latest = new HashMap<>();
+        List<Delivery> kept = new ArrayList<>();
+        for (Delivery d : rows) {
+            if (d.invoiceId() == null) {
+                kept.add(d);
+            } else {
+                latest.merge(Arrays.asList(d.invoiceId(), d.eventType()), d, (a, b) -> a.id() > b.id() ? a : b);
+            }
+        }
+        kept.addAll(latest.values());
+        kept.sort(Comparator.comparing(Delivery::id));
+        return kept;
+    }
+
+    /**
+     * An event for a batched subscription, as handed over by the relay.
+     */
+    public record CollectedEvent(OutboxEvent event, WebhookSubscription subscription) {}
+
+    private static final class Batch {
+        private final WebhookSubscription subscription;
+        private final List<Delivery> rows;
+        private final List<Delivery> sent;
+        private CompletableFuture<DeliveryResult> result;
+
+        Batch(WebhookSubscription subscription, List<Delivery> rows, List<Delivery> sent) {
+            this.subscription = subscription;
+            this.rows = rows;
+            this.sent = sent;
+        }
+
+        String eventType() {
+            Set<String> types = sent.stream().map(Delivery::eventType).collect(Collectors.toSet());
+            return types.size() == 1 ? types.iterator().next() : MIXED_EVENT_TYPE;
+        }
+
+        String body() {
+            // Payloads are JSON objects already
+            return sent.stream().map(Delivery::payload).collect(Collectors.joining(",", "[", "]"));
+        }
+    }
+}
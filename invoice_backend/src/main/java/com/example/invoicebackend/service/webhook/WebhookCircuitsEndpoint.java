@@ -0,0 +1,30 @@
+package com.example.invoicebackend.service.webhook;
+
+import com.example.invoicebackend.service.webhook.WebhookTargetGuards.TargetState;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint /actuator/webhookcircuits: circuit breaker and rate limit state of every webhook target URL
+ * this instance delivered to. Restricted to ADMIN in SecurityConfig.
+ */
+@Component
+@Endpoint(id = "webhookcircuits")
+public class WebhookCircuitsEndpoint {
+
+    private final WebhookTargetGuards guards;
+
+    public WebhookCircuitsEndpoint(WebhookTargetGuards guards) {
+        this.guards = guards;
+    }
+
+    // PUBLIC_INTERFACE
+    @ReadOperation
+    public Map<String, TargetState> circuits() {
+        /** State by target URL. */
+        return guards.states();
+    }
+}
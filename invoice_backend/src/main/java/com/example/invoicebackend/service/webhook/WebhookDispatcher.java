@@ -0,0 +1,179 @@
+package com.example.invoicebackend.service.webhook;
+
+import com.example.invoicebackend.model.WebhookSubscription;
+import com.example.invoicebackend.service.webhook.WebhookTargetGuards.Deferral;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends webhook deliveries concurrently on bounded pools, so one slow or hung target only occupies one worker.
+ * Fresh deliveries and retries run on separate pools (max-in-flight and app.webhooks.retry.max-in-flight
+ * workers), so a backlog of retries against failing targets never delays fresh deliveries. Further deliveries
+ * wait in a bounded queue. When the fresh queue is full the overflow policy applies: caller-runs (default) sends
+ * on the submitting thread, slowing the relay down; discard fails the delivery without sending, leaving it to the
+ * retry schedule. A full retry queue always sends on the submitting thread. Every request has connect and read
+ * timeouts. Before sending, the target's circuit breaker and rate limit (WebhookTargetGuards) are checked; a
+ * delivery they hold back is deferred without a request.
+ */
+@Component
+public class WebhookDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookDispatcher.class);
+
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor retryExecutor;
+    private final RestClient httpClient;
+    private final String defaultSigningSecret;
+    private final WebhookTargetGuards guards;
+
+    public WebhookDispatcher(WebhookTargetGuards guards,
+                             @Value("${app.webhooks.dispatch.max-in-flight:16}") int maxInFlight,
+                             @Value("${app.webhooks.dispatch.queue-capacity:1000}") int queueCapacity,
+                             @Value("${app.webhooks.dispatch.overflow:caller-runs}") String overflow,
+                             @Value("${app.webhooks.dispatch.connect-timeout:PT2S}") Duration connectTimeout,
+                             @Value("${app.webhooks.dispatch.read-timeout:PT5S}") Duration readTimeout,
+                             @Value("${app.webhooks.retry.max-in-flight:4}") int retryMaxInFlight,
+                             @Value("${app.webhooks.outgoing.defaultSecret:${WEBHOOK_OUTGOING_SIGNING_SECRET:}}") String defaultSigningSecret) {
+        this.executor = pool("webhook-dispatch-", maxInFlight, queueCapacity, overflowPolicy(overflow));
+        this.retryExecutor = pool("webhook-retry-", retryMaxInFlight, queueCapacity,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeout);
+        requestFactory.setReadTimeout(readTimeout);
+        this.httpClient = RestClient.builder().requestFactory(requestFactory).build();
+        this.defaultSigningSecret = defaultSigningSecret;
+        this.guards = guards;
+    }
+
+    // PUBLIC_INTERFACE
+    public CompletableFuture<DeliveryResult> dispatch(WebhookSubscription sub, String eventType, String jsonBody) {
+        /**
+         * Queue one fresh delivery. The future completes with the outcome once the delivery was sent, failed, was
+         * deferred or dropped; it never completes exceptionally.
+         */
+        return submit(executor, sub, eventType, jsonBody);
+    }
+
+    // PUBLIC_INTERFACE
+    public CompletableFuture<DeliveryResult> dispatchRetry(WebhookSubscription sub, String eventType, String jsonBody) {
+        /** Queue one retry on the retry pool; same contract as dispatch. */
+        return submit(retryExecutor, sub, eventType, jsonBody);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        retryExecutor.shutdown();
+    }
+
+    private CompletableFuture<DeliveryResult> submit(ThreadPoolExecutor pool, WebhookSubscription sub,
+                                                     String eventType, String jsonBody) {
+        try {
+            return CompletableFuture.supplyAsync(() -> attempt(sub, eventType, jsonBody), pool);
+        } catch (RejectedExecutionException e) {
+            log.warn("Webhook dispatch queue full, deferring {} delivery to {}", eventType, sub.getTargetUrl());
+            return CompletableFuture.completedFuture(DeliveryResult.failed(null, "dispatch queue full"));
+        }
+    }
+
+    private DeliveryResult attempt(WebhookSubscription sub, String eventType, String jsonBody) {
+        Deferral deferral = guards.tryAcquire(sub);
+        if (deferral != null) {
+            return DeliveryResult.deferred(deferral.until(), deferral.reason());
+        }
+        try {
+            send(sub, eventType, jsonBody);
+            guards.recordOutcome(sub, false);
+            return DeliveryResult.DELIVERED;
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish webhook to {}: {}", sub.getTargetUrl(), e.getMessage());
+            Integer status = e instanceof RestClientResponseException re ? re.getStatusCode().value() : null;
+            guards.recordOutcome(sub, WebhookTargetGuards.isTargetFailure(status));
+            return DeliveryResult.failed(status, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    private void send(WebhookSubscription sub, String eventType, String jsonBody) {
+        String secret = (sub.getSecretToken() != null && !sub.getSecretToken().isBlank()) ? sub.getSecretToken() : defaultSigningSecret;
+        String signature = null;
+        if (secret != null && !secret.isBlank()) {
+            // Placeholder signature. Replace with HMAC in production
+            signature = DigestUtils.md5DigestAsHex((jsonBody + secret).getBytes(StandardCharsets.UTF_8));
+        }
+        RestClient.RequestBodySpec req = httpClient.post()
+                .uri(sub.getTargetUrl())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("X-Webhook-Event", eventType)
+                .header("X-Request-Id", UUID.randomUUID().toString());
+        if (signature != null) {
+            req.header("X-Signature", signature);
+        }
+        req.body(jsonBody).retrieve().toBodilessEntity();
+    }
+
+    private static ThreadPoolExecutor pool(String threadPrefix, int maxThreads, int queueCapacity,
+                                           RejectedExecutionHandler overflow) {
+        AtomicInteger n = new AtomicInteger();
+        int threads = Math.max(1, maxThreads);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, threadPrefix + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                overflow);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static RejectedExecutionHandler overflowPolicy(String overflow) {
+        String o = overflow == null ? "caller-runs" : overflow.trim().toLowerCase();
+        return switch (o) {
+            case "discard" -> new ThreadPoolExecutor.AbortPolicy();
+            case "caller-runs" -> new ThreadPoolExecutor.CallerRunsPolicy();
+            default -> throw new IllegalArgumentException("Unknown app.webhooks.dispatch.overflow: " + overflow);
+        };
+    }
+
+    /**
+     * Outcome of one delivery: httpStatus is the target's response status when it answered with an error, null
+     * when no response was received. deferredUntil is set when the delivery was not attempted because of the
+     * target's circuit breaker or rate limit, and tells when to try again; error then says why.
+     */
+    public record DeliveryResult(boolean delivered, Integer httpStatus, String error, Instant deferredUntil) {
+        static final DeliveryResult DELIVERED = new DeliveryResult(true, null, null, null);
+
+        static DeliveryResult failed(Integer httpStatus, String error) {
+            return new DeliveryResult(false, httpStatus, error, null);
+        }
+
+        static DeliveryResult deferred(Instant until, String reason) {
+            return new DeliveryResult(false, null, reason, until);
+        }
+
+        public boolean deferred() {
+            return deferredUntil != null;
+        }
+    }
+}
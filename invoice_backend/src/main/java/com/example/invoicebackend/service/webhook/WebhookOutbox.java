@@ -0,0 +1,64 @@
+package com.example.invoicebackend.service.webhook;
+
+import com.example.invoicebackend.model.Invoice;
+import com.example.invoicebackend.repository.WebhookOutboxRepository;
+import com.example.invoicebackend.repository.WebhookOutboxRepository.NewOutboxEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Records outgoing webhook events in the outbox table. Must be called inside the transaction of the write that
+ * caused the event, so the event exists if and only if the write commits; WebhookRelay delivers it afterwards.
+ */
+@Component
+public class WebhookOutbox {
+
+    public static final String INVOICE_STATUS_CHANGED = "invoice.status.changed";
+
+    private final WebhookOutboxRepository outbox;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.webhooks.outgoing.enabled:false}")
+    private boolean outgoingEnabled;
+
+    public WebhookOutbox(WebhookOutboxRepository outbox, ObjectMapper objectMapper) {
+        this.outbox = outbox;
+        this.objectMapper = objectMapper;
+    }
+
+    // PUBLIC_INTERFACE
+    public void invoiceStatusChanged(Invoice invoice) {
+        /** Record a status change event of an invoice (including creation as DRAFT). */
+        invoiceStatusChanged(List.of(invoice));
+    }
+
+    // PUBLIC_INTERFACE
+    public void invoiceStatusChanged(List<Invoice> invoices) {
+        /** Record status change events of several invoices with one batched insert. */
+        if (!outgoingEnabled || invoices.isEmpty()) {
+            return;
+        }
+        outbox.insert(invoices.stream().map(invoice -> new NewOutboxEvent(invoice.getPartner().getId(),
+                invoice.getId(), INVOICE_STATUS_CHANGED, statusChangedPayload(invoice))).toList());
+    }
+
+    private String statusChangedPayload(Invoice invoice) {
+        // Invoice numbers are free text: let Jackson escape them
+        ObjectNode payload = objectMapper.createObjectNode();
+        payload.put("invoiceId", invoice.getId());
+        payload.put("invoiceNumber", invoice.getInvoiceNumber());
+        payload.put("status", invoice.getStatus().name());
+        payload.put("partnerId", invoice.getPartner().getId());
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
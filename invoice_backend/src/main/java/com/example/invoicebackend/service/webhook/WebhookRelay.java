@@ -0,0 +1,111 @@
+package com.example.invoicebackend.service.webhook;
+
+import com.example.invoicebackend.model.WebhookSubscription;
+import com.example.invoicebackend.repository.WebhookOutboxRepository;
+import com.example.invoicebackend.repository.WebhookOutboxRepository.OutboxEvent;
+import com.example.invoicebackend.repository.WebhookSubscriptionRepository;
+import com.example.invoicebackend.service.webhook.WebhookDispatcher.DeliveryResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Background relay delivering committed outbox events to the partner's active webhook subscriptions.
+ * Polls the outbox, claims a batch, hands every (event, subscription) delivery of the batch to the
+ * WebhookDispatcher at once, and deletes the batch when all of them finished. Delivery is at least once: a relay
+ * that stops after sending but before deleting leaves its claim to expire (app.webhooks.outbox.claim-timeout),
+ * after which the events are sent again. Failed and deferred deliveries are handed to the WebhookRetrier before
+ * the batch is deleted. While the deliveries of a batch run, the claim is renewed every half claim timeout, so
+ * slow targets do not let another relay take the batch over and send it again. Events of one batch are sent concurrently, so a target may receive them out of order;
+ * payloads carry the invoice id and current status. Events for subscriptions in batched mode are handed to the
+ * WebhookBatcher instead of being sent.
+ */
+@Component
+public class WebhookRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookRelay.class);
+
+    private final WebhookOutboxRepository outbox;
+    private final WebhookSubscriptionRepository subscriptionRepository;
+    private final WebhookDispatcher dispatcher;
+    private final WebhookRetrier retrier;
+    private final WebhookBatcher batcher;
+
+    @Value("${app.webhooks.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.webhooks.outbox.claim-timeout:PT5M}")
+    private Duration claimTimeout;
+
+    public WebhookRelay(WebhookOutboxRepository outbox,
+                        WebhookSubscriptionRepository subscriptionRepository,
+                        WebhookDispatcher dispatcher,
+                        WebhookRetrier retrier,
+                        WebhookBatcher batcher) {
+        this.outbox = outbox;
+        this.subscriptionRepository = subscriptionRepository;
+        this.dispatcher = dispatcher;
+        this.retrier = retrier;
+        this.batcher = batcher;
+    }
+
+    // PUBLIC_INTERFACE
+    @Scheduled(fixedDelayString = "${app.webhooks.outbox.poll-interval-ms:500}")
+    public void relay() {
+        /** Deliver outbox events until the outbox is drained. */
+        int limit = Math.max(1, batchSize);
+        List<OutboxEvent> batch;
+        do {
+            String token = UUID.randomUUID().toString();
+            batch = outbox.claim(token, Instant.now().minus(claimTimeout), limit);
+            if (batch.isEmpty()) {
+                return;
+            }
+            ClaimLease lease = new ClaimLease(claimTimeout, () -> {
+                if (outbox.renewClaim(token) == 0) {
+                    log.warn("Outbox claim {} was taken over while its deliveries were running", token);
+                }
+            });
+            Map<Long, List<WebhookSubscription>> subscriptions = new HashMap<>();
+            List<CompletableFuture<DeliveryResult>> deliveries = new ArrayList<>();
+            List<Attempt> attempts = new ArrayList<>();
+            List<WebhookBatcher.CollectedEvent> collected = new ArrayList<>();
+            for (OutboxEvent event : batch) {
+                List<WebhookSubscription> subs = subscriptions.computeIfAbsent(event.partnerId(),
+                        subscriptionRepository::findByPartnerIdAndActiveTrue);
+                for (WebhookSubscription sub : subs) {
+                    if (sub.isBatched()) {
+                        collected.add(new WebhookBatcher.CollectedEvent(event, sub));
+                        continue;
+                    }
+                    deliveries.add(dispatcher.dispatch(sub, event.eventType(), event.payload()));
+                    attempts.add(new Attempt(event, sub));
+                    // Dispatch runs on the relay thread when the pool queue is full
+                    lease.renewIfDue();
+                }
+            }
+            batcher.collect(collected);
+            lease.await(CompletableFuture.allOf(deliveries.toArray(CompletableFuture[]::new)));
+            List<WebhookRetrier.FailedDelivery> failed = new ArrayList<>();
+            for (int i = 0; i < deliveries.size(); i++) {
+                DeliveryResult result = deliveries.get(i).join();
+                if (!result.delivered()) {
+                    Attempt a = attempts.get(i);
+                    failed.add(new WebhookRetrier.FailedDelivery(a.subscription(), a.event().partnerId(),
+                            a.event().invoiceId(), a.event().eventType(), a.event().payload(), result));
+                }
+            }
+            retrier.scheduleRetries(failed);
+            outbox.delete(batch.stream().map(OutboxEvent::id).toList(), token);
+        } while (batch.size() == limit);
+    }
+
+    private record Attempt(OutboxEvent event, WebhookSubscription subscription) {}
+}
@@ -0,0 +1,224 @@
+package com.example.invoicebackend.service.webhook;
+
+import com.example.invoicebackend.model.WebhookSubscription;
+import com.example.invoicebackend.repository.WebhookDeliveryRepository;
+import com.example.invoicebackend.repository.WebhookDeliveryRepository.AttemptUpdate;
+import com.example.invoicebackend.repository.WebhookDeliveryRepository.Delivery;
+import com.example.invoicebackend.repository.WebhookDeliveryRepository.NewDelivery;
+import com.example.invoicebackend.repository.WebhookSubscriptionRepository;
+import com.example.invoicebackend.service.webhook.WebhookDispatcher.DeliveryResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Retry schedule of failed webhook deliveries. A delivery that fails is stored in webhook_deliveries and retried
+ * after an exponential backoff with jitter: attempt n waits a random time between half and all of
+ * initial-backoff * 2^(n-1), capped at max-backoff. After max-attempts failed attempts, or when its subscription
+ * is no longer active, the delivery becomes DEAD and is only retried again when replayed. A delivery deferred by
+ * the target's circuit breaker or rate limit was not attempted: it is rescheduled for the time the guard gave,
+ * plus jitter, without using up an attempt. A delivery held back for max-deferral-age without an attempt in
+ * between becomes DEAD, so deliveries to a target that stays down do not stay pending forever.
+ * Retries are polled on their own schedule and sent on the dispatcher's retry pool, so they never hold up the
+ * relay of fresh events. The claim on a batch of retries is renewed while they run, like the relay's.
+ */
+@Component
+public class WebhookRetrier {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookRetrier.class);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final int MAX_DEAD_LETTER_PAGE_SIZE = 100;
+
+    private final WebhookDeliveryRepository deliveries;
+    private final WebhookSubscriptionRepository subscriptionRepository;
+    private final WebhookDispatcher dispatcher;
+
+    @Value("${app.webhooks.retry.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.webhooks.retry.initial-backoff:PT30S}")
+    private Duration initialBackoff;
+
+    @Value("${app.webhooks.retry.max-backoff:PT6H}")
+    private Duration maxBackoff;
+
+    @Value("${app.webhooks.retry.max-deferral-age:PT24H}")
+    private Duration maxDeferralAge;
+
+    @Value("${app.webhooks.retry.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.webhooks.retry.claim-timeout:PT5M}")
+    private Duration claimTimeout;
+
+    public WebhookRetrier(WebhookDeliveryRepository deliveries,
+                          WebhookSubscriptionRepository subscriptionRepository,
+                          WebhookDispatcher dispatcher) {
+        this.deliveries = deliveries;
+        this.subscriptionRepository = subscriptionRepository;
+        this.dispatcher = dispatcher;
+    }
+
+    // PUBLIC_INTERFACE
+    public void scheduleRetries(List<FailedDelivery> failed) {
+        /** Schedule the retries of fresh deliveries that failed or were deferred. */
+        Instant now = Instant.now();
+        List<NewDelivery> rows = new ArrayList<>(failed.size());
+        for (FailedDelivery f : failed) {
+            DeliveryResult r = f.result();
+            if (r.deferred()) {
+                rows.add(new NewDelivery(f.subscription().getId(), f.partnerId(), f.invoiceId(), f.eventType(),
+                        f.payload(), WebhookDeliveryRepository.PENDING, 0, deferredUntil(now, r.deferredUntil()), null,
+                        r.error(), now));
+                continue;
+            }
+            boolean dead = maxAttempts <= 1;
+            rows.add(new NewDelivery(f.subscription().getId(), f.partnerId(), f.invoiceId(), f.eventType(),
+                    f.payload(), dead ? WebhookDeliveryRepository.DEAD : WebhookDeliveryRepository.PENDING, 1,
+                    dead ? now : now.plus(backoff(1)), r.httpStatus(), truncate(r.error()), null));
+        }
+        deliveries.insert(rows);
+    }
+
+    // PUBLIC_INTERFACE
+    @Scheduled(fixedDelayString = "${app.webhooks.retry.poll-interval-ms:5000}")
+    public void retryDue() {
+        /** Send the retries that are due until none is left. */
+        int limit = Math.max(1, batchSize);
+        List<Delivery> batch;
+        boolean attempted;
+        do {
+            attempted = false;
+            Instant now = Instant.now();
+            batch = deliveries.claimDue(now, now.plus(claimTimeout), limit);
+            if (batch.isEmpty()) {
+                return;
+            }
+            String token = batch.get(0).claimedBy();
+            ClaimLease lease = new ClaimLease(claimTimeout, () -> {
+                if (deliveries.renewClaim(token, Instant.now().plus(claimTimeout)) == 0) {
+                    log.warn("Retry claim {} was taken over while its deliveries were running", token);
+                }
+            });
+            Map<Long, WebhookSubscription> subscriptions = subscriptionRepository
+                    .findAllById(batch.stream().map(Delivery::subscriptionId).collect(Collectors.toSet()))
+                    .stream().collect(Collectors.toMap(WebhookSubscription::getId, Function.identity()));
+            List<AttemptUpdate> updates = new ArrayList<>();
+            List<Delivery> sent = new ArrayList<>();
+            List<CompletableFuture<DeliveryResult>> results = new ArrayList<>();
+            for (Delivery d : batch) {
+                WebhookSubscription sub = subscriptions.get(d.subscriptionId());
+                if (sub == null || !Boolean.TRUE.equals(sub.getActive())) {
+                    updates.add(new AttemptUpdate(d.id(), d.claimedBy(), WebhookDeliveryRepository.DEAD,
+                            d.attemptCount(), now, d.lastStatus(), "subscription no longer active", null));
+                    continue;
+                }
+                sent.add(d);
+                results.add(dispatcher.dispatchRetry(sub, d.eventType(), d.payload()));
+                lease.renewIfDue();
+            }
+            lease.await(CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)));
+
+            List<Delivery> delivered = new ArrayList<>();
+            Instant finished = Instant.now();
+            for (int i = 0; i < sent.size(); i++) {
+                Delivery d = sent.get(i);
+                DeliveryResult r = results.get(i).join();
+                if (r.delivered()) {
+                    delivered.add(d);
+                    attempted = true;
+                    continue;
+                }
+                if (r.deferred()) {
+                    Instant deferredSince = d.deferredSince() != null ? d.deferredSince() : finished;
+                    if (deferredSince.plus(maxDeferralAge).isBefore(finished)) {
+                        updates.add(new AttemptUpdate(d.id(), d.claimedBy(), WebhookDeliveryRepository.DEAD,
+                                d.attemptCount(), finished, d.lastStatus(),
+                                truncate("held back longer than max-deferral-age: " + r.error()), null));
+                    } else {
+                        updates.add(new AttemptUpdate(d.id(), d.claimedBy(), WebhookDeliveryRepository.PENDING,
+                                d.attemptCount(), deferredUntil(finished, r.deferredUntil()), d.lastStatus(),
+                                r.error(), deferredSince));
+                    }
+                    continue;
+                }
+                attempted = true;
+                int attempts = d.attemptCount() + 1;
+                boolean dead = attempts >= maxAttempts;
+                updates.add(new AttemptUpdate(d.id(), d.claimedBy(),
+                        dead ? WebhookDeliveryRepository.DEAD : WebhookDeliveryRepository.PENDING, attempts,
+                        dead ? finished : finished.plus(backoff(attempts)), r.httpStatus(), truncate(r.error()),
+                        null));
+            }
+            deliveries.delete(delivered);
+            deliveries.recordAttempts(updates);
+            // A batch that was only deferred would be claimed again right away once due; wait for the next poll
+        } while (batch.size() == limit && attempted);
+    }
+
+    // PUBLIC_INTERFACE
+    public Page<Delivery> listDeadLetters(Long partnerId, int page, int size) {
+        /** DEAD deliveries, newest first, optionally of one partner. */
+        if (page < 0) {
+            throw new IllegalArgumentException("page must be >= 0");
+        }
+        if (size < 1 || size > MAX_DEAD_LETTER_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_DEAD_LETTER_PAGE_SIZE);
+        }
+        List<Delivery> rows = deliveries.findDead(partnerId, page * size, size);
+        return new PageImpl<>(rows, PageRequest.of(page, size), deliveries.countDead(partnerId));
+    }
+
+    // PUBLIC_INTERFACE
+    public void replay(Long id) {
+        /** Schedule a DEAD delivery for an immediate retry with a fresh attempt budget. */
+        if (!deliveries.replay(id)) {
+            throw new IllegalArgumentException("Dead-letter delivery not found: " + id);
+        }
+    }
+
+    /**
+     * Wait before the attempt following attempt number attempts: equal jitter over the capped exponential delay.
+     */
+    private Duration backoff(int attempts) {
+        long base = Math.max(1, initialBackoff.toMillis());
+        long cap = Math.max(base, maxBackoff.toMillis());
+        int shift = Math.min(Math.max(0, attempts - 1), 62);
+        long delay = shift >= Long.numberOfLeadingZeros(base) - 1 ? cap : Math.min(cap, base << shift);
+        long half = delay / 2;
+        return Duration.ofMillis(delay - half + ThreadLocalRandom.current().nextLong(half + 1));
+    }
+
+    /**
+     * Next attempt of a deferred delivery: the time the guard gave plus a random part of up to half the wait, at
+     * least a second, so deliveries held back by the same open circuit do not all come due at once.
+     */
+    private static Instant deferredUntil(Instant now, Instant until) {
+        long wait = Math.max(0, Duration.between(now, until).toMillis());
+        return until.plusMillis(ThreadLocalRandom.current().nextLong(Math.max(1000, wait / 2) + 1));
+    }
+
+    private static String truncate(String error) {
+        return error == null || error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    /**
+     * A fresh delivery whose first attempt failed or was deferred; invoiceId is null for a batch of events.
+     */
+    public record FailedDelivery(WebhookSubscription subscription, Long partnerId, Long invoiceId, String eventType,
+                                 String payload, DeliveryResult result) {}
+}
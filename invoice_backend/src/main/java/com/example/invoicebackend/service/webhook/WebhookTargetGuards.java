@@ -0,0 +1,171 @@
+package com.example.invoicebackend.service.webhook;
+
+import com.example.invoicebackend.model.WebhookSubscription;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Circuit breaker and token-bucket rate limit per webhook target URL, shared by all subscriptions of that URL.
+ * The circuit opens after failure-threshold consecutive failed deliveries (no response, 5xx or 429) and stays
+ * open for open-duration; then a single probe delivery is let through (half-open), which closes the circuit on
+ * success and reopens it on failure. Deliveries that may not be sent now are not attempted: the caller gets the
+ * time to try again instead. The limits of the subscription being delivered apply, falling back to the
+ * app.webhooks.circuit.* and app.webhooks.rate-limit.* defaults; a rate of 0 means unlimited.
+ */
+@Component
+public class WebhookTargetGuards {
+
+    private final ConcurrentHashMap<String, Guard> guards = new ConcurrentHashMap<>();
+    private final int defaultFailureThreshold;
+    private final Duration defaultOpenDuration;
+    private final double defaultRatePerSecond;
+    private final int defaultBurst;
+
+    public WebhookTargetGuards(@Value("${app.webhooks.circuit.failure-threshold:5}") int defaultFailureThreshold,
+                               @Value("${app.webhooks.circuit.open-duration:PT30S}") Duration defaultOpenDuration,
+                               @Value("${app.webhooks.rate-limit.per-second:0}") double defaultRatePerSecond,
+                               @Value("${app.webhooks.rate-limit.burst:10}") int defaultBurst) {
+        this.defaultFailureThreshold = defaultFailureThreshold;
+        this.defaultOpenDuration = defaultOpenDuration;
+        this.defaultRatePerSecond = defaultRatePerSecond;
+        this.defaultBurst = defaultBurst;
+    }
+
+    // PUBLIC_INTERFACE
+    public Deferral tryAcquire(WebhookSubscription sub) {
+        /** Null when a delivery to the subscription's target may be sent now, else when to try again and why. */
+        return tryAcquire(sub, Instant.now());
+    }
+
+    Deferral tryAcquire(WebhookSubscription sub, Instant now) {
+        return guard(sub).tryAcquire(limits(sub), now);
+    }
+
+    // PUBLIC_INTERFACE
+    public void recordOutcome(WebhookSubscription sub, boolean targetFailed) {
+        /** Report the outcome of a delivery let through by tryAcquire. */
+        recordOutcome(sub, targetFailed, Instant.now());
+    }
+
+    void recordOutcome(WebhookSubscription sub, boolean targetFailed, Instant now) {
+        guard(sub).recordOutcome(limits(sub), targetFailed, now);
+    }
+
+    /**
+     * Whether a failed delivery counts against the target's circuit: no response, 5xx or 429. Other client errors
+     * mean the target is up.
+     */
+    static boolean isTargetFailure(Integer httpStatus) {
+        return httpStatus == null || httpStatus >= 500 || httpStatus == 429;
+    }
+
+    // PUBLIC_INTERFACE
+    public Map<String, TargetState> states() {
+        /** Current state of every target delivered to since startup, by target URL. */
+        Map<String, TargetState> states = new TreeMap<>();
+        guards.forEach((url, guard) -> states.put(url, guard.state()));
+        return states;
+    }
+
+    private Guard guard(WebhookSubscription sub) {
+        return guards.computeIfAbsent(sub.getTargetUrl(), url -> new Guard());
+    }
+
+    private Limits limits(WebhookSubscription sub) {
+        int threshold = sub.getCircuitFailureThreshold() != null ? sub.getCircuitFailureThreshold() : defaultFailureThreshold;
+        Duration open = sub.getCircuitOpenSeconds() != null ? Duration.ofSeconds(sub.getCircuitOpenSeconds()) : defaultOpenDuration;
+        double rate = sub.getRateLimitPerSecond() != null ? sub.getRateLimitPerSecond() : defaultRatePerSecond;
+        int burst = sub.getRateLimitBurst() != null ? sub.getRateLimitBurst() : defaultBurst;
+        return new Limits(Math.max(1, threshold), open, rate, Math.max(1, burst));
+    }
+
+    public enum CircuitState { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Why and until when a delivery is held back.
+     */
+    public record Deferral(Instant until, String reason) {}
+
+    /**
+     * Snapshot of one target: openUntil is set while the circuit is OPEN; tokens is the bucket level at the last
+     * rate-limited delivery, null when the target was never rate limited.
+     */
+    public record TargetState(CircuitState circuit, int consecutiveFailures, Instant openUntil, Double tokens) {}
+
+    private record Limits(int failureThreshold, Duration openDuration, double ratePerSecond, int burst) {
+        boolean limited() {
+            return ratePerSecond > 0;
+        }
+    }
+
+    private static final class Guard {
+        private CircuitState circuit = CircuitState.CLOSED;
+        private int consecutiveFailures;
+        private Instant openUntil;
+        private boolean probing;
+        private double tokens = Double.NaN;
+        private Instant refilledAt;
+
+        synchronized Deferral tryAcquire(Limits limits, Instant now) {
+            if (circuit == CircuitState.OPEN) {
+                if (now.isBefore(openUntil)) {
+                    return new Deferral(openUntil, "circuit open");
+                }
+                circuit = CircuitState.HALF_OPEN;
+                probing = false;
+            }
+            if (circuit == CircuitState.HALF_OPEN && probing) {
+                // Wait for the probe's outcome as if the circuit were open
+                return new Deferral(now.plus(limits.openDuration()), "circuit half-open");
+            }
+            if (limits.limited()) {
+                refill(limits, now);
+                if (tokens < 1) {
+                    long waitNanos = (long) Math.ceil((1 - tokens) / limits.ratePerSecond() * 1e9);
+                    return new Deferral(now.plusNanos(waitNanos), "rate limited");
+                }
+                tokens -= 1;
+            }
+            if (circuit == CircuitState.HALF_OPEN) {
+                probing = true;
+            }
+            return null;
+        }
+
+        synchronized void recordOutcome(Limits limits, boolean targetFailed, Instant now) {
+            if (!targetFailed) {
+                circuit = CircuitState.CLOSED;
+                consecutiveFailures = 0;
+                probing = false;
+                return;
+            }
+            consecutiveFailures++;
+            if (circuit == CircuitState.HALF_OPEN || consecutiveFailures >= limits.failureThreshold()) {
+                circuit = CircuitState.OPEN;
+                openUntil = now.plus(limits.openDuration());
+                probing = false;
+            }
+        }
+
+        synchronized TargetState state() {
+            return new TargetState(circuit, consecutiveFailures, circuit == CircuitState.OPEN ? openUntil : null,
+                    Double.isNaN(tokens) ? null : tokens);
+        }
+
+        private void refill(Limits limits, Instant now) {
+            if (Double.isNaN(tokens)) {
+                tokens = limits.burst();
+            } else {
+                double elapsed = Duration.between(refilledAt, now).toNanos() / 1e9;
+                tokens = Math.min(limits.burst(), tokens + Math.max(0, elapsed) * limits.ratePerSecond());
+            }
+            refilledAt = now;
+        }
+    }
+}
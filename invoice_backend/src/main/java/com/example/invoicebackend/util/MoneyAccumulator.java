@@ -0,0 +1,101 @@
+package com.example.invoicebackend.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.stream.Collector;
+
+/**
+ * Mutable sum of money amounts kept as a long count of cents.
+ * Amounts with at most two decimals are added with long arithmetic; amounts with more decimals, and sums that
+ * would overflow a long, go to an exact BigDecimal part. The result equals reducing the same amounts with
+ * BigDecimal::add from BigDecimal.ZERO, including its scale (the largest input scale, at least 0).
+ * Not thread-safe; merge per-thread accumulators with {@link #add(MoneyAccumulator)}.
+ */
+public final class MoneyAccumulator {
+
+    private static final int SCALE = 2;
+    private static final long[] POW10 = {1, 10, 100};
+
+    private long cents;
+    private BigDecimal spill;
+    private int maxScale;
+
+    // PUBLIC_INTERFACE
+    public MoneyAccumulator add(BigDecimal amount) {
+        /** Add an amount; null is ignored. */
+        if (amount == null) {
+            return this;
+        }
+        int scale = amount.scale();
+        maxScale = Math.max(maxScale, scale);
+        // precision <= 16 keeps |unscaled * 100| below Long.MAX_VALUE
+        if (scale >= 0 && scale <= SCALE && amount.precision() <= 16) {
+            return addCents(amount.unscaledValue().longValue() * POW10[SCALE - scale], scale);
+        }
+        spill = spill == null ? amount : spill.add(amount);
+        return this;
+    }
+
+    // PUBLIC_INTERFACE
+    public MoneyAccumulator subtract(BigDecimal amount) {
+        /** Subtract an amount; null is ignored. */
+        return amount == null ? this : add(amount.negate());
+    }
+
+    // PUBLIC_INTERFACE
+    public MoneyAccumulator addCents(long amountCents) {
+        /** Add an amount given in cents (scale 2). */
+        return addCents(amountCents, SCALE);
+    }
+
+    // PUBLIC_INTERFACE
+    public MoneyAccumulator add(MoneyAccumulator other) {
+        /** Add everything accumulated by another accumulator. */
+        maxScale = Math.max(maxScale, other.maxScale);
+        if (other.spill != null) {
+            spill = spill == null ? other.spill : spill.add(other.spill);
+        }
+        return addCents(other.cents, 0);
+    }
+
+    // PUBLIC_INTERFACE
+    public BigDecimal toBigDecimal() {
+        /** The exact sum, with the scale BigDecimal::add would have produced. */
+        BigDecimal sum = BigDecimal.valueOf(cents, SCALE);
+        if (spill != null) {
+            sum = spill.add(sum);
+        }
+        // Every input had a scale <= maxScale, so the sum is representable at that scale
+        return sum.setScale(maxScale, RoundingMode.UNNECESSARY);
+    }
+
+    // PUBLIC_INTERFACE
+    public static BigDecimal sum(Iterable<BigDecimal> amounts) {
+        /** Sum of amounts (nulls ignored); BigDecimal.ZERO when empty. */
+        MoneyAccumulator acc = new MoneyAccumulator();
+        for (BigDecimal a : amounts) {
+            acc.add(a);
+        }
+        return acc.toBigDecimal();
+    }
+
+    // PUBLIC_INTERFACE
+    public static Collector<BigDecimal, MoneyAccumulator, BigDecimal> summing() {
+        /** Collector equivalent of reduce(BigDecimal.ZERO, BigDecimal::add), ignoring nulls. */
+        return Collector.<BigDecimal, MoneyAccumulator, BigDecimal>of(MoneyAccumulator::new,
+                MoneyAccumulator::add, MoneyAccumulator::add, MoneyAccumulator::toBigDecimal);
+    }
+
+    private MoneyAccumulator addCents(long value, int scale) {
+        maxScale = Math.max(maxScale, scale);
+        long r = cents + value;
+        if (((cents ^ r) & (value ^ r)) < 0) {
+            // Overflow: move the running total into the exact part and restart from this value
+            BigDecimal current = BigDecimal.valueOf(cents, SCALE);
+            spill = spill == null ? current : spill.add(current);
+            r = value;
+        }
+        cents = r;
+        return this;
+    }
+}
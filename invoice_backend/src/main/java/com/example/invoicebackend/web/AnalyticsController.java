@@ -1,9 +1,20 @@
 package com.example.invoicebackend.web;
 
 import com.example.invoicebackend.model.enums.InvoiceStatus;
+import com.example.invoicebackend.repository.projection.InvoiceView;
+import com.example.invoicebackend.service.AnalyticsRollupService;
 import com.example.invoicebackend.service.AnalyticsService;
+import com.example.invoicebackend.service.analytics.AgingBucket;
+import com.example.invoicebackend.service.analytics.TimeBucket;
+import com.example.invoicebackend.service.analytics.TimeseriesMetric;
+import com.example.invoicebackend.web.dto.AnalyticsDtos.AgingResponse;
+import com.example.invoicebackend.web.dto.AnalyticsDtos.DashboardResponse;
+import com.example.invoicebackend.web.dto.AnalyticsDtos.MultiTimeseriesResponse;
+import com.example.invoicebackend.web.dto.AnalyticsDtos.RollupRebuildResponse;
 import com.example.invoicebackend.web.dto.AnalyticsDtos.SummaryResponse;
 import com.example.invoicebackend.web.dto.AnalyticsDtos.TimeseriesResponse;
+import com.example.invoicebackend.web.dto.InvoiceDtos.InvoiceResponse;
+import com.example.invoicebackend.web.mapper.DtoMappers;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
@@ -11,12 +22,15 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.util.List;
 
 /**
  * Analytics endpoints providing KPI summary and timeseries for charts.
@@ -26,10 +40,14 @@ import java.time.LocalDate;
 @Tag(name = "Analytics", description = "KPI and timeseries analytics endpoints")
 public class AnalyticsController {
 
+    private static final int MAX_AGING_PAGE_SIZE = 100;
+
     private final AnalyticsService analyticsService;
+    private final AnalyticsRollupService analyticsRollupService;
 
-    public AnalyticsController(AnalyticsService analyticsService) {
+    public AnalyticsController(AnalyticsService analyticsService, AnalyticsRollupService analyticsRollupService) {
         this.analyticsService = analyticsService;
+        this.analyticsRollupService = analyticsRollupService;
     }
 
     // PUBLIC_INTERFACE
@@ -65,14 +83,16 @@ public class AnalyticsController {
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('USER')")
     @Operation(
             summary = "Get analytics timeseries",
-            description = "Returns monthly totals for the selected metric. Supported metrics: invoiced (default), paid. " +
-                    "Filters apply by issue date for invoiced and payment date for paid.",
+            description = "Returns totals per period for the selected metric. Supported metrics: invoiced (default), paid, " +
+                    "outstanding, overdue_count, new_customers. Filters apply by issue date for invoice-based metrics, " +
+                    "payment date for paid and first invoice date for new_customers.",
             parameters = {
                     @Parameter(name = "from", in = ParameterIn.QUERY, description = "Start date (inclusive)", example = "2024-01-01"),
                     @Parameter(name = "to", in = ParameterIn.QUERY, description = "End date (inclusive)", example = "2024-12-31"),
                     @Parameter(name = "partnerId", in = ParameterIn.QUERY, description = "Filter by partner id"),
                     @Parameter(name = "status", in = ParameterIn.QUERY, description = "Filter by invoice status (invoiced metric only)"),
-                    @Parameter(name = "metric", in = ParameterIn.QUERY, description = "Metric to aggregate: invoiced|paid", example = "invoiced")
+                    @Parameter(name = "metric", in = ParameterIn.QUERY, description = "Metric to aggregate: invoiced|paid|outstanding|overdue_count|new_customers", example = "invoiced"),
+                    @Parameter(name = "granularity", in = ParameterIn.QUERY, description = "Bucket size: day|week|month|quarter", example = "month")
             },
             responses = {
                     @ApiResponse(responseCode = "200", description = "Timeseries response",
@@ -84,9 +104,151 @@ public class AnalyticsController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
             @RequestParam(required = false) InvoiceStatus status,
-            @RequestParam(required = false, defaultValue = "invoiced") String metric
+            @RequestParam(required = false, defaultValue = "invoiced") String metric,
+            @RequestParam(required = false, defaultValue = "month") String granularity
+    ) {
+        TimeseriesResponse resp = analyticsService.getTimeseries(partnerId, from, to, status, metric,
+                TimeBucket.parse(granularity));
+        return ResponseEntity.ok(resp);
+    }
+
+    // PUBLIC_INTERFACE
+    @GetMapping("/timeseries/multi")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('USER')")
+    @Operation(
+            summary = "Get several analytics timeseries at once",
+            description = "Returns one series per requested metric over the same buckets, computed with one grouped read " +
+                    "per data source. The status filter applies to invoiced, outstanding and overdue_count. " +
+                    "When both from and to are given, empty periods are returned with zero values.",
+            parameters = {
+                    @Parameter(name = "from", in = ParameterIn.QUERY, description = "Start date (inclusive)", example = "2024-01-01"),
+                    @Parameter(name = "to", in = ParameterIn.QUERY, description = "End date (inclusive)", example = "2024-12-31"),
+                    @Parameter(name = "partnerId", in = ParameterIn.QUERY, description = "Filter by partner id"),
+                    @Parameter(name = "status", in = ParameterIn.QUERY, description = "Filter by invoice status (invoice-based metrics only)"),
+                    @Parameter(name = "metrics", in = ParameterIn.QUERY, description = "Comma-separated metrics: invoiced,paid,outstanding,overdue_count,new_customers", example = "invoiced,paid"),
+                    @Parameter(name = "granularity", in = ParameterIn.QUERY, description = "Bucket size: day|week|month|quarter", example = "month")
+            },
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Timeseries per metric",
+                            content = @Content(schema = @Schema(implementation = MultiTimeseriesResponse.class)))
+            }
+    )
+    public ResponseEntity<MultiTimeseriesResponse> multiTimeseries(
+            @RequestParam(required = false) Long partnerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) InvoiceStatus status,
+            @RequestParam(required = false, defaultValue = "invoiced") List<String> metrics,
+            @RequestParam(required = false, defaultValue = "month") String granularity
     ) {
-        TimeseriesResponse resp = analyticsService.getTimeseries(partnerId, from, to, status, metric);
+        List<TimeseriesMetric> parsed = metrics.stream().map(TimeseriesMetric::parse).toList();
+        MultiTimeseriesResponse resp = analyticsService.getTimeseries(partnerId, from, to, status, parsed,
+                TimeBucket.parse(granularity));
+        return ResponseEntity.ok(resp);
+    }
+
+    // PUBLIC_INTERFACE
+    @GetMapping("/dashboard")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('USER')")
+    @Operation(
+            summary = "Get analytics dashboard",
+            description = "Returns the summary KPIs with counts and amounts by status, and the invoiced and paid timeseries, " +
+                    "in one response. The parts are computed concurrently. Filters apply as for /summary and /timeseries.",
+            parameters = {
+                    @Parameter(name = "from", in = ParameterIn.QUERY, description = "Start date (inclusive)", example = "2024-01-01"),
+                    @Parameter(name = "to", in = ParameterIn.QUERY, description = "End date (inclusive)", example = "2024-12-31"),
+                    @Parameter(name = "partnerId", in = ParameterIn.QUERY, description = "Filter by partner id"),
+                    @Parameter(name = "status", in = ParameterIn.QUERY, description = "Filter by invoice status"),
+                    @Parameter(name = "granularity", in = ParameterIn.QUERY, description = "Timeseries bucket size: day|week|month|quarter", example = "month")
+            },
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Dashboard payload",
+                            content = @Content(schema = @Schema(implementation = DashboardResponse.class)))
+            }
+    )
+    public ResponseEntity<DashboardResponse> dashboard(
+            @RequestParam(required = false) Long partnerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) InvoiceStatus status,
+            @RequestParam(required = false, defaultValue = "month") String granularity
+    ) {
+        return ResponseEntity.ok(analyticsService.getDashboard(partnerId, from, to, status, TimeBucket.parse(granularity)));
+    }
+
+    // PUBLIC_INTERFACE
+    @GetMapping("/aging")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('USER')")
+    @Operation(
+            summary = "Get receivables aging",
+            description = "Returns open (SENT/OVERDUE) invoice counts and amounts by days past due as of a date: current, " +
+                    "1-30, 31-60, 61-90 and 90+. Invoices without a due date are current. Totals are given overall, " +
+                    "per partner and per customer; use /aging/invoices to page through the invoices of a bucket.",
+            parameters = {
+                    @Parameter(name = "partnerId", in = ParameterIn.QUERY, description = "Filter by partner id (all partners when omitted)"),
+                    @Parameter(name = "asOf", in = ParameterIn.QUERY, description = "Date to count days past due from (default today)", example = "2024-06-30")
+            },
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Aging report",
+                            content = @Content(schema = @Schema(implementation = AgingResponse.class)))
+            }
+    )
+    public ResponseEntity<AgingResponse> aging(
+            @RequestParam(required = false) Long partnerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf
+    ) {
+        return ResponseEntity.ok(analyticsService.getAging(partnerId, asOf));
+    }
+
+    // PUBLIC_INTERFACE
+    @GetMapping("/aging/invoices")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('USER')")
+    @Operation(
+            summary = "List invoices of an aging bucket",
+            description = "Pages through a partner's open invoices in one aging bucket, optionally of one customer, ordered by " +
+                    "due date ascending. Bucket boundaries match /aging for the same asOf date.",
+            parameters = {
+                    @Parameter(name = "partnerId", in = ParameterIn.QUERY, description = "Partner id", required = true),
+                    @Parameter(name = "bucket", in = ParameterIn.QUERY, description = "Bucket: current|1-30|31-60|61-90|90+", example = "1-30", required = true),
+                    @Parameter(name = "customerId", in = ParameterIn.QUERY, description = "Filter by customer id"),
+                    @Parameter(name = "asOf", in = ParameterIn.QUERY, description = "Date to count days past due from (default today)", example = "2024-06-30"),
+                    @Parameter(name = "page", in = ParameterIn.QUERY, description = "Page number starting at 0"),
+                    @Parameter(name = "size", in = ParameterIn.QUERY, description = "Page size, at most " + MAX_AGING_PAGE_SIZE)
+            }
+    )
+    public ResponseEntity<PageImpl<InvoiceResponse>> agingInvoices(
+            @RequestParam Long partnerId,
+            @RequestParam String bucket,
+            @RequestParam(required = false) Long customerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        if (size < 1 || size > MAX_AGING_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_AGING_PAGE_SIZE);
+        }
+        Page<InvoiceView> result = analyticsService.getAgingInvoices(partnerId, customerId, AgingBucket.parse(bucket),
+                asOf, page, size);
+        List<InvoiceResponse> content = result.getContent().stream()
+                .map(DtoMappers::toInvoiceResponse)
+                .toList();
+        return ResponseEntity.ok(new PageImpl<>(content, result.getPageable(), result.getTotalElements()));
+    }
+
+    // PUBLIC_INTERFACE
+    @PostMapping("/rollups/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Rebuild analytics rollups",
+            description = "Recompute the daily analytics rollups from invoices and payments for one partner, or all partners " +
+                    "when partnerId is omitted. Rollups are maintained on every write; use this for backfill or repair. Requires ADMIN.")
+    public ResponseEntity<RollupRebuildResponse> rebuildRollups(@RequestParam(required = false) Long partnerId) {
+        RollupRebuildResponse resp = new RollupRebuildResponse();
+        if (partnerId != null) {
+            analyticsRollupService.rebuild(partnerId);
+            resp.partnersRebuilt = 1;
+        } else {
+            resp.partnersRebuilt = analyticsRollupService.rebuildAll();
+        }
         return ResponseEntity.ok(resp);
     }
 }
@@ -2,28 +2,39 @@ package com.example.invoicebackend.web;
 
 import com.example.invoicebackend.model.Invoice;
 import com.example.invoicebackend.model.enums.InvoiceStatus;
-import com.example.invoicebackend.repository.InvoiceRepository;
-import com.example.invoicebackend.repository.PartnerRepository;
+import com.example.invoicebackend.repository.projection.InvoiceView;
+import com.example.invoicebackend.service.InvoiceBatchService;
+import com.example.invoicebackend.service.InvoiceCursor;
+import com.example.invoicebackend.service.InvoiceExportService;
+import com.example.invoicebackend.service.InvoiceNumberService;
+import com.example.invoicebackend.service.InvoiceSearchService;
 import com.example.invoicebackend.service.InvoiceService;
+import com.example.invoicebackend.web.dto.InvoiceDtos.InvoiceBatchRequest;
+import com.example.invoicebackend.web.dto.InvoiceDtos.InvoiceBatchResponse;
 import com.example.invoicebackend.web.dto.InvoiceDtos.InvoiceCreateRequest;
+import com.example.invoicebackend.web.dto.InvoiceDtos.InvoiceCursorPage;
 import com.example.invoicebackend.web.dto.InvoiceDtos.InvoiceResponse;
+import com.example.invoicebackend.web.dto.InvoiceDtos.InvoiceSearchCriteria;
 import com.example.invoicebackend.web.dto.InvoiceDtos.InvoiceUpdateRequest;
 import com.example.invoicebackend.web.mapper.DtoMappers;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
 
 /**
  * REST controller for managing Invoices.
@@ -33,16 +44,24 @@ import java.util.stream.Collectors;
 @Tag(name = "Invoices", description = "Invoice CRUD and search endpoints")
 public class InvoiceController {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+
     private final InvoiceService invoiceService;
-    private final InvoiceRepository invoiceRepository;
-    private final PartnerRepository partnerRepository;
+    private final InvoiceNumberService invoiceNumberService;
+    private final InvoiceSearchService invoiceSearchService;
+    private final InvoiceExportService invoiceExportService;
+    private final InvoiceBatchService invoiceBatchService;
 
     public InvoiceController(InvoiceService invoiceService,
-                             InvoiceRepository invoiceRepository,
-                             PartnerRepository partnerRepository) {
+                             InvoiceNumberService invoiceNumberService,
+                             InvoiceSearchService invoiceSearchService,
+                             InvoiceExportService invoiceExportService,
+                             InvoiceBatchService invoiceBatchService) {
         this.invoiceService = invoiceService;
-        this.invoiceRepository = invoiceRepository;
-        this.partnerRepository = partnerRepository;
+        this.invoiceNumberService = invoiceNumberService;
+        this.invoiceSearchService = invoiceSearchService;
+        this.invoiceExportService = invoiceExportService;
+        this.invoiceBatchService = invoiceBatchService;
     }
 
     // PUBLIC_INTERFACE
@@ -54,22 +73,44 @@ public class InvoiceController {
         return ResponseEntity.ok(DtoMappers.toInvoiceResponse(created));
     }
 
+    // PUBLIC_INTERFACE
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('USER')")
+    @Operation(summary = "Create invoices in bulk",
+            description = "Create many invoices in one request. Each entry is validated independently; the response reports success (with id) or the failure reason per entry.")
+    public ResponseEntity<InvoiceBatchResponse> createBatch(@Valid @RequestBody InvoiceBatchRequest request) {
+        return ResponseEntity.ok(invoiceBatchService.createAll(request.invoices));
+    }
+
     // PUBLIC_INTERFACE
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('USER')")
-    @Operation(summary = "Get invoice", description = "Get an invoice by id")
-    public ResponseEntity<InvoiceResponse> get(@PathVariable Long id) {
-        Invoice inv = invoiceService.find(id);
-        return ResponseEntity.ok(DtoMappers.toInvoiceResponse(inv));
+    @Operation(summary = "Get invoice",
+            description = "Get an invoice by id. The response carries the invoice version as a strong ETag; " +
+                    "send it back in If-None-Match to get 304 Not Modified while the invoice is unchanged.")
+    public ResponseEntity<InvoiceResponse> get(@PathVariable Long id, WebRequest request) {
+        // Revalidation only needs the version column; the full row is read only when it changed
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && request.checkNotModified(etag(invoiceService.findVersion(id)))) {
+            return null;
+        }
+        InvoiceResponse response = invoiceService.findResponse(id);
+        return ResponseEntity.ok().eTag(etag(response.version)).body(response);
     }
 
     // PUBLIC_INTERFACE
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
-    @Operation(summary = "Update invoice", description = "Update invoice fields and items. Requires ADMIN or MANAGER.")
-    public ResponseEntity<InvoiceResponse> update(@PathVariable Long id, @Valid @RequestBody InvoiceUpdateRequest request) {
-        Invoice updated = invoiceService.update(id, request);
-        return ResponseEntity.ok(DtoMappers.toInvoiceResponse(updated));
+    @Operation(summary = "Update invoice",
+            description = "Update invoice fields and items. With If-Match set to the ETag from GET, the update is rejected " +
+                    "with 412 if the invoice changed since. Without If-Match, an update that overlaps another concurrent " +
+                    "write to the same invoice is rejected with 409 instead of overwriting it (no last-writer-wins); " +
+                    "re-read and retry. Requires ADMIN or MANAGER.")
+    public ResponseEntity<InvoiceResponse> update(@PathVariable Long id,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                  @Valid @RequestBody InvoiceUpdateRequest request) {
+        Invoice updated = invoiceService.update(id, request, expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(etag(updated.getVersion())).body(DtoMappers.toInvoiceResponse(updated));
     }
 
     // PUBLIC_INTERFACE
@@ -94,59 +135,160 @@ public class InvoiceController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size
     ) {
-        // Base list by partner
-        List<Invoice> all = invoiceService.listByPartner(partnerId);
-
-        // Apply simple in-memory filters for MVP
-        List<Invoice> filtered = all.stream()
-                .filter(i -> status == null || status.equals(i.getStatus()))
-                .filter(i -> customerId == null || (i.getCustomer() != null && Objects.equals(i.getCustomer().getId(), customerId)))
-                .filter(i -> issueDateFrom == null || (i.getIssueDate() != null && !i.getIssueDate().isBefore(issueDateFrom)))
-                .filter(i -> issueDateTo == null || (i.getIssueDate() != null && !i.getIssueDate().isAfter(issueDateTo)))
-                .sorted(Comparator.comparing(Invoice::getIssueDate, Comparator.nullsLast(Comparator.naturalOrder())).reversed())
+        Page<InvoiceView> result = invoiceService.listByPartner(partnerId, status, customerId, issueDateFrom, issueDateTo, page, size);
+        List<InvoiceResponse> content = result.getContent().stream()
+                .map(DtoMappers::toInvoiceResponse)
                 .toList();
+        return ResponseEntity.ok(new PageImpl<>(content, result.getPageable(), result.getTotalElements()));
+    }
 
-        int from = Math.min(page * size, filtered.size());
-        int to = Math.min(from + size, filtered.size());
-        List<InvoiceResponse> slice = filtered.subList(from, to).stream()
-                .map(DtoMappers::toInvoiceResponse)
-                .collect(Collectors.toList());
+    // PUBLIC_INTERFACE
+    @GetMapping("/cursor")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('USER')")
+    @Operation(summary = "List invoices by partner (cursor)",
+            description = "Keyset-paginated variant of the invoice list. Pass the returned nextCursor to fetch the following page; " +
+                    "no total count is computed, so deep pages cost the same as the first.")
+    public ResponseEntity<InvoiceCursorPage> listByPartnerCursor(
+            @RequestParam Long partnerId,
+            @RequestParam(required = false) InvoiceStatus status,
+            @RequestParam(required = false) Long customerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate issueDateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate issueDateTo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size
+    ) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
+        }
+        // Fetch one extra row to learn whether another page exists without counting
+        List<InvoiceView> rows = invoiceService.listByPartnerAfter(partnerId, status, customerId, issueDateFrom, issueDateTo,
+                InvoiceCursor.decode(cursor), size + 1);
+        boolean hasMore = rows.size() > size;
+        List<InvoiceView> window = hasMore ? rows.subList(0, size) : rows;
 
-        return ResponseEntity.ok(new PageImpl<>(slice, PageRequest.of(page, size), filtered.size()));
+        InvoiceCursorPage resp = new InvoiceCursorPage();
+        resp.items = window.stream().map(DtoMappers::toInvoiceResponse).toList();
+        resp.hasMore = hasMore;
+        if (hasMore) {
+            InvoiceView last = window.get(window.size() - 1);
+            resp.nextCursor = new InvoiceCursor(last.issueDate(), last.id()).encode();
+        }
+        return ResponseEntity.ok(resp);
     }
 
     // PUBLIC_INTERFACE
     @GetMapping("/search")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('USER')")
-    @Operation(summary = "Search invoices", description = "Search invoices by status or due date before for a partner.")
+    @Operation(summary = "Search invoices",
+            description = "Search a partner's invoices. All provided filters are combined with AND; status may be repeated " +
+                    "to match any of several statuses. Returns an array ordered by issue date descending: every match, " +
+                    "or one page of matches when page or size is given.")
     public ResponseEntity<List<InvoiceResponse>> search(
             @RequestParam Long partnerId,
-            @RequestParam(required = false) InvoiceStatus status,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueBefore
+            @RequestParam(required = false) List<InvoiceStatus> status,
+            @RequestParam(required = false) Long customerId,
+            @RequestParam(required = false) String currency,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate issueDateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate issueDateTo,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDateTo,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueBefore,
+            @RequestParam(required = false) BigDecimal minTotal,
+            @RequestParam(required = false) BigDecimal maxTotal,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size
     ) {
-        var partner = partnerRepository.findById(partnerId)
-                .orElseThrow(() -> new IllegalArgumentException("Partner not found"));
-        List<Invoice> result;
-        if (status != null) {
-            result = invoiceRepository.findByPartnerAndStatusAndDeletedFalse(partner, status);
-        } else if (dueBefore != null) {
-            result = invoiceRepository.findByPartnerAndDueDateBeforeAndDeletedFalse(partner, dueBefore);
-        } else {
-            result = invoiceRepository.findByPartnerAndDeletedFalse(partner);
-        }
+        InvoiceSearchCriteria criteria = new InvoiceSearchCriteria();
+        criteria.partnerId = partnerId;
+        criteria.statuses = status;
+        criteria.customerId = customerId;
+        criteria.currency = currency;
+        criteria.issueDateFrom = issueDateFrom;
+        criteria.issueDateTo = issueDateTo;
+        criteria.dueDateFrom = dueDateFrom;
+        criteria.dueDateTo = dueDateTo;
+        criteria.dueBefore = dueBefore;
+        criteria.minTotal = minTotal;
+        criteria.maxTotal = maxTotal;
+
+        List<InvoiceView> result = invoiceService.search(criteria, page, size);
         return ResponseEntity.ok(result.stream().map(DtoMappers::toInvoiceResponse).toList());
     }
 
+    // PUBLIC_INTERFACE
+    @GetMapping("/fulltext")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('USER')")
+    @Operation(summary = "Full-text search invoices",
+            description = "Ranked search over invoice number, notes, customer name and line item names/descriptions. " +
+                    "Each word of q matches words starting with it; all words must match.")
+    public ResponseEntity<PageImpl<InvoiceResponse>> fulltext(
+            @RequestParam Long partnerId,
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        Page<InvoiceView> result = invoiceSearchService.search(partnerId, q, page, size);
+        List<InvoiceResponse> content = result.getContent().stream()
+                .map(DtoMappers::toInvoiceResponse)
+                .toList();
+        return ResponseEntity.ok(new PageImpl<>(content, result.getPageable(), result.getTotalElements()));
+    }
+
+    // PUBLIC_INTERFACE
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
+    @Operation(summary = "Export invoices",
+            description = "Streams a partner's invoices as NDJSON (default) or CSV, optionally with items and payments. " +
+                    "Rows are written as they are read, so exports of any size use bounded memory. Requires ADMIN or MANAGER.")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam Long partnerId,
+            @RequestParam(defaultValue = "NDJSON") InvoiceExportService.Format format,
+            @RequestParam(required = false) InvoiceStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate issueDateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate issueDateTo,
+            @RequestParam(defaultValue = "false") boolean includeItems,
+            @RequestParam(defaultValue = "false") boolean includePayments
+    ) {
+        StreamingResponseBody body = invoiceExportService.export(partnerId, status, issueDateFrom, issueDateTo,
+                includeItems, includePayments, format);
+        boolean csv = format == InvoiceExportService.Format.CSV;
+        String filename = "invoices-" + partnerId + (csv ? ".csv" : ".ndjson");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     // PUBLIC_INTERFACE
     @GetMapping("/generate-number")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('USER')")
-    @Operation(summary = "Generate next invoice number", description = "Generates a simple next invoice number for a partner based on current count.")
+    @Operation(summary = "Generate next invoice number",
+            description = "Allocates the next invoice number for a partner from its numbering sequence. " +
+                    "Each call returns a distinct number, even across instances; unused numbers leave gaps.")
     public ResponseEntity<String> generateNumber(@RequestParam Long partnerId) {
-        // Simple MVP strategy: INV-<count+1> with zero padding. In future, move to dedicated service/sequence.
-        var partner = partnerRepository.findById(partnerId)
-                .orElseThrow(() -> new IllegalArgumentException("Partner not found"));
-        int count = invoiceRepository.findByPartnerAndDeletedFalse(partner).size();
-        String next = String.format("INV-%06d", count + 1);
-        return ResponseEntity.ok(next);
+        return ResponseEntity.ok(invoiceNumberService.nextNumber(partnerId));
+    }
+
+    private static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Version required by an If-Match header: null when absent or "*", otherwise the version of a single strong ETag.
+     * Weak or malformed tags can never match a strong comparison, so they map to a version no invoice has.
+     */
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
     }
 }
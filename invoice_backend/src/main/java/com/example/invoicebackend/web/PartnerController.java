@@ -1,6 +1,10 @@
 package com.example.invoicebackend.web;
 
+import com.example.invoicebackend.model.InvoiceNumberSequence;
+import com.example.invoicebackend.service.InvoiceNumberService;
 import com.example.invoicebackend.service.PartnerService;
+import com.example.invoicebackend.web.dto.PartnerDtos.InvoiceNumberingRequest;
+import com.example.invoicebackend.web.dto.PartnerDtos.InvoiceNumberingResponse;
 import com.example.invoicebackend.web.dto.PartnerDtos.PartnerCreateRequest;
 import com.example.invoicebackend.web.dto.PartnerDtos.PartnerResponse;
 import com.example.invoicebackend.web.dto.PartnerDtos.PartnerUpdateRequest;
@@ -30,9 +34,11 @@ import java.util.List;
 public class PartnerController {
 
     private final PartnerService partnerService;
+    private final InvoiceNumberService invoiceNumberService;
 
-    public PartnerController(PartnerService partnerService) {
+    public PartnerController(PartnerService partnerService, InvoiceNumberService invoiceNumberService) {
         this.partnerService = partnerService;
+        this.invoiceNumberService = invoiceNumberService;
     }
 
     // PUBLIC_INTERFACE
@@ -111,4 +117,35 @@ public class PartnerController {
         partnerService.softDelete(id);
         return ResponseEntity.noContent().build();
     }
+
+    // PUBLIC_INTERFACE
+    @GetMapping("/{id}/invoice-numbering")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('USER')")
+    @Operation(
+            summary = "Get invoice numbering settings",
+            description = "Returns the partner's invoice number format and padding."
+    )
+    public ResponseEntity<InvoiceNumberingResponse> getNumbering(@PathVariable Long id) {
+        return ResponseEntity.ok(toNumberingResponse(invoiceNumberService.getSettings(id)));
+    }
+
+    // PUBLIC_INTERFACE
+    @PutMapping("/{id}/invoice-numbering")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
+    @Operation(
+            summary = "Update invoice numbering settings",
+            description = "Sets the partner's invoice number format (must contain {SEQ}) and padding. Requires ADMIN or MANAGER role."
+    )
+    public ResponseEntity<InvoiceNumberingResponse> updateNumbering(@PathVariable Long id,
+                                                                    @RequestBody InvoiceNumberingRequest request) {
+        return ResponseEntity.ok(toNumberingResponse(invoiceNumberService.updateSettings(id, request.numberFormat, request.padWidth)));
+    }
+
+    private InvoiceNumberingResponse toNumberingResponse(InvoiceNumberSequence seq) {
+        InvoiceNumberingResponse r = new InvoiceNumberingResponse();
+        r.partnerId = seq.getPartnerId();
+        r.numberFormat = seq.getNumberFormat();
+        r.padWidth = seq.getPadWidth();
+        return r;
+    }
 }
@@ -0,0 +1,76 @@
+package com.example.invoicebackend.web;
+
+import com.example.invoicebackend.repository.WebhookDeliveryRepository.Delivery;
+import com.example.invoicebackend.service.webhook.WebhookRetrier;
+import com.example.invoicebackend.web.dto.WebhookDtos.WebhookDeliveryResponse;
+import com.example.invoicebackend.web.mapper.DtoMappers;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Outgoing webhook deliveries that exhausted their retries (dead letters), with replay.
+ */
+@RestController
+@RequestMapping("/api/webhook-deliveries")
+@Tag(name = "Webhook Deliveries", description = "Dead-lettered outgoing webhook deliveries")
+public class WebhookDeliveriesController {
+
+    private final WebhookRetrier retrier;
+
+    public WebhookDeliveriesController(WebhookRetrier retrier) {
+        this.retrier = retrier;
+    }
+
+    // PUBLIC_INTERFACE
+    @GetMapping("/dead-letters")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
+    @Operation(
+            summary = "List dead-lettered deliveries",
+            description = "Returns outgoing webhook deliveries that failed every attempt, newest first. Requires ADMIN or MANAGER role.",
+            parameters = {
+                    @Parameter(name = "partnerId", description = "Optional partner filter"),
+                    @Parameter(name = "page", description = "Page number starting at 0"),
+                    @Parameter(name = "size", description = "Page size, at most 100")
+            }
+    )
+    public ResponseEntity<PageImpl<WebhookDeliveryResponse>> listDeadLetters(
+            @RequestParam(required = false) Long partnerId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        Page<Delivery> result = retrier.listDeadLetters(partnerId, page, size);
+        List<WebhookDeliveryResponse> content = result.getContent().stream()
+                .map(DtoMappers::toWebhookDeliveryResponse)
+                .toList();
+        return ResponseEntity.ok(new PageImpl<>(content, result.getPageable(), result.getTotalElements()));
+    }
+
+    // PUBLIC_INTERFACE
+    @PostMapping("/dead-letters/{id}/replay")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
+    @Operation(
+            summary = "Replay a dead-lettered delivery",
+            description = "Schedules the delivery for an immediate retry with a fresh attempt budget. Requires ADMIN or MANAGER role.",
+            parameters = {
+                    @Parameter(name = "id", in = ParameterIn.PATH, description = "Delivery id")
+            },
+            responses = {
+                    @ApiResponse(responseCode = "202", description = "Replay scheduled"),
+                    @ApiResponse(responseCode = "400", description = "No dead-lettered delivery with that id")
+            }
+    )
+    public ResponseEntity<Void> replay(@PathVariable Long id) {
+        retrier.replay(id);
+        return ResponseEntity.accepted().build();
+    }
+}
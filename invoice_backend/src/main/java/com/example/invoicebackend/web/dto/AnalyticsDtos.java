@@ -28,18 +28,37 @@ public class AnalyticsDtos {
 
         @Schema(description = "Counts of invoices by status within range")
         public Map<InvoiceStatus, Long> statusCounts;
+
+        @Schema(description = "Total amount of invoices by status within range")
+        public Map<InvoiceStatus, BigDecimal> statusAmounts;
+
+        @Schema(description = "Median payment delay in days of paid invoices within range; null when there are none", example = "2")
+        public Integer paymentDelayP50Days;
+
+        @Schema(description = "90th percentile payment delay in days", example = "14")
+        public Integer paymentDelayP90Days;
+
+        @Schema(description = "99th percentile payment delay in days", example = "45")
+        public Integer paymentDelayP99Days;
+
+        @Schema(description = "Approximate number of distinct customers invoiced within range (about 1.6% error); "
+                + "null when a status filter is given", example = "120")
+        public Long distinctCustomers;
     }
 
     /**
      * Timeseries datapoint for charts.
      */
     public static class TimeseriesPoint {
-        @Schema(description = "Month bucket date (first day of month)")
+        @Schema(description = "Bucket date (first day of the day/week/month/quarter; weeks start on Monday)")
         public LocalDate period;
 
-        @Schema(description = "Total amount for this period", example = "5000.00")
+        @Schema(description = "Total amount for this period; absent for count metrics", example = "5000.00")
         public BigDecimal amount;
 
+        @Schema(description = "Number of invoices, payments or customers counted in this period", example = "12")
+        public Long count;
+
         @Schema(description = "Optional partner id grouped result", example = "1")
         public Long partnerId;
 
@@ -51,10 +70,105 @@ public class AnalyticsDtos {
      * Timeseries response wrapper.
      */
     public static class TimeseriesResponse {
-        @Schema(description = "Series name or dimension like 'invoiced' or 'paid'")
+        @Schema(description = "Series name: invoiced, paid, outstanding, overdue_count or new_customers")
         public String metric;
 
         @Schema(description = "Points ordered by period ascending")
         public List<TimeseriesPoint> points;
     }
+
+    /**
+     * Several timeseries computed together over the same buckets.
+     */
+    public static class MultiTimeseriesResponse {
+        @Schema(description = "Bucket size: day, week, month or quarter", example = "month")
+        public String granularity;
+
+        @Schema(description = "One series per requested metric, in request order")
+        public List<TimeseriesResponse> series;
+    }
+
+    /**
+     * Summary, invoiced/paid timeseries and status breakdown for one dashboard, computed concurrently.
+     */
+    public static class DashboardResponse {
+        @Schema(description = "Summary KPIs, including counts and amounts by status")
+        public SummaryResponse summary;
+
+        @Schema(description = "Invoiced amount per period")
+        public TimeseriesResponse invoiced;
+
+        @Schema(description = "Paid amount per period")
+        public TimeseriesResponse paid;
+    }
+
+    /**
+     * Open receivables of one aging bucket.
+     */
+    public static class AgingBucketTotal {
+        @Schema(description = "Bucket: current, 1-30, 31-60, 61-90 or 90+ days past due", example = "1-30")
+        public String bucket;
+
+        @Schema(description = "Number of open invoices in this bucket", example = "4")
+        public long count;
+
+        @Schema(description = "Total amount of open invoices in this bucket", example = "1250.00")
+        public BigDecimal amount;
+    }
+
+    /**
+     * Aging of one customer's open receivables.
+     */
+    public static class CustomerAging {
+        @Schema(description = "Customer id", example = "12")
+        public Long customerId;
+
+        @Schema(description = "Customer name")
+        public String customerName;
+
+        @Schema(description = "Total open amount over all buckets", example = "3400.00")
+        public BigDecimal totalAmount;
+
+        @Schema(description = "All buckets in order, including empty ones")
+        public List<AgingBucketTotal> buckets;
+    }
+
+    /**
+     * Aging of one partner's open receivables, with its customers.
+     */
+    public static class PartnerAging {
+        @Schema(description = "Partner id", example = "1")
+        public Long partnerId;
+
+        @Schema(description = "Total open amount over all buckets", example = "15234.50")
+        public BigDecimal totalAmount;
+
+        @Schema(description = "All buckets in order, including empty ones")
+        public List<AgingBucketTotal> buckets;
+
+        @Schema(description = "Customers with open invoices, ordered by id")
+        public List<CustomerAging> customers;
+    }
+
+    /**
+     * Receivables aging report.
+     */
+    public static class AgingResponse {
+        @Schema(description = "Date days past due are counted from", example = "2024-06-30")
+        public LocalDate asOf;
+
+        @Schema(description = "Buckets over all returned partners")
+        public List<AgingBucketTotal> buckets;
+
+        @Schema(description = "Partners with open invoices, ordered by id")
+        public List<PartnerAging> partners;
+    }
+
+    /**
+     * Result of rebuilding analytics rollups.
+     */
+    public static class RollupRebuildResponse {
+        @Schema(description = "Number of partners whose rollups were rebuilt", example = "1")
+        public int partnersRebuilt;
+    }
 }
@@ -4,6 +4,7 @@ import com.example.invoicebackend.model.enums.InvoiceStatus;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 
 import java.math.BigDecimal;
@@ -64,5 +65,55 @@ public class InvoiceDtos {
         public BigDecimal taxAmount;
         public BigDecimal discountAmount;
         public BigDecimal totalAmount;
+        @Schema(description = "Optimistic-locking version; also sent as the ETag of GET /api/invoices/{id}")
+        public long version;
+    }
+
+    public static class InvoiceCursorPage {
+        @Schema(description = "Invoices in issue date descending order")
+        public List<InvoiceResponse> items;
+        @Schema(description = "Opaque token to pass as cursor for the next page; null when there are no more rows")
+        public String nextCursor;
+        public boolean hasMore;
+    }
+
+    /**
+     * Filters for invoice search; every non-null field is ANDed with the others.
+     */
+    public static class InvoiceSearchCriteria {
+        public Long partnerId;
+        public List<InvoiceStatus> statuses;
+        public Long customerId;
+        public String currency;
+        public LocalDate issueDateFrom;
+        public LocalDate issueDateTo;
+        public LocalDate dueDateFrom;
+        public LocalDate dueDateTo;
+        public LocalDate dueBefore;
+        public BigDecimal minTotal;
+        public BigDecimal maxTotal;
+    }
+
+    public static class InvoiceBatchRequest {
+        @Schema(description = "Invoices to create; each entry is validated and reported on individually")
+        @NotEmpty public List<InvoiceCreateRequest> invoices;
+    }
+
+    public static class InvoiceBatchItemResult {
+        @Schema(description = "Position of the entry in the request")
+        public int index;
+        public String invoiceNumber;
+        public boolean success;
+        @Schema(description = "Id of the created invoice; null on failure")
+        public Long id;
+        @Schema(description = "Reason the entry was rejected; null on success")
+        public String error;
+    }
+
+    public static class InvoiceBatchResponse {
+        public int created;
+        public int failed;
+        @Schema(description = "One result per request entry, in request order")
+        public List<InvoiceBatchItemResult> results;
     }
 }
@@ -52,4 +52,18 @@ public class PartnerDtos {
         public String country;
         public boolean deleted;
     }
+
+    public static class InvoiceNumberingRequest {
+        @Schema(description = "Number format; must contain {SEQ}. Optional tokens: {YYYY}, {YY}, {MM}", example = "INV-{YYYY}-{SEQ}")
+        public String numberFormat;
+
+        @Schema(description = "Zero padding width for {SEQ}", example = "6")
+        public Integer padWidth;
+    }
+
+    public static class InvoiceNumberingResponse {
+        public Long partnerId;
+        public String numberFormat;
+        public Integer padWidth;
+    }
 }
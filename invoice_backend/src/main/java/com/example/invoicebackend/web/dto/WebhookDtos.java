@@ -5,6 +5,7 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.Map;
 
@@ -90,4 +91,28 @@ public class WebhookDtos {
             this.requestId = requestId;
         }
     }
+
+    /**
+     * Outgoing webhook delivery that failed and is retried or dead-lettered
+     */
+    public static class WebhookDeliveryResponse {
+        public Long id;
+        public Long subscriptionId;
+        public Long partnerId;
+        @Schema(description = "Invoice of the event; null for a batch of events")
+        public Long invoiceId;
+        public String eventType;
+        @Schema(description = "Event payload, or a JSON array of payloads for a batch")
+        public String payload;
+        @Schema(description = "PENDING (retry scheduled) or DEAD", example = "DEAD")
+        public String status;
+        @Schema(description = "Failed attempts so far", example = "8")
+        public int attemptCount;
+        public Instant nextAttemptAt;
+        @Schema(description = "HTTP status of the last failed attempt, if the target responded", example = "503")
+        public Integer lastStatus;
+        public String lastError;
+        public Instant createdAt;
+        public Instant updatedAt;
+    }
 }
@@ -2,9 +2,12 @@ package com.example.invoicebackend.web.mapper;
 
 import com.example.invoicebackend.model.*;
 import com.example.invoicebackend.model.enums.InvoiceStatus;
+import com.example.invoicebackend.repository.WebhookDeliveryRepository.Delivery;
+import com.example.invoicebackend.repository.projection.InvoiceView;
 import com.example.invoicebackend.web.dto.InvoiceDtos.*;
 import com.example.invoicebackend.web.dto.PartnerDtos.*;
 import com.example.invoicebackend.web.dto.TemplateDtos.*;
+import com.example.invoicebackend.web.dto.WebhookDtos.WebhookDeliveryResponse;
 
 import java.math.BigDecimal;
 
@@ -54,6 +57,25 @@ public class DtoMappers {
         r.taxAmount = inv.getTaxAmount();
         r.discountAmount = inv.getDiscountAmount();
         r.totalAmount = inv.getTotalAmount();
+        r.version = inv.getVersion();
+        return r;
+    }
+
+    // PUBLIC_INTERFACE
+    public static InvoiceResponse toInvoiceResponse(InvoiceView v) {
+        /** Map read-only InvoiceView projection to response DTO. */
+        InvoiceResponse r = new InvoiceResponse();
+        r.id = v.id();
+        r.invoiceNumber = v.invoiceNumber();
+        r.currency = v.currency();
+        r.issueDate = v.issueDate();
+        r.dueDate = v.dueDate();
+        r.status = v.status();
+        r.subtotalAmount = v.subtotalAmount();
+        r.taxAmount = v.taxAmount();
+        r.discountAmount = v.discountAmount();
+        r.totalAmount = v.totalAmount();
+        r.version = v.version();
         return r;
     }
 
@@ -96,4 +118,24 @@ public class DtoMappers {
         if (invoice.getDiscountAmount() == null) invoice.setDiscountAmount(BigDecimal.ZERO);
         if (invoice.getTotalAmount() == null) invoice.setTotalAmount(BigDecimal.ZERO);
     }
+
+    // PUBLIC_INTERFACE
+    public static WebhookDeliveryResponse toWebhookDeliveryResponse(Delivery d) {
+        /** Map a stored webhook delivery to response DTO. */
+        WebhookDeliveryResponse r = new WebhookDeliveryResponse();
+        r.id = d.id();
+        r.subscriptionId = d.subscriptionId();
+        r.partnerId = d.partnerId();
+        r.invoiceId = d.invoiceId();
+        r.eventType = d.eventType();
+        r.payload = d.payload();
+        r.status = d.status();
+        r.attemptCount = d.attemptCount();
+        r.nextAttemptAt = d.nextAttemptAt();
+        r.lastStatus = d.lastStatus();
+        r.lastError = d.lastError();
+        r.createdAt = d.createdAt();
+        r.updatedAt = d.updatedAt();
+        return r;
+    }
 }
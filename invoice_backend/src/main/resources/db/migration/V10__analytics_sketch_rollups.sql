@@ -0,0 +1,28 @@
+-- Flyway Migration: V10__analytics_sketch_rollups.sql
+-- Per-partner daily rollups behind the payment delay percentiles and distinct customer counts of the analytics
+-- summary. Like the V8 rollups they are maintained in the same transaction as invoice writes and filled for
+-- existing data by the rollup backfill on startup (it runs until analytics_rollup_backfills, V15, records it).
+
+-- PAID non-deleted invoices with a due date by issue date, date of the latest COMPLETED payment and
+-- delay in days max(0, paid_date - due_date): an additive histogram, so percentiles are exact.
+CREATE TABLE IF NOT EXISTS settlement_delay_rollups (
+    partner_id       BIGINT NOT NULL,
+    issue_date       DATE NOT NULL,
+    paid_date        DATE NOT NULL,
+    delay_days       INT NOT NULL,
+    invoice_count    BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT pk_settlement_delay_rollups PRIMARY KEY (partner_id, issue_date, paid_date, delay_days),
+    CONSTRAINT fk_settlement_delay_rollups_partner FOREIGN KEY (partner_id) REFERENCES partners (id)
+);
+
+-- HyperLogLog registers (2^12 per sketch) of the customers invoiced on each issue date. Only registers raised by
+-- a customer are stored; a window's sketch is the per-register maximum over its days. Registers only grow, so
+-- deleted invoices keep counting until the partner's rollups are rebuilt.
+CREATE TABLE IF NOT EXISTS customer_sketch_rollups (
+    partner_id       BIGINT NOT NULL,
+    issue_date       DATE NOT NULL,
+    register_index   INT NOT NULL,
+    max_rank         SMALLINT NOT NULL DEFAULT 0,
+    CONSTRAINT pk_customer_sketch_rollups PRIMARY KEY (partner_id, issue_date, register_index),
+    CONSTRAINT fk_customer_sketch_rollups_partner FOREIGN KEY (partner_id) REFERENCES partners (id)
+);
@@ -0,0 +1,17 @@
+-- Flyway Migration: V11__webhook_outbox.sql
+-- Transactional outbox for outgoing webhooks. Invoice writes insert their events here in the same transaction,
+-- so an event exists exactly when its write committed; the webhook relay claims, delivers and deletes them.
+-- claimed_by/claimed_at mark a batch taken by one relay; claims older than the claim timeout are taken over.
+
+CREATE TABLE IF NOT EXISTS webhook_outbox (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    partner_id       BIGINT NOT NULL,
+    invoice_id       BIGINT NOT NULL,
+    event_type       VARCHAR(100) NOT NULL,
+    payload          TEXT NOT NULL,
+    created_at       TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    claimed_by       VARCHAR(64),
+    claimed_at       TIMESTAMP,
+    CONSTRAINT fk_webhook_outbox_partner FOREIGN KEY (partner_id) REFERENCES partners (id)
+);
+CREATE INDEX IF NOT EXISTS idx_webhook_outbox_claimed ON webhook_outbox(claimed_at, id);
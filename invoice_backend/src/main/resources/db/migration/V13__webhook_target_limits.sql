@@ -0,0 +1,8 @@
+-- Flyway Migration: V13__webhook_target_limits.sql
+-- Optional per-subscription overrides of the outgoing delivery circuit breaker and rate limit
+-- (app.webhooks.circuit.* and app.webhooks.rate-limit.*). NULL uses the configured default.
+
+ALTER TABLE webhook_subscriptions ADD COLUMN circuit_failure_threshold INT;
+ALTER TABLE webhook_subscriptions ADD COLUMN circuit_open_seconds INT;
+ALTER TABLE webhook_subscriptions ADD COLUMN rate_limit_per_second DOUBLE PRECISION;
+ALTER TABLE webhook_subscriptions ADD COLUMN rate_limit_burst INT;
@@ -0,0 +1,9 @@
+-- Flyway Migration: V15__analytics_rollup_backfills.sql
+-- One row per completed startup backfill of the analytics rollups, keyed by the rollup set it filled
+-- (AnalyticsRollupBackfill.ROLLUP_SET). Replaces guessing from empty rollup tables, which a single delta written
+-- by another instance could defeat. Databases backfilled before this migration are backfilled once more.
+
+CREATE TABLE IF NOT EXISTS analytics_rollup_backfills (
+    rollup_set      VARCHAR(50) PRIMARY KEY,
+    completed_at    TIMESTAMP NOT NULL
+);
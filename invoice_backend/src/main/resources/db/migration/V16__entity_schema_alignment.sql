@@ -0,0 +1,5 @@
+-- Flyway Migration: V16__entity_schema_alignment.sql
+-- Columns mapped by entities that the earlier migrations never created; with ddl-auto=validate the
+-- application did not start without them.
+
+ALTER TABLE reminder_logs ADD COLUMN IF NOT EXISTS target VARCHAR(255);
@@ -0,0 +1,6 @@
+-- Flyway Migration: V17__webhook_delivery_deferred_since.sql
+-- When a stored delivery was first held back by its target's circuit breaker or rate limit without being
+-- attempted since; NULL when its last outcome was an attempt. app.webhooks.retry.max-deferral-age is measured
+-- from here, so a replayed or recently attempted delivery gets the full deferral budget again.
+
+ALTER TABLE webhook_deliveries ADD COLUMN deferred_since TIMESTAMP;
@@ -0,0 +1,13 @@
+-- Flyway Migration: V3__invoice_list_indexes.sql
+-- Composite indexes backing GET /api/invoices, which filters by partner (non-deleted),
+-- optionally by status or customer, and orders by issue_date DESC, id DESC with LIMIT/OFFSET.
+-- Plain B-tree indexes keep this H2 and Postgres compatible (both scan them backwards for DESC).
+
+-- Partner listing without further filters; also serves issueDateFrom/issueDateTo range predicates.
+CREATE INDEX IF NOT EXISTS idx_invoices_partner_issue ON invoices(partner_id, is_deleted, issue_date, id);
+
+-- Partner listing filtered by status.
+CREATE INDEX IF NOT EXISTS idx_invoices_partner_status_issue ON invoices(partner_id, status, issue_date, id);
+
+-- Partner listing filtered by customer.
+CREATE INDEX IF NOT EXISTS idx_invoices_partner_customer_issue ON invoices(partner_id, customer_id, issue_date, id);
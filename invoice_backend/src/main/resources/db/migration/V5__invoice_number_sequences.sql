@@ -0,0 +1,14 @@
+-- Flyway Migration: V5__invoice_number_sequences.sql
+-- Per-partner invoice number allocator state. Application instances reserve blocks of numbers by
+-- locking the partner's row (SELECT ... FOR UPDATE) and advancing next_value by the block size,
+-- then hand out numbers from the block in memory. Unused numbers of a block are skipped (gap-tolerant).
+
+CREATE TABLE IF NOT EXISTS invoice_number_sequences (
+    partner_id       BIGINT PRIMARY KEY,
+    next_value       BIGINT NOT NULL DEFAULT 1,     -- first value not yet reserved by any instance
+    number_format    VARCHAR(100) NOT NULL DEFAULT 'INV-{SEQ}', -- tokens: {SEQ}, {YYYY}, {YY}, {MM}
+    pad_width        INTEGER NOT NULL DEFAULT 6,    -- zero padding applied to {SEQ}
+    created_at       TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at       TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_invoice_number_sequences_partner FOREIGN KEY (partner_id) REFERENCES partners (id)
+);
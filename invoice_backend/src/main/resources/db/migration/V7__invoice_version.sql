@@ -0,0 +1,5 @@
+-- Flyway Migration: V7__invoice_version.sql
+-- Optimistic-locking version for invoices. Exposed as the ETag of GET /api/invoices/{id}
+-- and checked against If-Match on updates. Existing rows and JDBC batch inserts start at 0.
+
+ALTER TABLE invoices ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
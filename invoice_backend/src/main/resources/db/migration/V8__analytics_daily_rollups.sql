@@ -0,0 +1,40 @@
+-- Flyway Migration: V8__analytics_daily_rollups.sql
+-- Per-partner daily rollups used by analytics instead of scanning invoices and payments.
+-- Rows are maintained with additive deltas in the same transaction as invoice writes; counts may drop
+-- to zero and the row stays. Existing data is loaded by the rollup backfill job on startup
+-- (app.analytics.rollups.backfill-on-startup) or via POST /api/analytics/rollups/rebuild.
+
+-- Non-deleted invoices by issue date and status
+CREATE TABLE IF NOT EXISTS invoice_daily_rollups (
+    partner_id       BIGINT NOT NULL,
+    issue_date       DATE NOT NULL,
+    status           VARCHAR(50) NOT NULL,
+    invoice_count    BIGINT NOT NULL DEFAULT 0,
+    total_amount     NUMERIC(19,2) NOT NULL DEFAULT 0.00,
+    CONSTRAINT pk_invoice_daily_rollups PRIMARY KEY (partner_id, issue_date, status),
+    CONSTRAINT fk_invoice_daily_rollups_partner FOREIGN KEY (partner_id) REFERENCES partners (id)
+);
+
+-- COMPLETED payments of non-deleted invoices by payment date
+CREATE TABLE IF NOT EXISTS payment_daily_rollups (
+    partner_id       BIGINT NOT NULL,
+    payment_date     DATE NOT NULL,
+    payment_count    BIGINT NOT NULL DEFAULT 0,
+    paid_amount      NUMERIC(19,2) NOT NULL DEFAULT 0.00,
+    CONSTRAINT pk_payment_daily_rollups PRIMARY KEY (partner_id, payment_date),
+    CONSTRAINT fk_payment_daily_rollups_partner FOREIGN KEY (partner_id) REFERENCES partners (id)
+);
+
+-- PAID non-deleted invoices with a due date, by issue date and date of the latest COMPLETED payment.
+-- delay_days_sum adds max(0, paid_date - due_date); on_time_count counts paid_date <= due_date.
+CREATE TABLE IF NOT EXISTS settlement_daily_rollups (
+    partner_id       BIGINT NOT NULL,
+    issue_date       DATE NOT NULL,
+    paid_date        DATE NOT NULL,
+    invoice_count    BIGINT NOT NULL DEFAULT 0,
+    on_time_count    BIGINT NOT NULL DEFAULT 0,
+    delay_days_sum   BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT pk_settlement_daily_rollups PRIMARY KEY (partner_id, issue_date, paid_date),
+    CONSTRAINT fk_settlement_daily_rollups_partner FOREIGN KEY (partner_id) REFERENCES partners (id)
+);
+CREATE INDEX IF NOT EXISTS idx_settlement_daily_rollups_paid ON settlement_daily_rollups(partner_id, paid_date);
@@ -0,0 +1,192 @@
+package com.example.invoicebackend.service;
+
+import com.example.invoicebackend.model.Invoice;
+import com.example.invoicebackend.model.enums.InvoiceStatus;
+import com.example.invoicebackend.repository.AnalyticsRepository;
+import com.example.invoicebackend.repository.AnalyticsRepository.InvoiceFilter;
+import com.example.invoicebackend.repository.AnalyticsRepository.PartnerRange;
+import com.example.invoicebackend.service.analytics.AnalyticsEngine;
+import com.example.invoicebackend.service.analytics.DelayHistogram;
+import com.example.invoicebackend.service.analytics.RollupAnalyticsEngine;
+import com.example.invoicebackend.web.dto.InvoiceDtos.InvoiceCreateRequest;
+import com.example.invoicebackend.web.dto.InvoiceDtos.InvoiceItemRequest;
+import com.example.invoicebackend.web.dto.InvoiceDtos.InvoiceUpdateRequest;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Rollups maintained by per-change deltas (create, update, payments, soft delete) must answer every analytics
+ * query exactly like rollups rebuilt from the invoices and payments tables.
+ */
+@SpringBootTest
+@Transactional
+class AnalyticsRollupServiceTest {
+
+	private static final LocalDate JAN = LocalDate.of(2026, 1, 5);
+	private static final LocalDate[][] WINDOWS = {
+			{null, null},
+			{LocalDate.of(2026, 2, 1), LocalDate.of(2026, 2, 28)},
+	};
+
+	@Autowired
+	private InvoiceService invoiceService;
+
+	@Autowired
+	private AnalyticsRollupService rollups;
+
+	@Autowired
+	private AnalyticsRepository analyticsRepository;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private Long partnerId;
+	private final List<Long> customerIds = new ArrayList<>();
+
+	@BeforeEach
+	void createPartner() {
+		jdbc.update("INSERT INTO users (email, password_hash) VALUES ('rollups@example.com', 'x')");
+		Long userId = jdbc.queryForObject("SELECT id FROM users WHERE email = 'rollups@example.com'", Long.class);
+		jdbc.update("INSERT INTO partners (owner_user_id, name) VALUES (?, 'Rollup partner')", userId);
+		partnerId = jdbc.queryForObject("SELECT id FROM partners WHERE owner_user_id = ?", Long.class, userId);
+		for (int i = 0; i < 4; i++) {
+			jdbc.update("INSERT INTO customers (partner_id, name) VALUES (?, ?)", partnerId, "Customer " + i);
+		}
+		customerIds.addAll(jdbc.queryForList("SELECT id FROM customers WHERE partner_id = ? ORDER BY id", Long.class,
+				partnerId));
+	}
+
+	private Long invoice(String number, int customer, LocalDate issueDate, LocalDate dueDate, String unitPrice) {
+		InvoiceCreateRequest req = new InvoiceCreateRequest();
+		req.partnerId = partnerId;
+		req.customerId = customerIds.get(customer);
+		req.invoiceNumber = number;
+		req.currency = "USD";
+		req.issueDate = issueDate;
+		req.dueDate = dueDate;
+		req.items = List.of(item(unitPrice));
+		return invoiceService.create(req).getId();
+	}
+
+	private static InvoiceItemRequest item(String unitPrice) {
+		InvoiceItemRequest item = new InvoiceItemRequest();
+		item.itemName = "Service";
+		item.quantity = BigDecimal.ONE;
+		item.unitPrice = new BigDecimal(unitPrice);
+		return item;
+	}
+
+	private void status(Long id, InvoiceStatus status) {
+		InvoiceUpdateRequest req = new InvoiceUpdateRequest();
+		req.status = status;
+		invoiceService.update(id, req);
+	}
+
+	private void pay(Long id, LocalDate day, String amount, String status) {
+		Invoice inv = invoiceService.find(id);
+		AnalyticsRollupService.Snapshot before = rollups.capture(inv);
+		jdbc.update("INSERT INTO payments (invoice_id, payment_date, amount, status) VALUES (?, ?, ?, ?)",
+				id, Date.valueOf(day), new BigDecimal(amount), status);
+		rollups.paymentsChanged(before, inv);
+	}
+
+	private PartnerRange partner() {
+		return new PartnerRange(partnerId, partnerId);
+	}
+
+	private static List<String> sorted(List<?> rows) {
+		// Row order is not part of the contract; toString keeps the BigDecimal scale in the comparison
+		return rows.stream().map(Object::toString).sorted().toList();
+	}
+
+	private List<Object> answers(AnalyticsEngine engine) {
+		List<Object> answers = new ArrayList<>();
+		for (LocalDate[] w : WINDOWS) {
+			InvoiceFilter all = new InvoiceFilter(partner(), w[0], w[1], null);
+			answers.add(sorted(engine.statusTotals(all)));
+			answers.add(sorted(engine.statusTotals(new InvoiceFilter(partner(), w[0], w[1], InvoiceStatus.PAID))));
+			answers.add(sorted(engine.invoicedByDayAndStatus(all)));
+			answers.add(sorted(engine.paidByDay(partner(), w[0], w[1])));
+			answers.add(sorted(engine.newCustomersByDay(partner(), w[0], w[1])));
+			answers.add(engine.settlementTotals(partner(), w[0], w[1], null, null));
+			answers.add(engine.settlementTotals(partner(), null, null, w[0], w[1]));
+			DelayHistogram delays = engine.settlementDelays(partner(), w[0], w[1], null, null);
+			answers.add(Arrays.asList(delays.count(), delays.percentile(0.5), delays.percentile(0.9),
+					delays.percentile(1.0)));
+		}
+		// Sketches only grow between rebuilds; every customer keeps a live invoice, so the full range agrees
+		answers.add(engine.invoicedCustomers(partner(), null, null).estimate());
+		return answers;
+	}
+
+	@Test
+	void deltasMatchRebuild() {
+		Long[] ids = new Long[10];
+		for (int i = 0; i < ids.length; i++) {
+			LocalDate issue = JAN.plusDays(6L * i);
+			ids[i] = invoice("RU-" + i, i % 4, issue, i % 5 == 4 ? null : issue.plusDays(14), (100 + i) + ".25");
+		}
+		// Two invoices on the same day, so rollup rows hold more than one invoice
+		Long sameDay = invoice("RU-10", 1, JAN.plusDays(12), JAN.plusDays(20), "40.10");
+
+		for (Long id : List.of(ids[0], ids[1], ids[2], ids[3], ids[5], ids[6], sameDay)) {
+			status(id, InvoiceStatus.SENT);
+		}
+		// Paid on time, late, in two parts and by payments of which one failed
+		pay(ids[0], JAN.plusDays(10), "100.25", "COMPLETED");
+		status(ids[0], InvoiceStatus.PAID);
+		status(ids[1], InvoiceStatus.PAID);
+		pay(ids[1], JAN.plusDays(30), "101.25", "COMPLETED");
+		pay(ids[2], JAN.plusDays(20), "50.00", "COMPLETED");
+		pay(ids[2], JAN.plusDays(40), "52.25", "COMPLETED");
+		status(ids[2], InvoiceStatus.PAID);
+		pay(ids[3], JAN.plusDays(25), "103.25", "FAILED");
+		pay(ids[3], JAN.plusDays(26), "103.25", "COMPLETED");
+		status(ids[3], InvoiceStatus.PAID);
+		pay(sameDay, JAN.plusDays(19), "40.10", "COMPLETED");
+		status(sameDay, InvoiceStatus.PAID);
+		status(ids[7], InvoiceStatus.CANCELED);
+
+		// Moved to another day and repriced, then paid
+		InvoiceUpdateRequest move = new InvoiceUpdateRequest();
+		move.issueDate = JAN.plusDays(33);
+		move.dueDate = JAN.plusDays(40);
+		move.items = List.of(item("75.50"), item("0.05"));
+		invoiceService.update(ids[5], move);
+		pay(ids[5], JAN.plusDays(45), "75.55", "COMPLETED");
+		status(ids[5], InvoiceStatus.PAID);
+
+		// Deleted after being paid: its payments leave the rollups with it
+		pay(ids[6], JAN.plusDays(50), "106.25", "COMPLETED");
+		status(ids[6], InvoiceStatus.PAID);
+		invoiceService.softDelete(ids[6]);
+		invoiceService.softDelete(ids[9]);
+
+		entityManager.flush();
+		AnalyticsEngine engine = new RollupAnalyticsEngine(analyticsRepository);
+		List<Object> fromDeltas = answers(engine);
+		assertFalse(engine.statusTotals(new InvoiceFilter(partner(), null, null, InvoiceStatus.PAID)).isEmpty());
+		assertEquals(6, engine.settlementTotals(partner(), null, null, null, null).invoiceCount());
+
+		rollups.rebuild(partnerId);
+		assertEquals(fromDeltas, answers(engine));
+	}
+}
@@ -0,0 +1,92 @@
+package com.example.invoicebackend.service;
+
+import com.example.invoicebackend.repository.projection.InvoiceView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Paging with listByPartnerAfter must visit every invoice exactly once, in (issue_date DESC, id DESC) order,
+ * also when a page boundary falls between invoices issued on the same day.
+ */
+@SpringBootTest
+@Transactional
+class InvoiceKeysetPagingTest {
+
+	private static final LocalDate DAY = LocalDate.of(2026, 3, 10);
+
+	@Autowired
+	private InvoiceService invoiceService;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	private Long partnerId;
+
+	@BeforeEach
+	void createInvoices() {
+		jdbc.update("INSERT INTO users (email, password_hash) VALUES ('keyset@example.com', 'x')");
+		Long userId = jdbc.queryForObject("SELECT id FROM users WHERE email = 'keyset@example.com'", Long.class);
+		jdbc.update("INSERT INTO partners (owner_user_id, name) VALUES (?, 'Keyset partner')", userId);
+		partnerId = jdbc.queryForObject("SELECT id FROM partners WHERE owner_user_id = ?", Long.class, userId);
+		jdbc.update("INSERT INTO customers (partner_id, name) VALUES (?, 'Keyset customer')", partnerId);
+		Long customerId = jdbc.queryForObject("SELECT id FROM customers WHERE partner_id = ?", Long.class, partnerId);
+
+		// Five invoices share DAY, so pages of two end inside the tie
+		LocalDate[] issueDates = {DAY, DAY.plusDays(1), DAY, DAY, DAY.minusDays(1), DAY, DAY, DAY.minusDays(2)};
+		for (int i = 0; i < issueDates.length; i++) {
+			jdbc.update("INSERT INTO invoices (partner_id, customer_id, invoice_number, issue_date) VALUES (?, ?, ?, ?)",
+					partnerId, customerId, "KS-" + i, Date.valueOf(issueDates[i]));
+		}
+	}
+
+	private List<Long> expectedOrder() {
+		return jdbc.queryForList("SELECT id FROM invoices WHERE partner_id = ? ORDER BY issue_date DESC, id DESC",
+				Long.class, partnerId);
+	}
+
+	private List<Long> pageThrough(int limit) {
+		List<Long> seen = new ArrayList<>();
+		InvoiceCursor after = null;
+		while (true) {
+			List<InvoiceView> page = invoiceService.listByPartnerAfter(partnerId, null, null, null, null, after, limit);
+			assertTrue(page.size() <= limit);
+			page.forEach(v -> seen.add(v.id()));
+			if (page.size() < limit) {
+				return seen;
+			}
+			InvoiceView last = page.get(page.size() - 1);
+			after = new InvoiceCursor(last.issueDate(), last.id());
+		}
+	}
+
+	@Test
+	void pagesThroughSameDayTiesInOrder() {
+		List<Long> expected = expectedOrder();
+		assertEquals(8, expected.size());
+		for (int limit = 1; limit <= 4; limit++) {
+			assertEquals(expected, pageThrough(limit));
+		}
+	}
+
+	@Test
+	void cursorInsideTieSkipsOnlyEarlierRows() {
+		List<Long> expected = expectedOrder();
+		// expected.get(2) is the second invoice issued on DAY
+		Long cursorId = expected.get(2);
+		List<InvoiceView> rest = invoiceService.listByPartnerAfter(partnerId, null, null, null, null,
+				new InvoiceCursor(DAY, cursorId), 100);
+		assertEquals(expected.subList(3, expected.size()), rest.stream().map(InvoiceView::id).toList());
+	}
+}
@@ -0,0 +1,242 @@
+package com.example.invoicebackend.service.analytics;
+
+import com.example.invoicebackend.model.Invoice;
+import com.example.invoicebackend.model.enums.InvoiceStatus;
+import com.example.invoicebackend.repository.AnalyticsRepository;
+import com.example.invoicebackend.repository.AnalyticsRepository.InvoiceFilter;
+import com.example.invoicebackend.repository.AnalyticsRepository.PartnerRange;
+import com.example.invoicebackend.service.AnalyticsRollupService;
+import com.example.invoicebackend.service.InvoiceService;
+import com.example.invoicebackend.web.dto.InvoiceDtos.InvoiceCreateRequest;
+import com.example.invoicebackend.web.dto.InvoiceDtos.InvoiceItemRequest;
+import com.example.invoicebackend.web.dto.InvoiceDtos.InvoiceUpdateRequest;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * The columnar engine must answer like RollupAnalyticsEngine over freshly rebuilt rollups, whether it loaded the
+ * partner after the writes, applied them one by one after loading, or received them while loading.
+ */
+@SpringBootTest
+@Transactional
+class ColumnarAnalyticsEngineTest {
+
+	private static final LocalDate JAN = LocalDate.of(2026, 1, 5);
+	// Unbounded queries span this early invoice too, which takes the sparse day aggregation
+	private static final LocalDate LONG_AGO = LocalDate.of(1840, 1, 1);
+	private static final LocalDate[][] WINDOWS = {
+			{null, null},
+			{LocalDate.of(2026, 2, 1), LocalDate.of(2026, 2, 28)},
+	};
+
+	@Autowired
+	private InvoiceService invoiceService;
+
+	@Autowired
+	private AnalyticsRollupService rollups;
+
+	@Autowired
+	private AnalyticsRepository analyticsRepository;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private Long partnerId;
+	private final List<Long> customerIds = new ArrayList<>();
+	private final List<Long> ids = new ArrayList<>();
+
+	@BeforeEach
+	void createPartner() {
+		jdbc.update("INSERT INTO users (email, password_hash) VALUES ('columnar@example.com', 'x')");
+		Long userId = jdbc.queryForObject("SELECT id FROM users WHERE email = 'columnar@example.com'", Long.class);
+		jdbc.update("INSERT INTO partners (owner_user_id, name) VALUES (?, 'Columnar partner')", userId);
+		partnerId = jdbc.queryForObject("SELECT id FROM partners WHERE owner_user_id = ?", Long.class, userId);
+		for (int i = 0; i < 4; i++) {
+			jdbc.update("INSERT INTO customers (partner_id, name) VALUES (?, ?)", partnerId, "Customer " + i);
+		}
+		customerIds.addAll(jdbc.queryForList("SELECT id FROM customers WHERE partner_id = ? ORDER BY id", Long.class,
+				partnerId));
+	}
+
+	private Long invoice(String number, int customer, LocalDate issueDate, LocalDate dueDate, String unitPrice) {
+		InvoiceCreateRequest req = new InvoiceCreateRequest();
+		req.partnerId = partnerId;
+		req.customerId = customerIds.get(customer);
+		req.invoiceNumber = number;
+		req.currency = "USD";
+		req.issueDate = issueDate;
+		req.dueDate = dueDate;
+		req.items = List.of(item(unitPrice));
+		return invoiceService.create(req).getId();
+	}
+
+	private static InvoiceItemRequest item(String unitPrice) {
+		InvoiceItemRequest item = new InvoiceItemRequest();
+		item.itemName = "Service";
+		item.quantity = BigDecimal.ONE;
+		item.unitPrice = new BigDecimal(unitPrice);
+		return item;
+	}
+
+	private void status(Long id, InvoiceStatus status) {
+		InvoiceUpdateRequest req = new InvoiceUpdateRequest();
+		req.status = status;
+		invoiceService.update(id, req);
+	}
+
+	private void pay(Long id, LocalDate day, String amount) {
+		Invoice inv = invoiceService.find(id);
+		AnalyticsRollupService.Snapshot before = rollups.capture(inv);
+		jdbc.update("INSERT INTO payments (invoice_id, payment_date, amount, status) VALUES (?, ?, ?, 'COMPLETED')",
+				id, Date.valueOf(day), new BigDecimal(amount));
+		rollups.paymentsChanged(before, inv);
+	}
+
+	private void createInvoices() {
+		for (int i = 0; i < 10; i++) {
+			LocalDate issue = JAN.plusDays(6L * i);
+			ids.add(invoice("CE-" + i, i % 4, issue, i % 5 == 4 ? null : issue.plusDays(14), (100 + i) + ".25"));
+		}
+		ids.add(invoice("CE-10", 1, JAN.plusDays(12), JAN.plusDays(20), "40.10"));
+		ids.add(invoice("CE-11", 3, LONG_AGO, LONG_AGO.plusDays(30), "12.00"));
+		entityManager.flush();
+	}
+
+	/** Writes through the services, reporting each touched invoice to {@code changed}. */
+	private void changeInvoices(Consumer<Long> changed) {
+		for (int i : new int[] {0, 1, 2, 3, 5, 6, 10}) {
+			status(ids.get(i), InvoiceStatus.SENT);
+			changed.accept(ids.get(i));
+		}
+		pay(ids.get(0), JAN.plusDays(10), "100.25");
+		status(ids.get(0), InvoiceStatus.PAID);
+		pay(ids.get(1), JAN.plusDays(30), "101.25");
+		status(ids.get(1), InvoiceStatus.PAID);
+		pay(ids.get(2), JAN.plusDays(20), "50.00");
+		pay(ids.get(2), JAN.plusDays(40), "52.25");
+		status(ids.get(2), InvoiceStatus.PAID);
+		pay(ids.get(10), JAN.plusDays(19), "40.10");
+		status(ids.get(10), InvoiceStatus.PAID);
+		status(ids.get(7), InvoiceStatus.CANCELED);
+		for (int i : new int[] {0, 1, 2, 10, 7}) {
+			changed.accept(ids.get(i));
+		}
+
+		InvoiceUpdateRequest move = new InvoiceUpdateRequest();
+		move.issueDate = JAN.plusDays(33);
+		move.dueDate = JAN.plusDays(40);
+		move.items = List.of(item("75.50"), item("0.05"));
+		invoiceService.update(ids.get(5), move);
+		pay(ids.get(5), JAN.plusDays(45), "75.55");
+		status(ids.get(5), InvoiceStatus.PAID);
+		changed.accept(ids.get(5));
+
+		pay(ids.get(6), JAN.plusDays(50), "106.25");
+		status(ids.get(6), InvoiceStatus.PAID);
+		invoiceService.softDelete(ids.get(6));
+		changed.accept(ids.get(6));
+		invoiceService.softDelete(ids.get(9));
+		changed.accept(ids.get(9));
+
+		Long added = invoice("CE-12", 2, JAN.plusDays(31), JAN.plusDays(35), "9.99");
+		pay(added, JAN.plusDays(36), "9.99");
+		status(added, InvoiceStatus.PAID);
+		changed.accept(added);
+		entityManager.flush();
+	}
+
+	private Consumer<Long> notifying(AnalyticsEngine engine) {
+		return id -> engine.invoicesChanged(List.of(rollups.capture(invoiceService.find(id))));
+	}
+
+	private PartnerRange partner() {
+		return new PartnerRange(partnerId, partnerId);
+	}
+
+	private static List<String> sorted(List<?> rows) {
+		// Row order is not part of the contract; toString keeps the BigDecimal scale in the comparison
+		return rows.stream().map(Object::toString).sorted().toList();
+	}
+
+	private List<Object> answers(AnalyticsEngine engine) {
+		List<Object> answers = new ArrayList<>();
+		for (LocalDate[] w : WINDOWS) {
+			InvoiceFilter all = new InvoiceFilter(partner(), w[0], w[1], null);
+			answers.add(sorted(engine.statusTotals(all)));
+			answers.add(sorted(engine.statusTotals(new InvoiceFilter(partner(), w[0], w[1], InvoiceStatus.PAID))));
+			answers.add(sorted(engine.invoicedByDayAndStatus(all)));
+			answers.add(sorted(engine.paidByDay(partner(), w[0], w[1])));
+			answers.add(sorted(engine.newCustomersByDay(partner(), w[0], w[1])));
+			answers.add(engine.settlementTotals(partner(), w[0], w[1], null, null));
+			answers.add(engine.settlementTotals(partner(), null, null, w[0], w[1]));
+			DelayHistogram delays = engine.settlementDelays(partner(), w[0], w[1], null, null);
+			answers.add(Arrays.asList(delays.count(), delays.percentile(0.5), delays.percentile(0.9),
+					delays.percentile(1.0)));
+			answers.add(engine.invoicedCustomers(partner(), w[0], w[1]).estimate());
+		}
+		return answers;
+	}
+
+	private void assertMatchesRebuiltRollups(AnalyticsEngine columnar) {
+		// Rebuilt, so the rollup sketches hold exactly the customers of live invoices
+		rollups.rebuild(partnerId);
+		AnalyticsEngine rollupEngine = new RollupAnalyticsEngine(analyticsRepository);
+		assertFalse(rollupEngine.paidByDay(partner(), null, null).isEmpty());
+		assertEquals(answers(rollupEngine), answers(columnar));
+	}
+
+	@Test
+	void loadMatchesRollups() {
+		createInvoices();
+		changeInvoices(id -> { });
+		assertMatchesRebuiltRollups(new ColumnarAnalyticsEngine(analyticsRepository, Duration.ofHours(1)));
+	}
+
+	@Test
+	void changesAfterLoadMatchRollups() {
+		createInvoices();
+		ColumnarAnalyticsEngine columnar = new ColumnarAnalyticsEngine(analyticsRepository, Duration.ofHours(1));
+		assertEquals(12, columnar.statusTotals(new InvoiceFilter(partner(), null, null, null)).get(0).count());
+		changeInvoices(notifying(columnar));
+		assertMatchesRebuiltRollups(columnar);
+	}
+
+	@Test
+	void changesDuringLoadAreReplayed() {
+		createInvoices();
+		List<ColumnarAnalyticsEngine> engine = new ArrayList<>(1);
+		// Writes land between reading the invoices and reading the payments, so the load sees half of them
+		AnalyticsRepository racing = new AnalyticsRepository(jdbc) {
+			@Override
+			public void streamInvoices(Long partnerId, RowCallbackHandler handler) {
+				super.streamInvoices(partnerId, handler);
+				changeInvoices(notifying(engine.get(0)));
+			}
+		};
+		engine.add(new ColumnarAnalyticsEngine(racing, Duration.ofHours(1)));
+		// The first query loads the partner
+		engine.get(0).statusTotals(new InvoiceFilter(partner(), null, null, null));
+		assertMatchesRebuiltRollups(engine.get(0));
+	}
+}
@@ -0,0 +1,61 @@
+package com.example.invoicebackend.service.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Nearest-rank percentiles of DelayHistogram, including merged histograms and early (negative) delays.
+ */
+class DelayHistogramTest {
+
+	@Test
+	void emptyHistogramHasNoPercentile() {
+		DelayHistogram h = new DelayHistogram().add(3, 0);
+		assertEquals(0, h.count());
+		assertNull(h.percentile(0.5));
+	}
+
+	@Test
+	void nearestRankPercentiles() {
+		DelayHistogram h = new DelayHistogram();
+		for (int d = 10; d >= 1; d--) {
+			h.add(d, 1);
+		}
+		assertEquals(10, h.count());
+		assertEquals(1, h.percentile(0.01));
+		assertEquals(1, h.percentile(0.1));
+		assertEquals(2, h.percentile(0.11));
+		assertEquals(5, h.percentile(0.5));
+		assertEquals(9, h.percentile(0.9));
+		assertEquals(10, h.percentile(0.95));
+		assertEquals(10, h.percentile(1.0));
+	}
+
+	@Test
+	void countsWeightTheRank() {
+		// 7 invoices paid 2 days early, 2 on the due date, 1 thirty days late
+		DelayHistogram h = new DelayHistogram().add(30, 1).add(-2, 4).add(0, 2).add(-2, 3);
+		assertEquals(10, h.count());
+		assertEquals(-2, h.percentile(0.5));
+		assertEquals(-2, h.percentile(0.7));
+		assertEquals(0, h.percentile(0.8));
+		assertEquals(0, h.percentile(0.9));
+		assertEquals(30, h.percentile(0.91));
+	}
+
+	@Test
+	void mergeAddsCounts() {
+		DelayHistogram a = new DelayHistogram().add(1, 2).add(5, 1);
+		DelayHistogram b = new DelayHistogram().add(5, 3).add(9, 4);
+		DelayHistogram merged = new DelayHistogram().merge(a).merge(b);
+		assertEquals(10, merged.count());
+		assertEquals(1, merged.percentile(0.2));
+		assertEquals(5, merged.percentile(0.6));
+		assertEquals(9, merged.percentile(0.61));
+		// Merging leaves the argument untouched
+		assertEquals(5, b.percentile(0.4));
+		assertEquals(7, b.count());
+	}
+}
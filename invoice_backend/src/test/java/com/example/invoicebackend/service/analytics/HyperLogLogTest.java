@@ -0,0 +1,84 @@
+package com.example.invoicebackend.service.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HyperLogLog estimates against exact distinct counts, and merging against a sketch of the union.
+ */
+class HyperLogLogTest {
+
+	private static HyperLogLog sketch(long from, long to) {
+		HyperLogLog h = new HyperLogLog();
+		for (long v = from; v < to; v++) {
+			h.offer(v);
+		}
+		return h;
+	}
+
+	private static void assertWithin(double relativeError, long exact, long estimate) {
+		assertTrue(Math.abs(estimate - exact) <= relativeError * exact,
+				() -> "estimate " + estimate + " for " + exact + " distinct values");
+	}
+
+	@Test
+	void emptySketchEstimatesZero() {
+		assertEquals(0, new HyperLogLog().estimate());
+	}
+
+	@Test
+	void smallCardinalitiesAreNearlyExact() {
+		// Linear counting corrects for register collisions: off by a couple of values at most
+		assertEquals(1, sketch(1, 2).estimate());
+		assertEquals(10, sketch(1, 11).estimate());
+		for (int n : new int[] {100, 1000, 5000}) {
+			assertWithin(0.03, n, sketch(1, n + 1).estimate());
+		}
+	}
+
+	@Test
+	void largeCardinalitiesStayWithinErrorBound() {
+		// About 1.6% standard error with 2^12 registers; 5% is over three standard errors
+		for (int n : new int[] {10_000, 100_000, 1_000_000}) {
+			assertWithin(0.05, n, sketch(1, n + 1).estimate());
+		}
+	}
+
+	@Test
+	void duplicatesDoNotCount() {
+		HyperLogLog h = sketch(1, 5001);
+		long estimate = h.estimate();
+		for (long v = 1; v <= 5000; v++) {
+			h.offer(v);
+		}
+		assertEquals(estimate, h.estimate());
+	}
+
+	@Test
+	void mergeEqualsSketchOfUnion() {
+		// Overlapping ranges: 20_000 distinct values in total
+		HyperLogLog merged = sketch(0, 12_000).merge(sketch(8_000, 20_000));
+		assertEquals(sketch(0, 20_000).estimate(), merged.estimate());
+		assertWithin(0.05, 20_000, merged.estimate());
+	}
+
+	@Test
+	void registersRebuiltFromRanksMatchOffers() {
+		// The rollups store (register, rank) pairs and rebuild sketches through setRank
+		HyperLogLog offered = new HyperLogLog();
+		HyperLogLog rebuilt = new HyperLogLog();
+		for (long v = 1; v <= 3000; v++) {
+			offered.offer(v);
+			int register = HyperLogLog.registerOf(v);
+			int rank = HyperLogLog.rankOf(v);
+			assertTrue(register >= 0 && register < HyperLogLog.REGISTERS);
+			assertTrue(rank >= 1 && rank <= 64 - HyperLogLog.PRECISION + 1);
+			rebuilt.setRank(register, rank);
+			// A lower rank never lowers a register
+			rebuilt.setRank(register, 1);
+		}
+		assertEquals(offered.estimate(), rebuilt.estimate());
+	}
+}
@@ -0,0 +1,120 @@
+package com.example.invoicebackend.service.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * LongIntMap against a HashMap, with keys chosen to share a home slot so probe runs and backward-shift
+ * deletion are exercised.
+ */
+class LongIntMapTest {
+
+	/** Keys whose home slot is 0 in a table of the given capacity. */
+	private static List<Long> colliding(int capacity, int count) {
+		List<Long> keys = new ArrayList<>();
+		for (long k = 1; keys.size() < count; k++) {
+			if ((LongIntMap.hash(k) & (capacity - 1)) == 0) {
+				keys.add(k);
+			}
+		}
+		return keys;
+	}
+
+	private static void assertSameEntries(Map<Long, Integer> expected, LongIntMap map) {
+		assertEquals(expected.size(), map.size());
+		Map<Long, Integer> seen = new HashMap<>();
+		map.forEach(seen::put);
+		assertEquals(expected, seen);
+		expected.forEach((k, v) -> assertEquals(v, map.get(k)));
+	}
+
+	@Test
+	void getPutAndOverwrite() {
+		LongIntMap map = new LongIntMap();
+		assertEquals(-1, map.get(7));
+		assertEquals(42, map.get(7, 42));
+		map.put(7, 3);
+		map.put(-7, 0);
+		assertEquals(3, map.get(7));
+		assertEquals(0, map.get(-7, 42));
+		map.put(7, 9);
+		assertEquals(9, map.get(7));
+		assertEquals(2, map.size());
+		map.remove(8);
+		assertEquals(2, map.size());
+	}
+
+	@Test
+	void removeInsideCollidingRunKeepsLaterKeysReachable() {
+		List<Long> keys = colliding(32, 6);
+		LongIntMap map = new LongIntMap();
+		Map<Long, Integer> expected = new HashMap<>();
+		for (int i = 0; i < keys.size(); i++) {
+			map.put(keys.get(i), i);
+			expected.put(keys.get(i), i);
+		}
+		// A key homed in the slot right after the run start is displaced behind the run
+		long neighbour = 1;
+		while ((LongIntMap.hash(neighbour) & 31) != 1 || keys.contains(neighbour)) {
+			neighbour++;
+		}
+		map.put(neighbour, 100);
+		expected.put(neighbour, 100);
+		assertSameEntries(expected, map);
+
+		for (int i : new int[] {1, 0, 4}) {
+			map.remove(keys.get(i));
+			expected.remove(keys.get(i));
+			assertEquals(-1, map.get(keys.get(i)));
+			assertSameEntries(expected, map);
+		}
+		map.put(keys.get(0), 50);
+		expected.put(keys.get(0), 50);
+		assertSameEntries(expected, map);
+	}
+
+	@Test
+	void resizeKeepsCollidingKeys() {
+		// All home to slot 0 at capacity 32, and keep colliding in part after each doubling
+		List<Long> keys = colliding(32, 200);
+		LongIntMap map = new LongIntMap();
+		Map<Long, Integer> expected = new HashMap<>();
+		for (int i = 0; i < keys.size(); i++) {
+			map.put(keys.get(i), i);
+			expected.put(keys.get(i), i);
+		}
+		assertSameEntries(expected, map);
+		for (int i = 0; i < keys.size(); i += 2) {
+			map.remove(keys.get(i));
+			expected.remove(keys.get(i));
+		}
+		assertSameEntries(expected, map);
+	}
+
+	@Test
+	void randomOperationsMatchHashMap() {
+		Random random = new Random(17);
+		LongIntMap map = new LongIntMap();
+		Map<Long, Integer> expected = new HashMap<>();
+		for (int step = 0; step < 20_000; step++) {
+			// A small key space so puts, overwrites and removes hit the same keys often
+			long key = random.nextInt(500) - 250;
+			if (random.nextInt(3) == 0) {
+				map.remove(key);
+				expected.remove(key);
+			} else {
+				map.put(key, step);
+				expected.put(key, step);
+			}
+			assertEquals(expected.getOrDefault(key, -1), map.get(key));
+		}
+		assertSameEntries(expected, map);
+	}
+}
@@ -0,0 +1,119 @@
+package com.example.invoicebackend.service.webhook;
+
+import com.example.invoicebackend.model.WebhookSubscription;
+import com.example.invoicebackend.service.webhook.WebhookTargetGuards.CircuitState;
+import com.example.invoicebackend.service.webhook.WebhookTargetGuards.Deferral;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Circuit breaker and token bucket of WebhookTargetGuards, driven with explicit times.
+ */
+class WebhookTargetGuardsTest {
+
+	private static final String URL = "https://partner.example.com/hooks";
+	private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+
+	private final WebhookTargetGuards guards = new WebhookTargetGuards(5, Duration.ofSeconds(30), 0, 10);
+
+	private static WebhookSubscription subscription(int failureThreshold, int openSeconds) {
+		WebhookSubscription sub = new WebhookSubscription();
+		sub.setTargetUrl(URL);
+		sub.setCircuitFailureThreshold(failureThreshold);
+		sub.setCircuitOpenSeconds(openSeconds);
+		return sub;
+	}
+
+	private void open(WebhookSubscription sub, int failures, Instant at) {
+		for (int i = 0; i < failures; i++) {
+			assertNull(guards.tryAcquire(sub, at));
+			guards.recordOutcome(sub, true, at);
+		}
+	}
+
+	@Test
+	void opensAfterThresholdAndAdmitsSingleProbe() {
+		WebhookSubscription sub = subscription(2, 30);
+		open(sub, 2, T0);
+
+		Deferral open = guards.tryAcquire(sub, T0.plusSeconds(10));
+		assertNotNull(open);
+		assertEquals("circuit open", open.reason());
+		assertEquals(T0.plusSeconds(30), open.until());
+
+		assertNull(guards.tryAcquire(sub, T0.plusSeconds(30)));
+		assertEquals(CircuitState.HALF_OPEN, guards.states().get(URL).circuit());
+		Deferral waiting = guards.tryAcquire(sub, T0.plusSeconds(31));
+		assertNotNull(waiting);
+		assertEquals("circuit half-open", waiting.reason());
+
+		guards.recordOutcome(sub, false, T0.plusSeconds(32));
+		assertEquals(CircuitState.CLOSED, guards.states().get(URL).circuit());
+		assertEquals(0, guards.states().get(URL).consecutiveFailures());
+		assertNull(guards.tryAcquire(sub, T0.plusSeconds(32)));
+		assertNull(guards.tryAcquire(sub, T0.plusSeconds(32)));
+	}
+
+	@Test
+	void failedProbeReopensCircuit() {
+		WebhookSubscription sub = subscription(3, 30);
+		open(sub, 3, T0);
+
+		assertNull(guards.tryAcquire(sub, T0.plusSeconds(30)));
+		guards.recordOutcome(sub, true, T0.plusSeconds(31));
+
+		assertEquals(CircuitState.OPEN, guards.states().get(URL).circuit());
+		assertEquals(T0.plusSeconds(61), guards.states().get(URL).openUntil());
+		Deferral reopened = guards.tryAcquire(sub, T0.plusSeconds(60));
+		assertNotNull(reopened);
+		assertEquals("circuit open", reopened.reason());
+		assertEquals(T0.plusSeconds(61), reopened.until());
+		assertNull(guards.tryAcquire(sub, T0.plusSeconds(61)));
+	}
+
+	@Test
+	void clientErrorsDoNotCountAgainstCircuit() {
+		assertFalse(WebhookTargetGuards.isTargetFailure(400));
+		assertFalse(WebhookTargetGuards.isTargetFailure(404));
+		assertFalse(WebhookTargetGuards.isTargetFailure(422));
+		assertTrue(WebhookTargetGuards.isTargetFailure(429));
+		assertTrue(WebhookTargetGuards.isTargetFailure(500));
+		assertTrue(WebhookTargetGuards.isTargetFailure(503));
+		assertTrue(WebhookTargetGuards.isTargetFailure(null));
+
+		WebhookSubscription sub = subscription(2, 30);
+		for (int i = 0; i < 10; i++) {
+			assertNull(guards.tryAcquire(sub, T0));
+			guards.recordOutcome(sub, WebhookTargetGuards.isTargetFailure(404), T0);
+		}
+		assertEquals(CircuitState.CLOSED, guards.states().get(URL).circuit());
+		assertEquals(0, guards.states().get(URL).consecutiveFailures());
+	}
+
+	@Test
+	void rateLimitDefersUntilNextToken() {
+		WebhookSubscription sub = subscription(5, 30);
+		sub.setRateLimitPerSecond(5.0);
+		sub.setRateLimitBurst(2);
+
+		assertNull(guards.tryAcquire(sub, T0));
+		assertNull(guards.tryAcquire(sub, T0));
+		Deferral limited = guards.tryAcquire(sub, T0);
+		assertNotNull(limited);
+		assertEquals("rate limited", limited.reason());
+		assertEquals(T0.plusMillis(200), limited.until());
+
+		// Half a token refilled after 100ms: the other half takes another 100ms
+		assertEquals(T0.plusMillis(200), guards.tryAcquire(sub, T0.plusMillis(100)).until());
+		assertNull(guards.tryAcquire(sub, T0.plusMillis(200)));
+		assertEquals(T0.plusMillis(400), guards.tryAcquire(sub, T0.plusMillis(200)).until());
+	}
+}
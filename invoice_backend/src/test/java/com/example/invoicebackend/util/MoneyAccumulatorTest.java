@@ -0,0 +1,117 @@
+package com.example.invoicebackend.util;
+
+import com.example.invoicebackend.model.Invoice;
+import com.example.invoicebackend.model.InvoiceItem;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * MoneyAccumulator must give exactly what reduce(BigDecimal.ZERO, BigDecimal::add) gives, scale included.
+ */
+class MoneyAccumulatorTest {
+
+	private static BigDecimal reference(List<BigDecimal> amounts) {
+		return amounts.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+	}
+
+	private static List<BigDecimal> randomAmounts(Random random, int n, int... scales) {
+		List<BigDecimal> amounts = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			long unscaled = random.nextLong() % 10_000_000_000L;
+			amounts.add(BigDecimal.valueOf(unscaled, scales[random.nextInt(scales.length)]));
+		}
+		return amounts;
+	}
+
+	@Test
+	void emptySumIsZero() {
+		assertEquals(BigDecimal.ZERO, new MoneyAccumulator().toBigDecimal());
+		assertEquals(BigDecimal.ZERO, MoneyAccumulator.sum(List.of()));
+	}
+
+	@Test
+	void matchesBigDecimalForCents() {
+		Random random = new Random(42);
+		for (int round = 0; round < 50; round++) {
+			List<BigDecimal> amounts = randomAmounts(random, 1 + random.nextInt(2000), 2);
+			assertEquals(reference(amounts), MoneyAccumulator.sum(amounts));
+		}
+	}
+
+	@Test
+	void matchesBigDecimalForMixedScales() {
+		Random random = new Random(7);
+		for (int round = 0; round < 50; round++) {
+			List<BigDecimal> amounts = randomAmounts(random, 1 + random.nextInt(500), -2, 0, 1, 2, 3, 4);
+			assertEquals(reference(amounts), MoneyAccumulator.sum(amounts));
+		}
+		assertEquals(reference(List.of(new BigDecimal("5"), new BigDecimal("1.5"))),
+				MoneyAccumulator.sum(List.of(new BigDecimal("5"), new BigDecimal("1.5"))));
+		assertEquals(reference(List.of(new BigDecimal("1E+3"))), MoneyAccumulator.sum(List.of(new BigDecimal("1E+3"))));
+	}
+
+	@Test
+	void matchesBigDecimalPastLongOverflow() {
+		List<BigDecimal> amounts = new ArrayList<>(Collections.nCopies(2000, new BigDecimal("99999999999999.99")));
+		amounts.addAll(Collections.nCopies(1000, new BigDecimal("-99999999999999.99")));
+		amounts.add(new BigDecimal("123456789012345678901.23"));
+		assertEquals(reference(amounts), MoneyAccumulator.sum(amounts));
+
+		MoneyAccumulator acc = new MoneyAccumulator();
+		BigDecimal expected = BigDecimal.ZERO;
+		for (int i = 0; i < 4; i++) {
+			acc.addCents(Long.MAX_VALUE);
+			expected = expected.add(BigDecimal.valueOf(Long.MAX_VALUE, 2));
+		}
+		acc.addCents(Long.MIN_VALUE);
+		expected = expected.add(BigDecimal.valueOf(Long.MIN_VALUE, 2));
+		assertEquals(expected, acc.toBigDecimal());
+	}
+
+	@Test
+	void mergedPartialsMatchSingleSum() {
+		List<BigDecimal> amounts = randomAmounts(new Random(3), 3000, 0, 2, 3);
+		MoneyAccumulator total = new MoneyAccumulator();
+		for (int from = 0; from < amounts.size(); from += 700) {
+			MoneyAccumulator part = new MoneyAccumulator();
+			amounts.subList(from, Math.min(from + 700, amounts.size())).forEach(part::add);
+			total.add(part);
+		}
+		assertEquals(reference(amounts), total.toBigDecimal());
+		assertEquals(reference(amounts), amounts.parallelStream().collect(MoneyAccumulator.summing()));
+	}
+
+	@Test
+	void recalcTotalsMatchesBigDecimal() {
+		Random random = new Random(11);
+		for (int round = 0; round < 20; round++) {
+			Invoice invoice = new Invoice();
+			List<BigDecimal> lineTotals = randomAmounts(random, random.nextInt(50), 2);
+			for (BigDecimal lineTotal : lineTotals) {
+				InvoiceItem item = new InvoiceItem();
+				item.setLineTotal(lineTotal);
+				invoice.getItems().add(item);
+			}
+			BigDecimal tax = round % 3 == 0 ? null : BigDecimal.valueOf(random.nextInt(100_000), 2);
+			BigDecimal discount = round % 4 == 0 ? null : BigDecimal.valueOf(random.nextInt(10_000), 1);
+			invoice.setTaxAmount(tax);
+			invoice.setDiscountAmount(discount);
+
+			invoice.recalcTotals();
+
+			BigDecimal subtotal = reference(lineTotals);
+			BigDecimal total = subtotal
+					.add(tax != null ? tax : BigDecimal.ZERO)
+					.subtract(discount != null ? discount : BigDecimal.ZERO);
+			assertEquals(subtotal, invoice.getSubtotalAmount());
+			assertEquals(total, invoice.getTotalAmount());
+		}
+	}
+}